@@ -7,8 +7,14 @@ import com.demo.copicloud.domain.user.entity.User;
 import com.demo.copicloud.infrastructure.api.AliyunAi.modle.CreateOutPaintingTaskResponse;
 import com.demo.copicloud.infrastructure.api.ImageSearch.modle.ImageSearchResult;
 import com.demo.copicloud.interfaces.dto.picture.*;
+import com.demo.copicloud.interfaces.vo.picture.ChunkUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.DirectUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureCursorPageVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureFetchJobVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureUploadResultVO;
 import com.demo.copicloud.interfaces.vo.picture.PictureVO;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -28,6 +34,17 @@ public interface PictureApplicationService {
      */
     PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser);
 
+    /**
+     * 并发上传多个本地文件，统一校验空间额度，最后一次性入库并更新额度
+     *
+     * @param files                本地文件
+     * @param pictureUploadRequest 图片上传请求
+     * @param loginUser            登录用户
+     * @return 每个文件的上传结果（与 files 顺序一致）
+     */
+    List<PictureUploadResultVO> uploadPictures(List<MultipartFile> files, PictureUploadRequest pictureUploadRequest,
+                                               User loginUser);
+
     /**
      * 获取图片信息 视图
      *
@@ -91,6 +108,78 @@ public interface PictureApplicationService {
      */
     Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser);
 
+    /**
+     * 提交批量抓取任务，后台执行
+     *
+     * @param pictureUploadByBatchRequest 图片抓取请求
+     * @param loginUser                   登录用户
+     * @return 任务 id
+     */
+    String submitPictureFetchJob(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser);
+
+    /**
+     * 查询批量抓取任务进度
+     *
+     * @param jobId 任务 id
+     * @return 任务进度
+     */
+    PictureFetchJobVO getPictureFetchJob(String jobId);
+
+    /**
+     * 初始化分片上传
+     *
+     * @param chunkUploadInitRequest 初始化请求
+     * @param loginUser              登录用户
+     * @return 上传 id 和分片规划
+     */
+    ChunkUploadVO initChunkUpload(ChunkUploadInitRequest chunkUploadInitRequest, User loginUser);
+
+    /**
+     * 上传一个分片
+     *
+     * @param uploadId   上传 id
+     * @param partNumber 分片序号（从 1 开始）
+     * @param file       分片内容
+     * @param loginUser  登录用户
+     */
+    void uploadChunkPart(String uploadId, Integer partNumber, MultipartFile file, User loginUser);
+
+    /**
+     * 查询分片上传进度（用于断点续传）
+     *
+     * @param uploadId  上传 id
+     * @param loginUser 登录用户
+     * @return 上传进度
+     */
+    ChunkUploadVO getChunkUpload(String uploadId, User loginUser);
+
+    /**
+     * 完成分片上传
+     *
+     * @param chunkUploadCompleteRequest 完成请求
+     * @param loginUser                  登录用户
+     * @return 图片信息
+     */
+    PictureVO completeChunkUpload(ChunkUploadCompleteRequest chunkUploadCompleteRequest, User loginUser);
+
+    /**
+     * 申请直传
+     *
+     * @param directUploadRequest 申请直传请求
+     * @param loginUser           登录用户
+     * @return 直传凭证
+     */
+    DirectUploadVO createDirectUpload(DirectUploadRequest directUploadRequest, User loginUser);
+
+    /**
+     * 完成直传
+     *
+     * @param directUploadCompleteRequest 完成直传请求
+     * @param loginUser                   登录用户
+     * @return 图片信息
+     */
+    PictureVO completeDirectUpload(DirectUploadCompleteRequest directUploadCompleteRequest, User loginUser);
+
     /**
      * 清理图片
      *
@@ -122,6 +211,14 @@ public interface PictureApplicationService {
      */
     List<ImageSearchResult> searchPicture(SearchPictureByPictureRequest searchRequest);
 
+    /**
+     * 查找相似（近似重复）图片
+     *
+     * @param searchRequest 搜索请求
+     * @return 搜索结果
+     */
+    List<PictureVO> searchSimilarPicture(SearchSimilarPictureRequest searchRequest);
+
     /**
      * 根据颜色搜索图片
      *
@@ -164,4 +261,19 @@ public interface PictureApplicationService {
      * 获取图片分页
      */
     Page<Picture> getPicturePage(PictureQueryRequest pictureQueryRequest, QueryWrapper<Picture> queryWrapper);
+
+    /**
+     * 游标分页获取图片列表（不统计总数）
+     */
+    PictureCursorPageVO listPictureVOByCursor(PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request);
+
+    /**
+     * 重建全文检索索引（异步执行）
+     */
+    boolean rebuildSearchIndex();
+
+    /**
+     * 回填标签关联表（异步执行）
+     */
+    void backfillPictureTags();
 }
@@ -8,6 +8,7 @@ import com.demo.copicloud.infrastructure.common.DeleteRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceAddRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceEditRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceQueryRequest;
+import com.demo.copicloud.interfaces.vo.space.PictureMigrationVO;
 import com.demo.copicloud.interfaces.vo.space.SpaceVO;
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -118,6 +119,11 @@ public interface SpaceApplicationService {
      */
     void updateSpace(Space spaceEntity);
 
+    /**
+     * 获取空间图片迁移进度
+     */
+    PictureMigrationVO getPictureMigration(Long spaceId);
+
     /**
      * 获取空间列表篇
      */
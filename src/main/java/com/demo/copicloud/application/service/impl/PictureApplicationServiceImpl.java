@@ -10,12 +10,18 @@ import com.demo.copicloud.domain.user.entity.User;
 import com.demo.copicloud.infrastructure.api.AliyunAi.modle.CreateOutPaintingTaskResponse;
 import com.demo.copicloud.infrastructure.api.ImageSearch.modle.ImageSearchResult;
 import com.demo.copicloud.interfaces.dto.picture.*;
+import com.demo.copicloud.interfaces.vo.picture.ChunkUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.DirectUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureCursorPageVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureFetchJobVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureUploadResultVO;
 import com.demo.copicloud.interfaces.vo.picture.PictureVO;
 import com.demo.copicloud.interfaces.vo.user.UserVO;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -39,6 +45,12 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
         return pictureDomainService.uploadPicture(inputSource, pictureUploadRequest, loginUser);
     }
 
+    @Override
+    public List<PictureUploadResultVO> uploadPictures(List<MultipartFile> files, PictureUploadRequest pictureUploadRequest,
+                                                      User loginUser) {
+        return pictureDomainService.uploadPictures(files, pictureUploadRequest, loginUser);
+    }
+
     @Override
     public void validPicture(Picture picture) {
         pictureDomainService.validPicture(picture);
@@ -97,6 +109,46 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
         return pictureDomainService.uploadPictureByBatch(pictureUploadByBatchRequest, loginUser);
     }
 
+    @Override
+    public String submitPictureFetchJob(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+        return pictureDomainService.submitPictureFetchJob(pictureUploadByBatchRequest, loginUser);
+    }
+
+    @Override
+    public PictureFetchJobVO getPictureFetchJob(String jobId) {
+        return pictureDomainService.getPictureFetchJob(jobId);
+    }
+
+    @Override
+    public ChunkUploadVO initChunkUpload(ChunkUploadInitRequest chunkUploadInitRequest, User loginUser) {
+        return pictureDomainService.initChunkUpload(chunkUploadInitRequest, loginUser);
+    }
+
+    @Override
+    public void uploadChunkPart(String uploadId, Integer partNumber, MultipartFile file, User loginUser) {
+        pictureDomainService.uploadChunkPart(uploadId, partNumber, file, loginUser);
+    }
+
+    @Override
+    public ChunkUploadVO getChunkUpload(String uploadId, User loginUser) {
+        return pictureDomainService.getChunkUpload(uploadId, loginUser);
+    }
+
+    @Override
+    public PictureVO completeChunkUpload(ChunkUploadCompleteRequest chunkUploadCompleteRequest, User loginUser) {
+        return pictureDomainService.completeChunkUpload(chunkUploadCompleteRequest, loginUser);
+    }
+
+    @Override
+    public DirectUploadVO createDirectUpload(DirectUploadRequest directUploadRequest, User loginUser) {
+        return pictureDomainService.createDirectUpload(directUploadRequest, loginUser);
+    }
+
+    @Override
+    public PictureVO completeDirectUpload(DirectUploadCompleteRequest directUploadCompleteRequest, User loginUser) {
+        return pictureDomainService.completeDirectUpload(directUploadCompleteRequest, loginUser);
+    }
+
     @Override
     public void clearPictureFile(Picture oldPicture) {
         pictureDomainService.clearPictureFile(oldPicture);
@@ -118,6 +170,17 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
         return pictureDomainService.searchPicture(searchRequest);
     }
 
+    /**
+     * 查找相似（近似重复）图片
+     *
+     * @param searchRequest 搜索请求
+     * @return 搜索结果
+     */
+    @Override
+    public List<PictureVO> searchSimilarPicture(SearchSimilarPictureRequest searchRequest) {
+        return pictureDomainService.searchSimilarPicture(searchRequest);
+    }
+
     /**
      * 根据颜色搜索图片
      *
@@ -171,6 +234,30 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
     public Page<Picture> getPicturePage(PictureQueryRequest pictureQueryRequest, QueryWrapper<Picture> queryWrapper) {
         return pictureDomainService.getPicturePage(pictureQueryRequest, queryWrapper);
     }
+
+    /**
+     * 游标分页获取图片列表（不统计总数）
+     */
+    @Override
+    public PictureCursorPageVO listPictureVOByCursor(PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request) {
+        return pictureDomainService.listPictureVOByCursor(pictureCursorQueryRequest, request);
+    }
+
+    /**
+     * 重建全文检索索引（异步执行）
+     */
+    @Override
+    public boolean rebuildSearchIndex() {
+        return pictureDomainService.rebuildSearchIndex();
+    }
+
+    /**
+     * 回填标签关联表（异步执行）
+     */
+    @Override
+    public void backfillPictureTags() {
+        pictureDomainService.backfillPictureTags();
+    }
 }
 
 
@@ -10,6 +10,7 @@ import com.demo.copicloud.infrastructure.common.DeleteRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceAddRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceEditRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceQueryRequest;
+import com.demo.copicloud.interfaces.vo.space.PictureMigrationVO;
 import com.demo.copicloud.interfaces.vo.space.SpaceVO;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -175,6 +176,14 @@ public class SpaceApplicationServiceImpl implements SpaceApplicationService {
         spaceDomainService.updateSpace(spaceEntity);
     }
 
+    /**
+     * 获取空间图片迁移进度
+     */
+    @Override
+    public PictureMigrationVO getPictureMigration(Long spaceId) {
+        return spaceDomainService.getPictureMigration(spaceId);
+    }
+
     /**
      * 获取空间列表篇
      */
@@ -35,6 +35,11 @@ public class Picture implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 图片感知哈希（64 位 dHash）
+     */
+    private Long picHash;
+
     /**
      * 缩略图 url
      */
@@ -0,0 +1,64 @@
+package com.demo.copicloud.domain.picture.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片多分辨率副本
+ * TableName picture_rendition
+ */
+@TableName(value ="picture_rendition")
+@Data
+public class PictureRendition implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 原图 url
+     */
+    private String sourceUrl;
+
+    /**
+     * 副本宽度
+     */
+    private Integer width;
+
+    /**
+     * 副本高度
+     */
+    private Integer height;
+
+    /**
+     * 副本 url
+     */
+    private String url;
+
+    /**
+     * 副本体积
+     */
+    private Long picSize;
+
+    /**
+     * 副本格式
+     */
+    private String picFormat;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    @Serial
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,90 @@
+package com.demo.copicloud.domain.picture.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import cn.hutool.core.util.StrUtil;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * 图片标签关联
+ * TableName picture_tag
+ */
+@TableName(value ="picture_tag")
+@Data
+public class PictureTag implements Serializable {
+
+    /**
+     * 标签最大长度（与 picture_tag.tag 字段长度一致）
+     */
+    public static final int MAX_TAG_LENGTH = 128;
+
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 空间 id（为空表示公共图库）
+     */
+    private Long spaceId;
+
+    /**
+     * 标签
+     */
+    private String tag;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    @Serial
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 规范化标签：去掉首尾空白，按 picture_tag 的排序规则（utf8mb4_unicode_ci，忽略大小写、重音和尾部空格）去重，
+     * 保留第一次出现的写法；超过最大长度的标签无法写入关联表，直接忽略
+     *
+     * @param tags 标签
+     * @return 规范化后的标签，保持原有顺序
+     */
+    public static List<String> normalizeTags(Collection<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, String> tagMap = new LinkedHashMap<>();
+        for (String tag : tags) {
+            if (StrUtil.isBlank(tag)) {
+                continue;
+            }
+            String trimmedTag = tag.trim();
+            if (trimmedTag.length() > MAX_TAG_LENGTH) {
+                continue;
+            }
+            tagMap.putIfAbsent(collationKey(trimmedTag), trimmedTag);
+        }
+        return new ArrayList<>(tagMap.values());
+    }
+
+    /**
+     * 近似 utf8mb4_unicode_ci 的比较键：去掉重音符号后转为小写
+     */
+    private static String collationKey(String tag) {
+        String decomposed = Normalizer.normalize(tag, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,39 @@
+package com.demo.copicloud.domain.picture.repository;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.demo.copicloud.domain.picture.entity.PictureFileDeletion;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 对象存储文件删除队列仓储
+ */
+public interface PictureFileDeletionRepository extends IService<PictureFileDeletion> {
+
+    /**
+     * 加入删除队列，处于事务中时随事务一起提交
+     *
+     * @param objectKeys 对象键
+     */
+    void enqueue(Collection<String> objectKeys);
+
+    /**
+     * 查询到期待执行的删除任务
+     *
+     * @param maxRetryCount 最大重试次数（达到该次数的任务不再执行）
+     * @param limit         最多返回数量
+     */
+    List<PictureFileDeletion> listDue(int maxRetryCount, int limit);
+
+    /**
+     * 记录一次删除失败
+     *
+     * @param id            任务 id
+     * @param retryCount    失败后的已重试次数
+     * @param nextRetryTime 下次执行时间
+     * @param lastError     失败原因
+     */
+    void markFailed(Long id, int retryCount, Date nextRetryTime, String lastError);
+}
@@ -0,0 +1,64 @@
+package com.demo.copicloud.domain.picture.repository;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.demo.copicloud.domain.picture.entity.PictureObject;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 图片存储对象仓储
+ */
+public interface PictureObjectRepository extends IService<PictureObject> {
+
+    /**
+     * 同一内容的查找、上传和删除需持有的分布式锁前缀，后接 contentHash
+     */
+    String LOCK_KEY_PREFIX = "lock:pictureObject:";
+
+    /**
+     * 根据原图内容哈希查询
+     *
+     * @param contentHash 原图内容 SHA-256
+     */
+    PictureObject getByContentHash(String contentHash);
+
+    /**
+     * 根据图片 url 查询
+     *
+     * @param url 图片 url
+     */
+    PictureObject getByUrl(String url);
+
+    /**
+     * 增加一次引用
+     *
+     * @param contentHash 原图内容 SHA-256
+     * @return 对象已被删除时返回 false
+     */
+    boolean acquire(String contentHash);
+
+    /**
+     * 释放一次引用，引用数降为 0 时删除记录
+     *
+     * @param id 对象 id
+     * @return 记录是否已删除（调用方需随后删除对象存储中的文件）
+     */
+    boolean release(Long id);
+
+    /**
+     * 查询创建后一直未被引用的对象（上传后图片入库失败遗留的记录）
+     *
+     * @param createdBefore 创建时间早于该时间
+     * @param limit         最多返回数量
+     */
+    List<PictureObject> listUnreferenced(Date createdBefore, int limit);
+
+    /**
+     * 删除仍未被引用的对象
+     *
+     * @param id 对象 id
+     * @return 是否已删除（期间被图片引用时返回 false）
+     */
+    boolean removeUnreferenced(Long id);
+}
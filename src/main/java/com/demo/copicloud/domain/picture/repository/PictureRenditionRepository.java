@@ -0,0 +1,38 @@
+package com.demo.copicloud.domain.picture.repository;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.demo.copicloud.domain.picture.entity.PictureRendition;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片多分辨率副本仓储
+ */
+public interface PictureRenditionRepository extends IService<PictureRendition> {
+
+    /**
+     * 批量查询原图的所有副本
+     *
+     * @param sourceUrls 原图 url
+     * @return 原图 url -> 副本（按宽度升序）
+     */
+    Map<String, List<PictureRendition>> listBySourceUrls(Collection<String> sourceUrls);
+
+    /**
+     * 查询原图指定宽度的副本
+     *
+     * @param sourceUrl 原图 url
+     * @param width     宽度
+     */
+    PictureRendition getBySourceUrlAndWidth(String sourceUrl, int width);
+
+    /**
+     * 删除原图的所有副本记录
+     *
+     * @param sourceUrl 原图 url
+     * @return 被删除的副本（调用方需删除对象存储中的文件）
+     */
+    List<PictureRendition> removeBySourceUrl(String sourceUrl);
+}
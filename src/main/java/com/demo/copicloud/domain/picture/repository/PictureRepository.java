@@ -3,9 +3,115 @@ package com.demo.copicloud.domain.picture.repository;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.demo.copicloud.domain.picture.entity.Picture;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 图片仓储
  */
 public interface PictureRepository extends IService<Picture> {
 
+    /**
+     * 流式扫描空间内所有图片的主色调（仅读取 id 和 picColor 两列）
+     * 每行在读取时解析为打包的 RGB 整数，无法解析的颜色会被跳过
+     *
+     * @param spaceId  空间 id
+     * @param consumer 每行回调
+     */
+    void scanPictureColor(Long spaceId, PictureColorConsumer consumer);
+
+    /**
+     * 流式扫描空间内图片，返回与目标颜色最相近的 K 张图片 id（按相似度降序）
+     * 内存占用只与 K 有关，与空间图片数量无关
+     *
+     * @param spaceId   空间 id
+     * @param targetRgb 目标颜色（0xRRGGBB）
+     * @param topK      返回数量
+     * @return 图片 id 列表
+     */
+    List<Long> listIdsByNearestColor(Long spaceId, int targetRgb, int topK);
+
+    /**
+     * 流式扫描空间内所有图片的感知哈希（仅读取 id 和 picHash 两列）
+     *
+     * @param spaceId  空间 id（为空表示公共图库）
+     * @param consumer 每行回调
+     */
+    void scanPictureHash(Long spaceId, PictureHashConsumer consumer);
+
+    /**
+     * 流式扫描所有带标签的图片（仅读取 id、spaceId 和 tags 三列）
+     *
+     * @param consumer 每行回调
+     */
+    void scanPictureTags(PictureTagsConsumer consumer);
+
+    /**
+     * 通过全文检索索引查询图片 id（名称 / 简介包含搜索词，且包含全部标签、分类一致）
+     *
+     * @param spaceId     空间 id
+     * @param nullSpaceId 是否只查询公共图库
+     * @param searchText  搜索词
+     * @param tags        标签
+     * @param category    分类
+     * @param maxHits     最多命中数量
+     * @return 图片 id；索引不可用或命中过多时返回 null，此时应使用数据库条件查询
+     */
+    Collection<Long> searchIds(Long spaceId, boolean nullSpaceId, String searchText, List<String> tags,
+                               String category, int maxHits);
+
+    /**
+     * 图片新增、修改或删除后同步全文检索索引
+     *
+     * @param spaceId   空间 id
+     * @param pictureId 图片 id
+     */
+    void refreshSearchIndex(Long spaceId, Long pictureId);
+
+    /**
+     * 异步重建全文检索索引
+     *
+     * @return 是否开始重建
+     */
+    boolean rebuildSearchIndex();
+
+    /**
+     * 图片颜色回调
+     */
+    @FunctionalInterface
+    interface PictureColorConsumer {
+
+        /**
+         * @param pictureId 图片 id
+         * @param rgb       打包的 RGB 值（0xRRGGBB）
+         */
+        void accept(long pictureId, int rgb);
+    }
+
+    /**
+     * 图片感知哈希回调
+     */
+    @FunctionalInterface
+    interface PictureHashConsumer {
+
+        /**
+         * @param pictureId 图片 id
+         * @param hash      64 位感知哈希
+         */
+        void accept(long pictureId, long hash);
+    }
+
+    /**
+     * 图片标签回调
+     */
+    @FunctionalInterface
+    interface PictureTagsConsumer {
+
+        /**
+         * @param pictureId 图片 id
+         * @param spaceId   空间 id（为空表示公共图库）
+         * @param tags      标签（JSON 数组字符串）
+         */
+        void accept(long pictureId, Long spaceId, String tags);
+    }
 }
@@ -0,0 +1,48 @@
+package com.demo.copicloud.domain.picture.repository;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.demo.copicloud.domain.picture.entity.PictureTag;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片标签关联仓储
+ */
+public interface PictureTagRepository extends IService<PictureTag> {
+
+    /**
+     * 覆盖图片的标签
+     *
+     * @param pictureId 图片 id
+     * @param spaceId   空间 id
+     * @param tags      标签（为空表示清空）
+     */
+    void replaceTags(Long pictureId, Long spaceId, List<String> tags);
+
+    /**
+     * 批量覆盖多张图片的标签（回填使用）
+     *
+     * @param pictureTagsMap 图片 id -> 该图片的全部标签关联
+     */
+    void replaceTags(Map<Long, List<PictureTag>> pictureTagsMap);
+
+    /**
+     * 删除图片的所有标签
+     *
+     * @param pictureId 图片 id
+     */
+    void removeByPictureId(Long pictureId);
+
+    /**
+     * 查询同时包含全部标签的图片 id
+     *
+     * @param spaceId     空间 id
+     * @param nullSpaceId 是否只查询公共图库
+     * @param tags        标签
+     * @param maxHits     最多命中数量
+     * @return 图片 id，超过 maxHits 时返回 null
+     */
+    Collection<Long> listPictureIdsByTags(Long spaceId, boolean nullSpaceId, List<String> tags, int maxHits);
+}
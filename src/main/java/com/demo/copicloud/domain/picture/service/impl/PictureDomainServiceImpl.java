@@ -3,15 +3,21 @@ package com.demo.copicloud.domain.picture.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjUtil;
-import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.demo.copicloud.domain.picture.entity.Picture;
+import com.demo.copicloud.domain.picture.entity.PictureObject;
+import com.demo.copicloud.domain.picture.entity.PictureTag;
+import com.demo.copicloud.domain.picture.repository.PictureObjectRepository;
 import com.demo.copicloud.domain.picture.repository.PictureRepository;
+import com.demo.copicloud.domain.picture.repository.PictureTagRepository;
 import com.demo.copicloud.domain.picture.service.PictureDomainService;
+import com.demo.copicloud.domain.picture.valueobject.PictureCountModeEnum;
+import com.demo.copicloud.domain.picture.valueobject.PictureCursor;
+import com.demo.copicloud.domain.picture.valueobject.PictureFetchJobStatusEnum;
 import com.demo.copicloud.domain.picture.valueobject.PictureReviewStatusEnum;
 import com.demo.copicloud.domain.space.entity.Space;
 import com.demo.copicloud.domain.space.repository.SpaceRepository;
@@ -21,23 +27,43 @@ import com.demo.copicloud.domain.user.service.UserDomainService;
 import com.demo.copicloud.infrastructure.api.AliyunAi.AliYunAiApi;
 import com.demo.copicloud.infrastructure.api.AliyunAi.modle.CreateOutPaintingTaskRequest;
 import com.demo.copicloud.infrastructure.api.AliyunAi.modle.CreateOutPaintingTaskResponse;
-import com.demo.copicloud.infrastructure.api.COS.CosApi;
 import com.demo.copicloud.infrastructure.api.ImageSearch.ImageSearchApiFacade;
 import com.demo.copicloud.infrastructure.api.ImageSearch.modle.ImageSearchResult;
 import com.demo.copicloud.infrastructure.constant.CommonConstant;
 import com.demo.copicloud.infrastructure.exception.BusinessException;
 import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.manager.cache.PictureCountManager;
+import com.demo.copicloud.infrastructure.manager.cache.PictureListCacheManager;
+import com.demo.copicloud.infrastructure.manager.color.PictureColorIndexManager;
+import com.demo.copicloud.infrastructure.manager.hash.PictureHashIndexManager;
+import com.demo.copicloud.infrastructure.manager.quota.SpaceQuotaManager;
+import com.demo.copicloud.infrastructure.manager.quota.SpaceUsageManager;
+import com.demo.copicloud.infrastructure.manager.rendition.PictureRenditionManager;
+import com.demo.copicloud.infrastructure.manager.sharing.PictureMigrationManager;
+import com.demo.copicloud.infrastructure.manager.storage.ObjectStorage;
+import com.demo.copicloud.infrastructure.manager.storage.PictureFileDeletionManager;
+import com.demo.copicloud.infrastructure.manager.upload.ChunkPictureUpload;
+import com.demo.copicloud.infrastructure.manager.upload.ChunkUploadManager;
+import com.demo.copicloud.infrastructure.manager.upload.ChunkUploadSession;
+import com.demo.copicloud.infrastructure.manager.upload.DirectPictureUpload;
+import com.demo.copicloud.infrastructure.manager.upload.DirectUploadManager;
+import com.demo.copicloud.infrastructure.manager.upload.DirectUploadSession;
 import com.demo.copicloud.infrastructure.manager.upload.FilePictureUpload;
+import com.demo.copicloud.infrastructure.manager.upload.PictureFetchJobManager;
 import com.demo.copicloud.infrastructure.manager.upload.PictureUploadTemplate;
 import com.demo.copicloud.infrastructure.manager.upload.UrlPictureUpload;
 import com.demo.copicloud.infrastructure.mapper.PictureMapper;
 import com.demo.copicloud.infrastructure.utils.ColorSimilarityUtil;
 import com.demo.copicloud.infrastructure.utils.ThrowUtils;
 import com.demo.copicloud.interfaces.dto.picture.*;
+import com.demo.copicloud.interfaces.vo.picture.ChunkUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.DirectUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureCursorPageVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureFetchJobVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureUploadResultVO;
 import com.demo.copicloud.interfaces.vo.picture.PictureVO;
 import com.demo.copicloud.interfaces.vo.user.UserVO;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -46,19 +72,20 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
 import org.springframework.beans.BeanUtils;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.springframework.util.DigestUtils;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -70,6 +97,92 @@ import java.util.stream.Collectors;
 @Service
 public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture> implements PictureDomainService {
 
+    /**
+     * 全文检索索引最多返回的 id 数量，超过时退化为 LIKE 查询
+     */
+    private static final int SEARCH_INDEX_MAX_HITS = 5000;
+
+    /**
+     * 标签关联表回填时每批处理的图片数
+     */
+    private static final int TAG_BACKFILL_BATCH_SIZE = 500;
+
+    /**
+     * 多文件上传单次最多文件数
+     */
+    private static final int MULTI_UPLOAD_MAX_FILES = 20;
+
+    /**
+     * 批量抓取时单个任务同时进行的下载上传数
+     */
+    private static final int FETCH_CONCURRENCY = 6;
+
+    /**
+     * 批量抓取时每批入库的图片数
+     */
+    private static final int FETCH_WRITE_BATCH_SIZE = 10;
+
+    /**
+     * 分片上传合并时持有的锁前缀，后接上传 id
+     */
+    private static final String CHUNK_UPLOAD_LOCK_KEY_PREFIX = "lock:chunkUpload:";
+
+    /**
+     * 完成直传时持有的锁前缀，后接上传 id
+     */
+    private static final String DIRECT_UPLOAD_LOCK_KEY_PREFIX = "lock:directUpload:";
+
+    /**
+     * 批量抓取任务的调度线程池，同时最多执行 2 个任务，排队已满时拒绝提交
+     */
+    private final ThreadPoolExecutor fetchJobExecutor =
+            new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(16),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "picture-fetch-job");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /**
+     * 批量抓取时校验、下载并上传图片的工作线程池，由调度线程控制每个任务的并发数
+     */
+    private final ThreadPoolExecutor fetchExecutor =
+            new ThreadPoolExecutor(2 * FETCH_CONCURRENCY, 2 * FETCH_CONCURRENCY, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(64),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "picture-fetch-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * 多文件上传时向对象存储并发上传的线程池，队列满时由请求线程自己上传，从而限制并发
+     */
+    private final ThreadPoolExecutor uploadExecutor =
+            new ThreadPoolExecutor(8, 8, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(64),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "picture-multi-upload");
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdownNow();
+        fetchJobExecutor.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 标签筛选和标签统计是否查询 picture_tag 关联表（历史数据回填完成后开启）
+     */
+    @Value("${picture.tag-relation.read-enabled:false}")
+    private boolean tagRelationReadEnabled;
+
     @Resource
     private UserDomainService UserDomainService;
 
@@ -82,9 +195,6 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
     @Resource
     private SpaceRepository spaceRepository;
 
-    @Resource
-    private CosApi cosApi;
-
     @Resource
     private AliYunAiApi aliYunAiApi;
 
@@ -94,19 +204,62 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
     @Resource
     private UrlPictureUpload urlPictureUpload;
 
+    @Resource
+    private ChunkPictureUpload chunkPictureUpload;
+
+    @Resource
+    private ChunkUploadManager chunkUploadManager;
+
+    @Resource
+    private DirectPictureUpload directPictureUpload;
+
+    @Resource
+    private DirectUploadManager directUploadManager;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
     @Resource
     private TransactionTemplate transactionTemplate;
 
     @Resource
-    private StringRedisTemplate stringRedisTemplate;
+    private PictureColorIndexManager pictureColorIndexManager;
 
-    private final Cache<String, String> LOCAL_CACHE =
-            Caffeine.newBuilder()
-                    .initialCapacity(1024) // 初始大小
-                    .maximumSize(10000L)
-                    // 缓存 5 分钟移除
-                    .expireAfterWrite(5L, TimeUnit.MINUTES)
-                    .build();
+    @Resource
+    private PictureHashIndexManager pictureHashIndexManager;
+
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+
+    @Resource
+    private PictureCountManager pictureCountManager;
+
+    @Resource
+    private PictureTagRepository pictureTagRepository;
+
+    @Resource
+    private PictureFetchJobManager pictureFetchJobManager;
+
+    @Resource
+    private PictureObjectRepository pictureObjectRepository;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private PictureRenditionManager pictureRenditionManager;
+
+    @Resource
+    private PictureFileDeletionManager pictureFileDeletionManager;
+
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+
+    @Resource
+    private SpaceUsageManager spaceUsageManager;
+
+    @Resource
+    private PictureMigrationManager pictureMigrationManager;
 
     /**
      * 上传图片 本地文件
@@ -123,27 +276,16 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         // 空间权限校验
         Long spaceId = pictureUploadRequest.getSpaceId();
         if (spaceId != null) {
-            Space space = spaceDomainService.getById(spaceId);
-            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
-            // 必须空间创建人（管理员）才能上传
-            if (!loginUser.getId().equals(space.getUserId())) {
-                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
-            }
-            // 校验额度
-            if (space.getTotalCount() >= space.getMaxCount()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
-            }
-            if (space.getTotalSize() >= space.getMaxSize()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
-            }
+            this.validUploadSpace(spaceId, loginUser);
         }
         // 2.判断业务类型是 更新 还是 新增图片
         // 获取 id （可以为空 表示新增）
         Long pictureId = pictureUploadRequest.getId();
+        Picture oldPicture = null;
         // 如果是更新，判断图片是否存在
         if (pictureId != null) {
             // 通过图片的id 对数据库进行查询 看是否存在
-            Picture oldPicture = pictureRepository.getById(pictureId);
+            oldPicture = pictureRepository.getById(pictureId);
             ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
             // 判断是否为当前用户或管理员上传的图片不是则抛异常
             if (!oldPicture.getUserId().equals(loginUser.getId()) && !loginUser.isAdmin()) {
@@ -162,9 +304,6 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
                     throw new BusinessException(ErrorCode.PARAMS_ERROR, "空间 id 不一致");
                 }
             }
-            // 若校验都无问题 则视为更新操作 如果是更新则需要删除原缩略图
-            this.clearPictureFile(oldPicture);
-            System.out.println("开始执行清理缩略图操作");
         }
         // 3.上传图片 根据用户 id 规划上传路径
         String uploadPathPrefix;
@@ -173,12 +312,58 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         } else {
             uploadPathPrefix = String.format("space/%s", spaceId);
         }
+        // 原子地预留空间额度，并发上传不会超出上限；入库后确认，失败时释放
+        Long finalSpaceId = spaceId;
+        String quotaReservation = null;
+        if (finalSpaceId != null) {
+            quotaReservation = spaceQuotaManager.reserve(finalSpaceId, this.estimatePictureSize(inputSource), 1);
+        }
+        Picture picture;
+        try {
+            picture = this.uploadAndSavePicture(inputSource, pictureUploadRequest, loginUser, pictureId,
+                    finalSpaceId, uploadPathPrefix);
+        } catch (RuntimeException e) {
+            spaceQuotaManager.release(finalSpaceId, quotaReservation);
+            throw e;
+        }
+        if (finalSpaceId != null) {
+            spaceQuotaManager.commit(finalSpaceId, quotaReservation, picture.getPicSize(), 1);
+        }
+        // 同步空间颜色索引
+        pictureColorIndexManager.upsert(finalSpaceId, picture.getId(), picture.getPicColor());
+        // 同步空间感知哈希索引
+        pictureHashIndexManager.upsert(finalSpaceId, picture.getId(), picture.getPicHash());
+        // 调整图片数量缓存
+        pictureCountManager.onChange(oldPicture, picture);
+        // 同步全文检索索引
+        pictureRepository.refreshSearchIndex(finalSpaceId, picture.getId());
+        // 失效所属范围的列表缓存
+        pictureListCacheManager.bumpVersion(finalSpaceId);
+        // 如果是更新则在新图片入库后清理原图片文件（内容相同时只减少引用数）
+        if (oldPicture != null) {
+            this.clearPictureFile(oldPicture);
+        }
+        // 5. 上传成功则返回图片信息
+        return PictureVO.objToVo(picture);
+    }
+
+    /**
+     * 上传图片到对象存储，并在事务中入库、更新空间用量
+     */
+    private Picture uploadAndSavePicture(Object inputSource, PictureUploadRequest pictureUploadRequest,
+                                         User loginUser, Long pictureId, Long spaceId, String uploadPathPrefix) {
         // 根据 inputSource 类型区分上传方式
         // 根据输入源类型，选择不同的上传模板 默认是 filePictureUpload 类型
         PictureUploadTemplate pictureUploadTemplate = filePictureUpload;
         // 如果输入源是字符串类型的实例 而非文件类型 则使用 urlPictureUpload 类型
         if (inputSource instanceof String) {
             pictureUploadTemplate = urlPictureUpload;
+        } else if (inputSource instanceof ChunkUploadSession) {
+            // 分片上传合并后的大图
+            pictureUploadTemplate = chunkPictureUpload;
+        } else if (inputSource instanceof DirectUploadSession) {
+            // 客户端已直传到对象存储的图片
+            pictureUploadTemplate = directPictureUpload;
         }
         // 使用选择的模板上传图片
         UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
@@ -194,33 +379,419 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
             picName = pictureUploadRequest.getPicName();
         }
         picture.setName(picName);
+        // 空间图片迁移切换期间禁止写入
+        pictureMigrationManager.checkWritable(spaceId);
         // 开启事务
-        Long finalSpaceId = spaceId;
         transactionTemplate.execute(status -> {
             boolean result = pictureRepository.saveOrUpdate(picture);
             ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败");
-            if (finalSpaceId != null) {
-                boolean update = spaceRepository.lambdaUpdate()
-                        .eq(Space::getId, finalSpaceId)
-                        .setSql("totalSize = totalSize + " + picture.getPicSize())
-                        .setSql("totalCount = totalCount + 1")
-                        .update();
-                ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
-            }
+            // 增加存储对象的引用数
+            this.acquirePictureObject(uploadPictureResult.getContentHash());
             return picture;
         });
-        // 5. 上传成功则返回图片信息
-        return PictureVO.objToVo(picture);
+        // 事务提交后累加空间用量，批量写回数据库
+        spaceUsageManager.record(spaceId, picture.getPicSize(), 1);
+        return picture;
+    }
+
+    /**
+     * 预估上传图片的大小，用于预留空间额度（无法预知时返回 0）
+     */
+    private long estimatePictureSize(Object inputSource) {
+        if (inputSource instanceof MultipartFile multipartFile) {
+            return multipartFile.getSize();
+        }
+        if (inputSource instanceof ChunkUploadSession chunkUploadSession) {
+            return chunkUploadSession.getFileSize();
+        }
+        return 0L;
+    }
+
+    /**
+     * 并发上传多个本地文件
+     * 空间只校验一次，文件并发上传到对象存储，成功的图片一次性批量入库并合并更新空间额度
+     */
+    @Override
+    public List<PictureUploadResultVO> uploadPictures(List<MultipartFile> files, PictureUploadRequest pictureUploadRequest,
+                                                      User loginUser) {
+        // 1.校验
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(CollUtil.isEmpty(files), ErrorCode.PARAMS_ERROR, "文件不能为空");
+        ThrowUtils.throwIf(files.size() > MULTI_UPLOAD_MAX_FILES, ErrorCode.PARAMS_ERROR,
+                "一次最多上传 " + MULTI_UPLOAD_MAX_FILES + " 张图片");
+        ThrowUtils.throwIf(pictureUploadRequest.getId() != null, ErrorCode.PARAMS_ERROR, "批量上传不支持更新图片");
+        Long spaceId = pictureUploadRequest.getSpaceId();
+        String quotaReservation = null;
+        if (spaceId != null) {
+            this.validUploadSpace(spaceId, loginUser);
+            // 按整批文件预留额度
+            long totalFileSize = files.stream().mapToLong(MultipartFile::getSize).sum();
+            quotaReservation = spaceQuotaManager.reserve(spaceId, totalFileSize, files.size());
+        }
+        try {
+            return this.doUploadPictures(files, pictureUploadRequest, loginUser, spaceId, quotaReservation);
+        } catch (RuntimeException e) {
+            spaceQuotaManager.release(spaceId, quotaReservation);
+            throw e;
+        }
+    }
+
+    /**
+     * 并发上传到对象存储并批量入库，入库后确认预留的额度
+     */
+    private List<PictureUploadResultVO> doUploadPictures(List<MultipartFile> files,
+                                                         PictureUploadRequest pictureUploadRequest, User loginUser,
+                                                         Long spaceId, String quotaReservation) {
+        String uploadPathPrefix;
+        if (spaceId == null) {
+            uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        } else {
+            uploadPathPrefix = String.format("space/%s", spaceId);
+        }
+
+        // 2.并发上传到对象存储
+        List<CompletableFuture<UploadPictureResult>> futureList = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(
+                        () -> filePictureUpload.uploadPicture(file, uploadPathPrefix), uploadExecutor))
+                .toList();
+
+        // 3.汇总每个文件的结果
+        List<PictureUploadResultVO> resultList = new ArrayList<>(files.size());
+        List<Picture> pictureList = new ArrayList<>();
+        List<String> contentHashList = new ArrayList<>();
+        List<PictureUploadResultVO> successResultList = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            PictureUploadResultVO uploadResultVO = new PictureUploadResultVO();
+            uploadResultVO.setFileName(files.get(i).getOriginalFilename());
+            resultList.add(uploadResultVO);
+            try {
+                UploadPictureResult uploadPictureResult = futureList.get(i).join();
+                Picture picture = this.getPicture(loginUser, uploadPictureResult, null);
+                picture.setUrl(uploadPictureResult.getUrl());
+                picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+                picture.setSpaceId(spaceId);
+                if (StrUtil.isNotBlank(pictureUploadRequest.getPicName())) {
+                    picture.setName(pictureUploadRequest.getPicName());
+                }
+                pictureList.add(picture);
+                contentHashList.add(uploadPictureResult.getContentHash());
+                successResultList.add(uploadResultVO);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                log.error("图片上传失败, fileName = {}", uploadResultVO.getFileName(), cause);
+                uploadResultVO.setSuccess(false);
+                uploadResultVO.setMessage(cause instanceof BusinessException ? cause.getMessage() : "上传失败");
+            }
+        }
+        if (pictureList.isEmpty()) {
+            spaceQuotaManager.release(spaceId, quotaReservation);
+            return resultList;
+        }
+
+        // 4.一次性入库并合并更新空间额度
+        long totalPicSize = pictureList.stream().mapToLong(Picture::getPicSize).sum();
+        pictureMigrationManager.checkWritable(spaceId);
+        transactionTemplate.execute(status -> {
+            boolean result = pictureRepository.saveBatch(pictureList);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败");
+            contentHashList.forEach(this::acquirePictureObject);
+            return true;
+        });
+        // 事务提交后累加空间用量，批量写回数据库
+        spaceUsageManager.record(spaceId, totalPicSize, pictureList.size());
+        if (spaceId != null) {
+            spaceQuotaManager.commit(spaceId, quotaReservation, totalPicSize, pictureList.size());
+        }
+        for (int i = 0; i < pictureList.size(); i++) {
+            Picture picture = pictureList.get(i);
+            // 同步空间颜色索引和感知哈希索引
+            pictureColorIndexManager.upsert(spaceId, picture.getId(), picture.getPicColor());
+            pictureHashIndexManager.upsert(spaceId, picture.getId(), picture.getPicHash());
+            // 同步全文检索索引
+            pictureRepository.refreshSearchIndex(spaceId, picture.getId());
+            PictureUploadResultVO uploadResultVO = successResultList.get(i);
+            uploadResultVO.setSuccess(true);
+            uploadResultVO.setPicture(PictureVO.objToVo(picture));
+        }
+        // 调整图片数量缓存
+        pictureCountManager.onChange(Collections.emptyList(), pictureList);
+        // 失效所属范围的列表缓存
+        pictureListCacheManager.bumpVersion(spaceId);
+        return resultList;
     }
 
     /**
-     * 上传图片 批量抓取并上传
+     * 上传图片 批量抓取并上传（同步执行，等待整个任务结束）
      *
      * @param pictureUploadByBatchRequest 图片抓取请求
      * @param loginUser                   登录用户
      */
     @Override
     public Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+        this.validPictureFetchRequest(pictureUploadByBatchRequest);
+        String jobId = pictureFetchJobManager.createJob(pictureUploadByBatchRequest.getCount());
+        return this.executePictureFetchJob(jobId, pictureUploadByBatchRequest, loginUser);
+    }
+
+    /**
+     * 提交批量抓取任务，后台执行
+     *
+     * @param pictureUploadByBatchRequest 图片抓取请求
+     * @param loginUser                   登录用户
+     * @return 任务 id
+     */
+    @Override
+    public String submitPictureFetchJob(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+        this.validPictureFetchRequest(pictureUploadByBatchRequest);
+        String jobId = pictureFetchJobManager.createJob(pictureUploadByBatchRequest.getCount());
+        try {
+            fetchJobExecutor.execute(() -> {
+                try {
+                    this.executePictureFetchJob(jobId, pictureUploadByBatchRequest, loginUser);
+                } catch (Exception e) {
+                    // 失败原因已记录在任务进度中
+                    log.error("批量抓取任务失败, jobId = {}", jobId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pictureFetchJobManager.finishJob(jobId, PictureFetchJobStatusEnum.FAILED, "抓取任务过多");
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "抓取任务过多，请稍后再试");
+        }
+        return jobId;
+    }
+
+    /**
+     * 查询批量抓取任务进度
+     *
+     * @param jobId 任务 id
+     */
+    @Override
+    public PictureFetchJobVO getPictureFetchJob(String jobId) {
+        ThrowUtils.throwIf(StrUtil.isBlank(jobId), ErrorCode.PARAMS_ERROR, "任务 id 不能为空");
+        PictureFetchJobVO pictureFetchJobVO = pictureFetchJobManager.getJob(jobId);
+        ThrowUtils.throwIf(pictureFetchJobVO == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在或已过期");
+        return pictureFetchJobVO;
+    }
+
+    /**
+     * 初始化分片上传
+     *
+     * @param chunkUploadInitRequest 初始化请求
+     * @param loginUser              登录用户
+     * @return 上传 id 和分片规划
+     */
+    @Override
+    public ChunkUploadVO initChunkUpload(ChunkUploadInitRequest chunkUploadInitRequest, User loginUser) {
+        ThrowUtils.throwIf(chunkUploadInitRequest == null, ErrorCode.PARAMS_ERROR);
+        ChunkUploadSession session = chunkUploadManager.createUpload(loginUser.getId(),
+                chunkUploadInitRequest.getFileName(),
+                chunkUploadInitRequest.getFileSize(),
+                chunkUploadInitRequest.getPartSize());
+        return chunkUploadManager.toVO(session);
+    }
+
+    /**
+     * 上传一个分片
+     *
+     * @param uploadId   上传 id
+     * @param partNumber 分片序号（从 1 开始）
+     * @param file       分片内容
+     * @param loginUser  登录用户
+     */
+    @Override
+    public void uploadChunkPart(String uploadId, Integer partNumber, MultipartFile file, User loginUser) {
+        ChunkUploadSession session = this.getChunkUploadSession(uploadId, loginUser);
+        chunkUploadManager.uploadPart(session, partNumber, file);
+    }
+
+    /**
+     * 查询分片上传进度（用于断点续传）
+     *
+     * @param uploadId  上传 id
+     * @param loginUser 登录用户
+     */
+    @Override
+    public ChunkUploadVO getChunkUpload(String uploadId, User loginUser) {
+        return chunkUploadManager.toVO(this.getChunkUploadSession(uploadId, loginUser));
+    }
+
+    /**
+     * 完成分片上传：合并分片并按普通上传流程处理和入库
+     *
+     * @param chunkUploadCompleteRequest 完成请求
+     * @param loginUser                  登录用户
+     * @return 图片信息
+     */
+    @Override
+    public PictureVO completeChunkUpload(ChunkUploadCompleteRequest chunkUploadCompleteRequest, User loginUser) {
+        ThrowUtils.throwIf(chunkUploadCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        String uploadId = chunkUploadCompleteRequest.getUploadId();
+        ChunkUploadSession session = this.getChunkUploadSession(uploadId, loginUser);
+        ThrowUtils.throwIf(!session.isAllPartsUploaded(), ErrorCode.PARAMS_ERROR, "还有分片未上传");
+        // 同一上传只允许合并一次
+        RLock lock = redissonClient.getLock(CHUNK_UPLOAD_LOCK_KEY_PREFIX + uploadId);
+        ThrowUtils.throwIf(!lock.tryLock(), ErrorCode.OPERATION_ERROR, "上传正在处理中");
+        try {
+            // 加锁后重新读取，避免另一个请求已完成合并
+            session = chunkUploadManager.getUpload(uploadId);
+            ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "上传不存在或已过期");
+            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+            pictureUploadRequest.setId(chunkUploadCompleteRequest.getId());
+            pictureUploadRequest.setSpaceId(chunkUploadCompleteRequest.getSpaceId());
+            pictureUploadRequest.setPicName(chunkUploadCompleteRequest.getPicName());
+            PictureVO pictureVO = this.uploadPicture(session, pictureUploadRequest, loginUser);
+            // 入库成功后才清理分片，失败时可以修正参数后重试
+            chunkUploadManager.finishUpload(session);
+            return pictureVO;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 申请直传：签发预签名上传地址，客户端直接上传到对象存储
+     *
+     * @param directUploadRequest 申请直传请求
+     * @param loginUser           登录用户
+     * @return 直传凭证
+     */
+    @Override
+    public DirectUploadVO createDirectUpload(DirectUploadRequest directUploadRequest, User loginUser) {
+        ThrowUtils.throwIf(directUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        Long spaceId = directUploadRequest.getSpaceId();
+        Long pictureId = directUploadRequest.getId();
+        // 更新图片时沿用原图片的空间，完成时再按常规上传流程完整校验
+        if (pictureId != null) {
+            Picture oldPicture = pictureRepository.getById(pictureId);
+            ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+            if (!oldPicture.getUserId().equals(loginUser.getId()) && !loginUser.isAdmin()) {
+                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有权限");
+            }
+            if (spaceId == null) {
+                spaceId = oldPicture.getSpaceId();
+            }
+        }
+        String uploadPathPrefix;
+        if (spaceId == null) {
+            uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        } else {
+            this.validUploadSpace(spaceId, loginUser);
+            // 提前拦截额度不足的直传，完成时再正式预留
+            Long fileSize = directUploadRequest.getFileSize();
+            spaceQuotaManager.checkAvailable(spaceId, fileSize == null ? 0L : fileSize, 1);
+            uploadPathPrefix = String.format("space/%s", spaceId);
+        }
+        return directUploadManager.createUpload(loginUser.getId(), spaceId, pictureId,
+                directUploadRequest.getFileName(), directUploadRequest.getFileSize(), uploadPathPrefix);
+    }
+
+    /**
+     * 完成直传：处理已上传的图片、扣减额度并入库
+     *
+     * @param directUploadCompleteRequest 完成直传请求
+     * @param loginUser                   登录用户
+     * @return 图片信息
+     */
+    @Override
+    public PictureVO completeDirectUpload(DirectUploadCompleteRequest directUploadCompleteRequest, User loginUser) {
+        ThrowUtils.throwIf(directUploadCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        String uploadId = directUploadCompleteRequest.getUploadId();
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR, "上传 id 不能为空");
+        // 同一上传只允许完成一次
+        RLock lock = redissonClient.getLock(DIRECT_UPLOAD_LOCK_KEY_PREFIX + uploadId);
+        ThrowUtils.throwIf(!lock.tryLock(), ErrorCode.OPERATION_ERROR, "上传正在处理中");
+        try {
+            DirectUploadSession session = directUploadManager.getUpload(uploadId);
+            ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "上传不存在或已过期");
+            ThrowUtils.throwIf(!session.getUserId().equals(loginUser.getId()), ErrorCode.NO_AUTH_ERROR);
+            ThrowUtils.throwIf(directUploadCompleteRequest.getSpaceId() != null
+                            && ObjUtil.notEqual(directUploadCompleteRequest.getSpaceId(), session.getSpaceId()),
+                    ErrorCode.PARAMS_ERROR, "空间 id 不一致");
+            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+            pictureUploadRequest.setId(session.getPictureId());
+            pictureUploadRequest.setSpaceId(session.getSpaceId());
+            pictureUploadRequest.setPicName(directUploadCompleteRequest.getPicName());
+            PictureVO pictureVO = this.uploadPicture(session, pictureUploadRequest, loginUser);
+            // 图片使用的是处理后的文件（数据万象压缩图或按常规流程另存的文件）时，直传的原文件不再需要
+            String pictureKey = objectStorage.getKey(pictureVO.getUrl());
+            directUploadManager.finishUpload(session, pictureKey.equals(session.getKey()));
+            return pictureVO;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 校验当前用户能否向空间上传图片（必须是空间创建人），额度由 SpaceQuotaManager 预留时校验
+     */
+    private void validUploadSpace(Long spaceId, User loginUser) {
+        Space space = spaceDomainService.getById(spaceId);
+        ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+        // 必须空间创建人（管理员）才能上传
+        if (!loginUser.getId().equals(space.getUserId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
+        }
+    }
+
+    /**
+     * 获取分片上传会话并校验归属
+     */
+    private ChunkUploadSession getChunkUploadSession(String uploadId, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR, "上传 id 不能为空");
+        ChunkUploadSession session = chunkUploadManager.getUpload(uploadId);
+        ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "上传不存在或已过期");
+        ThrowUtils.throwIf(!session.getUserId().equals(loginUser.getId()), ErrorCode.NO_AUTH_ERROR);
+        return session;
+    }
+
+    /**
+     * 校验批量抓取请求
+     */
+    private void validPictureFetchRequest(PictureUploadByBatchRequest pictureUploadByBatchRequest) {
+        ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(StrUtil.isBlank(pictureUploadByBatchRequest.getSearchText()), ErrorCode.PARAMS_ERROR,
+                "搜索词不能为空");
+        // 获取上传的图片数量，最大支持30张
+        Integer count = pictureUploadByBatchRequest.getCount();
+        ThrowUtils.throwIf(count == null || count <= 0, ErrorCode.PARAMS_ERROR, "抓取数量不合法");
+        // 如果请求的数量大于30，则抛出参数错误异常
+        ThrowUtils.throwIf(count > 30, ErrorCode.PARAMS_ERROR, "最多 30 条");
+    }
+
+    /**
+     * 执行批量抓取任务并记录最终状态
+     *
+     * @return 成功入库的图片数量
+     */
+    private int executePictureFetchJob(String jobId, PictureUploadByBatchRequest pictureUploadByBatchRequest,
+                                       User loginUser) {
+        try {
+            int uploadCount = this.runPictureFetchPipeline(jobId, pictureUploadByBatchRequest, loginUser);
+            pictureFetchJobManager.finishJob(jobId, PictureFetchJobStatusEnum.SUCCEED, null);
+            return uploadCount;
+        } catch (BusinessException e) {
+            pictureFetchJobManager.finishJob(jobId, PictureFetchJobStatusEnum.FAILED, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            pictureFetchJobManager.finishJob(jobId, PictureFetchJobStatusEnum.FAILED, "抓取失败");
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "抓取失败");
+        }
+    }
+
+    /**
+     * 批量抓取流水线
+     * 1. 抓取页面得到候选图片地址
+     * 2. 有限并发地校验、下载并上传到对象存储，成功数加进行中的任务数达到目标数量后不再提交新任务
+     * 3. 上传成功的图片攒够一批后批量入库
+     *
+     * @return 成功入库的图片数量
+     */
+    private int runPictureFetchPipeline(String jobId, PictureUploadByBatchRequest pictureUploadByBatchRequest,
+                                        User loginUser) {
         // 获取搜索关键字，即用户请求的图片搜索文本
         String searchText = pictureUploadByBatchRequest.getSearchText();
         // 从请求中获取图片名称前缀
@@ -228,16 +799,77 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         if (StrUtil.isBlank(namePrefix)) {
             namePrefix = searchText;
         }
+        int count = pictureUploadByBatchRequest.getCount();
+
+        // 1. 生产候选图片地址
+        List<String> candidateUrlList = this.fetchPictureUrls(searchText);
+        pictureFetchJobManager.setCandidateCount(jobId, candidateUrlList.size());
+
+        // 2. 并发上传
+        String uploadPathPrefix = String.format("public/%s", loginUser.getId());
+        CompletionService<UploadPictureResult> completionService = new ExecutorCompletionService<>(fetchExecutor);
+        Iterator<String> candidateIterator = candidateUrlList.iterator();
+        List<Picture> bufferList = new ArrayList<>();
+        List<String> bufferContentHashList = new ArrayList<>();
+        int uploadCount = 0;
+        int savedCount = 0;
+        int inFlight = 0;
+        while (true) {
+            while (inFlight < FETCH_CONCURRENCY && uploadCount + inFlight < count && candidateIterator.hasNext()) {
+                String fileUrl = candidateIterator.next();
+                completionService.submit(() -> urlPictureUpload.uploadPicture(fileUrl, uploadPathPrefix));
+                inFlight++;
+            }
+            if (inFlight == 0) {
+                break;
+            }
+            Future<UploadPictureResult> future;
+            try {
+                future = completionService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "抓取任务被中断");
+            }
+            inFlight--;
+            try {
+                UploadPictureResult uploadPictureResult = future.get();
+                Picture picture = this.getPicture(loginUser, uploadPictureResult, null);
+                picture.setUrl(uploadPictureResult.getUrl());
+                picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+                if (StrUtil.isNotBlank(namePrefix)) {
+                    // 设置图片名称，序号连续递增
+                    picture.setName(namePrefix + (uploadCount + 1));
+                }
+                bufferList.add(picture);
+                bufferContentHashList.add(uploadPictureResult.getContentHash());
+                uploadCount++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "抓取任务被中断");
+            } catch (ExecutionException e) {
+                // 上传失败则记录错误并跳过当前图片
+                log.error("图片上传失败, jobId = {}", jobId, e.getCause());
+                pictureFetchJobManager.incrementFailCount(jobId);
+            }
+            // 3. 攒够一批或没有进行中的任务时入库
+            if (bufferList.size() >= FETCH_WRITE_BATCH_SIZE || (inFlight == 0 && !bufferList.isEmpty())) {
+                this.saveFetchedPictures(bufferList, bufferContentHashList);
+                pictureFetchJobManager.incrementSuccessCount(jobId, bufferList.size());
+                savedCount += bufferList.size();
+                bufferList.clear();
+                bufferContentHashList.clear();
+            }
+        }
+        log.info("批量抓取任务结束, jobId = {}, 入库数量 = {}", jobId, savedCount);
+        return savedCount;
+    }
 
-        // 获取上传的图片数量，最大支持30张
-        Integer count = pictureUploadByBatchRequest.getCount();
-        // 如果请求的数量大于30，则抛出参数错误异常
-        ThrowUtils.throwIf(count > 30, ErrorCode.PARAMS_ERROR, "最多 30 条");
-
+    /**
+     * 抓取 Bing 图片搜索页面，返回候选图片地址（已去掉查询参数）
+     */
+    private List<String> fetchPictureUrls(String searchText) {
         // 格式化要抓取的图片地址，构建 Bing 图片搜索 URL
         String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
-
-        // 初始化 Jsoup Document 对象，用于抓取网页内容
         Document document;
         try {
             // 通过 Jsoup 连接并抓取网页内容
@@ -247,62 +879,50 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
             log.error("获取页面失败", e);
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
         }
-
         // 获取包含图片的 HTML 元素（根据 CSS 类名 dgControl 获取）
         Element div = document.getElementsByClass("dgControl").first();
-
         // 如果未找到该元素，则抛出获取元素失败的异常
         if (ObjUtil.isNull(div)) {
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取元素失败");
         }
-
         // 获取所有图片元素（根据 class 名称 mimg 获取）
         Elements imgElementList = div.select("img.mimg");
-
-        int uploadCount = 0; // 记录已上传的图片数量
-
-        // 遍历图片元素列表，依次上传
+        List<String> candidateUrlList = new ArrayList<>(imgElementList.size());
         for (Element imgElement : imgElementList) {
             // 获取图片的 src 属性，即图片的 URL
             String fileUrl = imgElement.attr("src");
-
             // 如果图片 URL 为空，则跳过当前图片
             if (StrUtil.isBlank(fileUrl)) {
                 log.info("当前链接为空，已跳过: {}", fileUrl);
                 continue;
             }
-
             // 处理图片上传地址，去掉 URL 中的查询参数（即 "?" 后面的部分）
             int questionMarkIndex = fileUrl.indexOf("?");
             if (questionMarkIndex > -1) {
                 fileUrl = fileUrl.substring(0, questionMarkIndex);
             }
-
-            // 创建图片上传请求对象
-            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-            try {
-                // 调用 uploadPicture 方法上传图片
-                if (StrUtil.isNotBlank(namePrefix)) {
-                    // 设置图片名称，序号连续递增
-                    pictureUploadRequest.setPicName(namePrefix + (uploadCount + 1));
-                }
-                PictureVO pictureVO = this.uploadPicture(fileUrl, pictureUploadRequest, loginUser);
-                log.info("图片上传成功, id = {}", pictureVO.getId());
-                uploadCount++; // 上传成功则增加上传计数
-            } catch (Exception e) {
-                // 如果上传失败，记录错误并跳过当前图片
-                log.error("图片上传失败", e);
-                continue;
-            }
-
-            // 如果已上传的图片数量达到用户指定的数量，则停止上传
-            if (uploadCount >= count) {
-                break;
-            }
+            candidateUrlList.add(fileUrl);
         }
+        return candidateUrlList;
+    }
 
-        // 返回实际上传的图片数量
-        return uploadCount;
+    /**
+     * 批量保存抓取到的公共图库图片并同步索引和缓存
+     */
+    private void saveFetchedPictures(List<Picture> pictureList, List<String> contentHashList) {
+        transactionTemplate.execute(status -> {
+            boolean result = pictureRepository.saveBatch(pictureList);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片入库失败");
+            contentHashList.forEach(this::acquirePictureObject);
+            return true;
+        });
+        for (Picture picture : pictureList) {
+            pictureColorIndexManager.upsert(null, picture.getId(), picture.getPicColor());
+            pictureHashIndexManager.upsert(null, picture.getId(), picture.getPicHash());
+            pictureRepository.refreshSearchIndex(null, picture.getId());
+        }
+        pictureCountManager.onChange(Collections.emptyList(), new ArrayList<>(pictureList));
+        pictureListCacheManager.bumpVersion(null);
     }
 
     /**
@@ -328,9 +948,20 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
         // 补充审核参数
         this.fillReviewParams(picture, loginUser);
-        // 操作数据库
-        boolean result = pictureRepository.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        pictureMigrationManager.checkWritable(oldPicture.getSpaceId());
+        // 操作数据库，标签关联与图片在同一事务中更新
+        transactionTemplate.execute(status -> {
+            boolean result = pictureRepository.updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            pictureTagRepository.replaceTags(id, oldPicture.getSpaceId(), pictureEditRequest.getTags());
+            return true;
+        });
+        // 调整图片数量缓存
+        pictureCountManager.onChange(oldPicture, picture);
+        // 同步全文检索索引
+        pictureRepository.refreshSearchIndex(oldPicture.getSpaceId(), id);
+        // 失效所属范围的列表缓存
+        pictureListCacheManager.bumpVersion(oldPicture.getSpaceId());
     }
 
     /**
@@ -348,23 +979,31 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         if (!oldPicture.getUserId().equals(loginUser.getId()) && !loginUser.isAdmin()) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
         }
+        pictureMigrationManager.checkWritable(oldPicture.getSpaceId());
         // 开启事务
         transactionTemplate.execute(status -> {
             // 操作数据库
             boolean result = pictureRepository.removeById(pictureId);
             ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
-            // 释放额度
-            Long spaceId = oldPicture.getSpaceId();
-            if (spaceId != null) {
-                boolean update = spaceRepository.lambdaUpdate()
-                        .eq(Space::getId, spaceId)
-                        .setSql("totalSize = totalSize - " + oldPicture.getPicSize())
-                        .setSql("totalCount = totalCount - 1")
-                        .update();
-                ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
-            }
+            // 删除标签关联
+            pictureTagRepository.removeByPictureId(pictureId);
             return true;
         });
+        // 释放额度：累加空间用量并归还 Redis 中的空间额度
+        spaceUsageManager.record(oldPicture.getSpaceId(), -oldPicture.getPicSize(), -1);
+        if (oldPicture.getSpaceId() != null) {
+            spaceQuotaManager.adjustUsage(oldPicture.getSpaceId(), -oldPicture.getPicSize(), -1);
+        }
+        // 同步空间颜色索引
+        pictureColorIndexManager.remove(oldPicture.getSpaceId(), pictureId);
+        // 同步空间感知哈希索引
+        pictureHashIndexManager.remove(oldPicture.getSpaceId(), pictureId);
+        // 调整图片数量缓存
+        pictureCountManager.onChange(oldPicture, null);
+        // 同步全文检索索引
+        pictureRepository.refreshSearchIndex(oldPicture.getSpaceId(), pictureId);
+        // 失效所属范围的列表缓存
+        pictureListCacheManager.bumpVersion(oldPicture.getSpaceId());
         // 异步清理文件
         this.clearPictureFile(oldPicture);
     }
@@ -384,6 +1023,46 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         return ImageSearchApiFacade.searchImage(picture.getThumbnailUrl());
     }
 
+    /**
+     * 查找相似（近似重复）图片
+     * 基于上传时计算的感知哈希，在本地 BK 树中按汉明距离查找，不依赖外部以图搜图接口
+     *
+     * @param searchRequest 搜索请求
+     */
+    @Override
+    public List<PictureVO> searchSimilarPicture(SearchSimilarPictureRequest searchRequest) {
+        Long pictureId = searchRequest.getPictureId();
+        ThrowUtils.throwIf(pictureId == null || pictureId <= 0, ErrorCode.PARAMS_ERROR);
+        int maxDistance = ObjUtil.defaultIfNull(searchRequest.getMaxDistance(), 10);
+        int topK = ObjUtil.defaultIfNull(searchRequest.getTopK(), 10);
+        ThrowUtils.throwIf(maxDistance < 0 || maxDistance > 32, ErrorCode.PARAMS_ERROR, "汉明距离需在 0-32 之间");
+        ThrowUtils.throwIf(topK <= 0 || topK > 50, ErrorCode.PARAMS_ERROR, "返回数量需在 1-50 之间");
+        Picture picture = pictureRepository.getById(pictureId);
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        ThrowUtils.throwIf(picture.getPicHash() == null, ErrorCode.OPERATION_ERROR, "该图片暂无指纹信息");
+        // 在同一空间（或公共图库）内查找，多取一条用于排除自身
+        List<Long> pictureIds = pictureHashIndexManager.searchSimilar(picture.getSpaceId(),
+                        picture.getPicHash(), maxDistance, topK + 1)
+                .stream()
+                .filter(id -> !id.equals(pictureId))
+                .limit(topK)
+                .toList();
+        if (CollUtil.isEmpty(pictureIds)) {
+            return Collections.emptyList();
+        }
+        Map<Long, Picture> pictureMap = pictureRepository.listByIds(pictureIds)
+                .stream()
+                .collect(Collectors.toMap(Picture::getId, p -> p));
+        // 公共图库只返回已过审的图片（索引中可能有本节点新上传、尚未审核的图片）
+        boolean publicScope = picture.getSpaceId() == null;
+        return pictureIds.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
+                .filter(p -> !publicScope || Integer.valueOf(PictureReviewStatusEnum.PASS.getValue()).equals(p.getReviewStatus()))
+                .map(PictureVO::objToVo)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 颜色搜图
      *
@@ -406,30 +1085,32 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         if (!space.getUserId().equals(loginUser.getId())) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问");
         }
-        // 首先需要查询出空间内所有 picColor 不为空的字段 并返回一个图片的集合
-        List<Picture> pictureList = pictureRepository.lambdaQuery()
-                .eq(Picture::getSpaceId, spaceId)
-                .isNotNull(Picture::getPicColor)
-                .list();
+        // 返回数量，默认取最相似的 2 张
+        int topK = ObjUtil.defaultIfNull(searchRequest.getTopK(), 2);
+        ThrowUtils.throwIf(topK <= 0 || topK > 50, ErrorCode.PARAMS_ERROR, "返回数量需在 1-50 之间");
+        // 取出最相似的图片 id（已按相似度降序）
+        List<Long> pictureIds;
+        if (searchRequest.isRealtime()) {
+            // 实时模式：流式扫描 id + picColor 两列，仅保留 TopK
+            int targetRgb = ColorSimilarityUtil.parseRgb(color);
+            ThrowUtils.throwIf(targetRgb < 0, ErrorCode.PARAMS_ERROR, "颜色格式错误");
+            pictureIds = pictureRepository.listIdsByNearestColor(spaceId, targetRgb, topK);
+        } else {
+            // 默认走空间颜色索引
+            pictureIds = pictureColorIndexManager.searchNearest(spaceId, color, topK);
+        }
         // 若集合为空则直接返回
-        if (CollUtil.isEmpty(pictureList)) {
+        if (CollUtil.isEmpty(pictureIds)) {
             return Collections.emptyList();
         }
-        // 遍历集合 获取所有图片的 picColor 字段 然后与当前的图片颜色进行比对
-        List<Picture> pictures = pictureList.stream()
-                .sorted(Comparator.comparingDouble(picture -> {
-                    // 计算相似度
-                    String picColor = picture.getPicColor();
-                    if (StrUtil.isBlank(picColor)) {
-                        return Double.MAX_VALUE;
-                    }
-                    // 越大越相似 负为降序排列
-                    return -ColorSimilarityUtil.calculateColorSimilarity(color, picColor);
-                }))
-                .limit(2)
-                .toList();
+        // 仅回表查询这 K 条记录，并按索引给出的顺序排列
+        Map<Long, Picture> pictureMap = pictureRepository.listByIds(pictureIds)
+                .stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
         // 脱敏后进行返回
-        return pictures.stream()
+        return pictureIds.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
                 .map(PictureVO::objToVo)
                 .collect(Collectors.toList());
     }
@@ -450,6 +1131,7 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         List<String> tags = pictureEditByBatchRequest.getTags();
         ThrowUtils.throwIf(spaceId == null && CollUtil.isEmpty(pictureIds), ErrorCode.PARAMS_ERROR);
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        this.validTags(tags);
         // 校验空间权限
         Space space = spaceRepository.getById(spaceId);
         ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
@@ -459,7 +1141,7 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         }
         // 查询空间中指定 id 列表的字段信息
         List<Picture> pictureList = pictureRepository.lambdaQuery()
-                .select(Picture::getId, Picture::getSpaceId) // 仅查询 id 和 space_id 字段
+                .select(Picture::getId, Picture::getSpaceId, Picture::getCategory) // 仅查询 id、space_id 和分类字段
                 .eq(Picture::getSpaceId, spaceId)           // WHERE space_id = #{spaceId}
                 .in(Picture::getId, pictureIds)             // AND id IN (pictureIds集合)
                 .list();                                    // 执行查询并返回结果列表
@@ -467,6 +1149,10 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         if (pictureList.isEmpty()){
             return;
         }
+        // 记录修改前的分类，用于调整图片数量缓存
+        List<Picture> oldPictureList = pictureList.stream()
+                .map(picture -> BeanUtil.copyProperties(picture, Picture.class))
+                .collect(Collectors.toList());
         // 执行批量修改
         pictureList.forEach(picture -> {
             if (StrUtil.isNotBlank(category)) {
@@ -478,9 +1164,23 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         });
         String nameRule = pictureEditByBatchRequest.getNameRule();
         fillPictureNameRule(pictureList, nameRule);
+        pictureMigrationManager.checkWritable(spaceId);
         // 执行批量更新操作
         boolean result = pictureRepository.updateBatchById(pictureList);
         ThrowUtils.throwIf(!result, ErrorCode.SYSTEM_ERROR, "批量修改失败");
+        // 同步标签关联，所有图片一次删除、一次批量写入
+        if (CollUtil.isNotEmpty(tags)) {
+            Map<Long, List<PictureTag>> pictureTagsMap = new LinkedHashMap<>();
+            pictureList.forEach(picture -> pictureTagsMap.put(picture.getId(),
+                    this.buildPictureTags(picture.getId(), picture.getSpaceId(), tags)));
+            pictureTagRepository.replaceTags(pictureTagsMap);
+        }
+        // 调整图片数量缓存（事务提交后执行）
+        pictureCountManager.onChange(oldPictureList, pictureList);
+        // 同步全文检索索引（事务提交后执行）
+        pictureList.forEach(picture -> pictureRepository.refreshSearchIndex(picture.getSpaceId(), picture.getId()));
+        // 失效所属范围的列表缓存（事务提交后执行）
+        pictureListCacheManager.bumpVersion(spaceId);
     }
 
     /**
@@ -518,7 +1218,6 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
     @Override
     public Page<PictureVO> listPictureVOByPageWithCache(PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
         // 获取分页参数
-        long current = pictureQueryRequest.getCurrent();
         long size = pictureQueryRequest.getPageSize();
 
         // 限制爬虫，防止超大查询
@@ -527,37 +1226,20 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         // 普通用户只能查看已审核数据
         pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
 
-        // 生成缓存 key
+        // 生成缓存 key（带所属范围的版本号）
         String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
-        String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
-        String cacheKey = "CoPicCloud:listPictureVOByPage:" + hashKey;
-
-        // 查询本地缓存
-        String cachedValue = LOCAL_CACHE.getIfPresent(cacheKey);
-        if (cachedValue != null) {
-            return JSONUtil.toBean(cachedValue, Page.class, true);
-        }
-
-        // 查询 Redis 缓存
-        ValueOperations<String, String> valueOps = stringRedisTemplate.opsForValue();
-        cachedValue = valueOps.get(cacheKey);
-        if (cachedValue != null) {
-            LOCAL_CACHE.put(cacheKey, cachedValue); // 更新本地缓存
-            return JSONUtil.toBean(cachedValue, Page.class, true);
-        }
-
-        // 缓存未命中，查询数据库
-        Page<Picture> picturePage = pictureRepository.page(new Page<>(current, size),
-                getQueryWrapper(pictureQueryRequest));
-
-        // 处理数据并转换为 VO
-        Page<PictureVO> pictureVOPage = this.getPictureVOPage(picturePage, request);
-
-        // 存入本地缓存 & Redis，5-10 分钟随机过期，防止缓存雪崩
-        String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-        LOCAL_CACHE.put(cacheKey, cacheValue);
-        valueOps.set(cacheKey, cacheValue, 300 + RandomUtil.randomInt(0, 300), TimeUnit.SECONDS);
-
+        String cacheKey = pictureListCacheManager.buildCacheKey(pictureQueryRequest.getSpaceId(), queryCondition);
+
+        // 依次查询本地缓存和 Redis 缓存，未命中时同一个 key 只有一个请求查询数据库
+        // 缓存中不含副本：副本在后台异步生成，读取缓存后再填充，新生成的副本无需等缓存过期即可返回
+        Page<PictureVO> pictureVOPage = pictureListCacheManager.getOrLoad(cacheKey, () -> {
+            Page<Picture> picturePage = this.getPicturePage(pictureQueryRequest,
+                    getQueryWrapper(pictureQueryRequest));
+            // 处理数据并转换为 VO
+            return this.buildPictureVOPage(picturePage);
+        });
+        // 副本取自本地副本缓存（不可修改的列表，只取决于原图 url），直接设置到缓存中的对象上，无需复制
+        pictureRenditionManager.fillRenditions(pictureVOPage.getRecords());
         return pictureVOPage;
     }
 
@@ -576,9 +1258,110 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
     public Page<Picture> getPicturePage(PictureQueryRequest pictureQueryRequest, QueryWrapper<Picture> queryWrapper) {
         int size = pictureQueryRequest.getPageSize();
         int current = pictureQueryRequest.getCurrent();
+        PictureCountModeEnum countMode = ObjUtil.defaultIfNull(
+                PictureCountModeEnum.getEnumByValue(pictureQueryRequest.getCountMode()), PictureCountModeEnum.EXACT);
+        switch (countMode) {
+            case NONE:
+                // 不执行 COUNT 查询，total 为 0
+                return pictureRepository.page(new Page<>(current, size, false), queryWrapper);
+            case APPROXIMATE:
+                // 使用缓存的计数作为总数，查询条件不支持时退化为精确统计
+                Long total = pictureCountManager.getCount(pictureQueryRequest);
+                if (total != null) {
+                    Page<Picture> picturePage = pictureRepository.page(new Page<>(current, size, false), queryWrapper);
+                    picturePage.setTotal(total);
+                    return picturePage;
+                }
+                break;
+            default:
+                break;
+        }
         return pictureRepository.page(new Page<>(current, size),queryWrapper);
     }
 
+    /**
+     * 重建全文检索索引（异步执行）
+     *
+     * @return 是否开始重建
+     */
+    @Override
+    public boolean rebuildSearchIndex() {
+        return pictureRepository.rebuildSearchIndex();
+    }
+
+    /**
+     * 游标分页获取图片列表
+     * 使用 (editTime, id) 或 (id) 定位上一页的末尾，只取 pageSize + 1 条判断是否还有下一页，不执行 COUNT
+     *
+     * @param pictureCursorQueryRequest 游标查询请求
+     * @param request                   请求
+     * @return 游标分页结果
+     */
+    @Override
+    public PictureCursorPageVO listPictureVOByCursor(PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureCursorQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        int size = pictureCursorQueryRequest.getPageSize();
+        ThrowUtils.throwIf(size <= 0 || size > 30, ErrorCode.PARAMS_ERROR);
+        String sortField = StrUtil.blankToDefault(pictureCursorQueryRequest.getSortField(), PictureCursor.SORT_EDIT_TIME);
+        ThrowUtils.throwIf(!PictureCursor.SORT_EDIT_TIME.equals(sortField) && !PictureCursor.SORT_ID.equals(sortField),
+                ErrorCode.PARAMS_ERROR, "游标分页仅支持按编辑时间或 id 排序");
+        boolean ascending = CommonConstant.SORT_ORDER_ASC.equals(pictureCursorQueryRequest.getSortOrder());
+        PictureCursor cursor = null;
+        if (StrUtil.isNotBlank(pictureCursorQueryRequest.getCursor())) {
+            cursor = PictureCursor.decode(pictureCursorQueryRequest.getCursor());
+            ThrowUtils.throwIf(!cursor.getSortField().equals(sortField) || cursor.isAscending() != ascending,
+                    ErrorCode.PARAMS_ERROR, "游标与排序条件不匹配");
+        }
+
+        // 排序由游标条件统一处理，不使用通用的 sortField
+        pictureCursorQueryRequest.setSortField(null);
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureCursorQueryRequest);
+        if (cursor != null) {
+            long lastId = cursor.getId();
+            if (PictureCursor.SORT_ID.equals(sortField)) {
+                // id > ? / id < ?
+                if (ascending) {
+                    queryWrapper.gt("id", lastId);
+                } else {
+                    queryWrapper.lt("id", lastId);
+                }
+            } else {
+                // (editTime, id) > (?, ?) 展开为 editTime > ? or (editTime = ? and id > ?)，便于命中索引
+                Date lastEditTime = cursor.getEditTime();
+                if (ascending) {
+                    queryWrapper.and(qw -> qw.gt("editTime", lastEditTime)
+                            .or(w -> w.eq("editTime", lastEditTime).gt("id", lastId)));
+                } else {
+                    queryWrapper.and(qw -> qw.lt("editTime", lastEditTime)
+                            .or(w -> w.eq("editTime", lastEditTime).lt("id", lastId)));
+                }
+            }
+        }
+        if (PictureCursor.SORT_EDIT_TIME.equals(sortField)) {
+            queryWrapper.orderBy(true, ascending, "editTime");
+        }
+        queryWrapper.orderBy(true, ascending, "id");
+
+        // 多取一条用于判断是否还有下一页，关闭 COUNT 查询
+        Page<Picture> picturePage = pictureRepository.page(new Page<>(1, size + 1, false), queryWrapper);
+        List<Picture> pictureList = picturePage.getRecords();
+        boolean hasMore = pictureList.size() > size;
+        if (hasMore) {
+            pictureList = pictureList.subList(0, size);
+        }
+
+        PictureCursorPageVO cursorPageVO = new PictureCursorPageVO();
+        cursorPageVO.setHasMore(hasMore);
+        if (hasMore) {
+            Picture last = pictureList.get(pictureList.size() - 1);
+            cursorPageVO.setNextCursor(new PictureCursor(sortField, ascending, last.getEditTime(), last.getId()).encode());
+        }
+        Page<Picture> recordPage = new Page<>(1, size, false);
+        recordPage.setRecords(pictureList);
+        cursorPageVO.setRecords(this.getPictureVOPage(recordPage, request).getRecords());
+        return cursorPageVO;
+    }
+
     /**
      * 获取图片信息 视图
      *
@@ -597,6 +1380,8 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
             UserVO userVO = UserDomainService.getUserVO(user);
             pictureVO.setUser(userVO);
         }
+        // 填充多分辨率副本
+        pictureRenditionManager.fillRenditions(List.of(pictureVO));
         return pictureVO;
     }
 
@@ -609,6 +1394,19 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
      */
     @Override
     public Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request) {
+        Page<PictureVO> pictureVOPage = this.buildPictureVOPage(picturePage);
+        // 填充多分辨率副本
+        pictureRenditionManager.fillRenditions(pictureVOPage.getRecords());
+        return pictureVOPage;
+    }
+
+    /**
+     * 转换为图片视图分页并关联用户信息，不填充副本
+     *
+     * @param picturePage 图片信息 分页
+     * @return 图片信息 视图 分页
+     */
+    private Page<PictureVO> buildPictureVOPage(Page<Picture> picturePage) {
         // 1. 获取图片分页的信息
         // 从传入的图片分页对象中获取当前页的图片记录列表
         List<Picture> pictureList = picturePage.getRecords();
@@ -688,6 +1486,19 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         if (StrUtil.isNotBlank(introduction)) {
             ThrowUtils.throwIf(introduction.length() > 800, ErrorCode.PARAMS_ERROR, "简介过长");
         }
+        this.validTags(this.parseTags(picture.getTags()));
+    }
+
+    /**
+     * 校验标签长度（标签关联表的 tag 字段最长 128）
+     */
+    private void validTags(List<String> tags) {
+        if (CollUtil.isEmpty(tags)) {
+            return;
+        }
+        for (String tag : tags) {
+            ThrowUtils.throwIf(StrUtil.length(StrUtil.trim(tag)) > PictureTag.MAX_TAG_LENGTH, ErrorCode.PARAMS_ERROR, "标签过长");
+        }
     }
 
     /**
@@ -727,8 +1538,37 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         String sortOrder = pictureQueryRequest.getSortOrder();
 
 
+        // 优先使用全文检索索引，命中的 id 再交给数据库回表，避免 LIKE '%x%' 全表扫描
+        boolean searchedByIndex = false;
+        if (StrUtil.isNotBlank(searchText) || CollUtil.isNotEmpty(tags)) {
+            Collection<Long> searchIds = pictureRepository.searchIds(spaceId, nullSpaceId, searchText, tags,
+                    category, SEARCH_INDEX_MAX_HITS);
+            if (searchIds != null) {
+                if (searchIds.isEmpty()) {
+                    queryWrapper.apply("1 = 0");
+                } else {
+                    queryWrapper.in("id", searchIds);
+                }
+                // 已由索引处理，不再拼接 LIKE 条件
+                searchedByIndex = true;
+            }
+        }
+        // 标签筛选改为查询标签关联表
+        boolean taggedByRelation = false;
+        if (!searchedByIndex && tagRelationReadEnabled && CollUtil.isNotEmpty(tags)) {
+            Collection<Long> tagPictureIds = pictureTagRepository.listPictureIdsByTags(spaceId, nullSpaceId, tags,
+                    SEARCH_INDEX_MAX_HITS);
+            if (tagPictureIds != null) {
+                if (tagPictureIds.isEmpty()) {
+                    queryWrapper.apply("1 = 0");
+                } else {
+                    queryWrapper.in("id", tagPictureIds);
+                }
+                taggedByRelation = true;
+            }
+        }
         // 从多字段中搜索
-        if (StrUtil.isNotBlank(searchText)) {
+        if (!searchedByIndex && StrUtil.isNotBlank(searchText)) {
             // 需要拼接查询条件
             // and (name LIKE '%searchText%' OR introduction LIKE '%searchText%')
             queryWrapper.and(qw -> qw.like("name", searchText)
@@ -758,7 +1598,7 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         queryWrapper.like(StrUtil.isNotBlank(reviewMessage), "reviewMessage", reviewMessage);
 
         // JSON 数组查询
-        if (CollUtil.isNotEmpty(tags)) {
+        if (!searchedByIndex && !taggedByRelation && CollUtil.isNotEmpty(tags)) {
             for (String tag : tags) {
                 // and (tag like "%\"Java\"%" and like "%\"Python\"%")
                 queryWrapper.like("tags", "\"" + tag + "\"");
@@ -806,8 +1646,21 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         updatePicture.setReviewMessage(reviewMessage);
         updatePicture.setReviewTime(new Date());
 
+        pictureMigrationManager.checkWritable(oldPicture.getSpaceId());
         boolean result = pictureRepository.updateById(updatePicture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 调整图片数量缓存
+        pictureCountManager.onChange(oldPicture, updatePicture);
+        // 公共图库的感知哈希索引只保留已过审的图片
+        if (oldPicture.getSpaceId() == null) {
+            if (PictureReviewStatusEnum.PASS.equals(reviewStatusEnum)) {
+                pictureHashIndexManager.upsert(null, id, oldPicture.getPicHash());
+            } else {
+                pictureHashIndexManager.remove(null, id);
+            }
+        }
+        // 审核状态影响公开列表，失效所属范围的列表缓存
+        pictureListCacheManager.bumpVersion(oldPicture.getSpaceId());
     }
 
     /**
@@ -832,30 +1685,62 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
     }
 
     /**
-     * 清理图片
+     * 清理图片（文件加入删除队列，由定时任务批量删除）
      *
      * @param oldPicture 旧图片
      */
-    @Async // 使方法异步的执行
     @Override
     public void clearPictureFile(Picture oldPicture) {
-        // 判断该记录是否被多条记录给使用
         String oldPictureUrl = oldPicture.getUrl();
+        // 按内容寻址存储的图片通过引用数判断是否可以删除
+        PictureObject pictureObject = pictureObjectRepository.getByUrl(oldPictureUrl);
+        if (pictureObject != null) {
+            this.releasePictureObject(pictureObject);
+            return;
+        }
+        // 判断该记录是否被多条记录给使用
         long count = pictureRepository.lambdaQuery()
                 .eq(Picture::getUrl, oldPictureUrl)
                 .count();
         if (count > 1) {
             return;
         }
-        // 删除图片 在对象的访问域名 bucket.cos.ap-guangzhou.com/doc/picture.jpg 中，
-        // 对象键为 doc/picture.jpg 此处传入的 key 的值就是对象键
-        // 清理 webp 文件
-        String objKey = this.checkUrl(oldPicture.getUrl());
-        cosApi.deleteObject(objKey);
-        // 清理缩略图
-        objKey = this.checkUrl(oldPicture.getThumbnailUrl());
-        if (StrUtil.isNotBlank(objKey)) {
-            cosApi.deleteObject(objKey);
+        // 压缩图和缩略图加入删除队列
+        pictureFileDeletionManager.enqueue(Arrays.asList(oldPictureUrl, oldPicture.getThumbnailUrl()));
+        // 清理多分辨率副本
+        pictureRenditionManager.removeRenditions(oldPictureUrl);
+    }
+
+    /**
+     * 增加存储对象的引用数，需在图片入库的同一事务中调用
+     *
+     * @param contentHash 原图内容 SHA-256，为空表示未去重上传
+     */
+    private void acquirePictureObject(String contentHash) {
+        if (StrUtil.isBlank(contentHash)) {
+            return;
+        }
+        boolean acquired = pictureObjectRepository.acquire(contentHash);
+        // 上传后对象恰好被最后一个引用者删除
+        ThrowUtils.throwIf(!acquired, ErrorCode.OPERATION_ERROR, "图片已失效，请重新上传");
+    }
+
+    /**
+     * 释放存储对象的一次引用，没有图片引用时将对象存储中的文件加入删除队列
+     */
+    private void releasePictureObject(PictureObject pictureObject) {
+        RLock lock = redissonClient.getLock(PictureObjectRepository.LOCK_KEY_PREFIX + pictureObject.getContentHash());
+        lock.lock(30, TimeUnit.SECONDS);
+        try {
+            if (!pictureObjectRepository.release(pictureObject.getId())) {
+                return;
+            }
+            pictureFileDeletionManager.enqueue(Arrays.asList(pictureObject.getUrl(), pictureObject.getThumbnailUrl()));
+            pictureRenditionManager.removeRenditions(pictureObject.getUrl());
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
         }
     }
 
@@ -873,9 +1758,73 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
         // 补充审核参数
         this.fillReviewParams(picture, loginUser);
-        // 操作数据库
-        boolean result = pictureRepository.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR,"更新失败");
+        pictureMigrationManager.checkWritable(oldPicture.getSpaceId());
+        // 操作数据库，标签关联与图片在同一事务中更新（未修改标签时保持不变）
+        transactionTemplate.execute(status -> {
+            boolean result = pictureRepository.updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "更新失败");
+            if (picture.getTags() != null) {
+                pictureTagRepository.replaceTags(id, oldPicture.getSpaceId(), this.parseTags(picture.getTags()));
+            }
+            return true;
+        });
+        // 调整图片数量缓存
+        pictureCountManager.onChange(oldPicture, picture);
+        // 同步全文检索索引
+        pictureRepository.refreshSearchIndex(oldPicture.getSpaceId(), id);
+        // 失效所属范围的列表缓存
+        pictureListCacheManager.bumpVersion(oldPicture.getSpaceId());
+    }
+
+    /**
+     * 回填标签关联表（异步执行）
+     * 流式读取所有带标签的图片，按批覆盖写入 picture_tag，可重复执行
+     */
+    @Async
+    @Override
+    public void backfillPictureTags() {
+        long start = System.currentTimeMillis();
+        Map<Long, List<PictureTag>> batch = new LinkedHashMap<>();
+        long[] total = {0L};
+        pictureRepository.scanPictureTags((pictureId, spaceId, tags) -> {
+            batch.put(pictureId, this.buildPictureTags(pictureId, spaceId, this.parseTags(tags)));
+            if (batch.size() >= TAG_BACKFILL_BATCH_SIZE) {
+                pictureTagRepository.replaceTags(batch);
+                total[0] += batch.size();
+                batch.clear();
+                log.info("标签关联表回填中，已处理图片数 = {}", total[0]);
+            }
+        });
+        pictureTagRepository.replaceTags(batch);
+        total[0] += batch.size();
+        log.info("标签关联表回填完成，图片数 = {}，耗时 = {} ms", total[0], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 构造图片的标签关联（按唯一索引的排序规则去重，跳过超长标签）
+     */
+    private List<PictureTag> buildPictureTags(Long pictureId, Long spaceId, List<String> tags) {
+        return PictureTag.normalizeTags(tags).stream()
+                .map(tag -> {
+                    PictureTag pictureTag = new PictureTag();
+                    pictureTag.setPictureId(pictureId);
+                    pictureTag.setSpaceId(spaceId);
+                    pictureTag.setTag(tag);
+                    return pictureTag;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 解析 JSON 数组格式的标签
+     */
+    private List<String> parseTags(String tagsJson) {
+        if (!JSONUtil.isTypeJSONArray(tagsJson)) {
+            return new ArrayList<>();
+        }
+        return JSONUtil.toList(tagsJson, String.class).stream()
+                .filter(StrUtil::isNotBlank)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -937,6 +1886,7 @@ public class PictureDomainServiceImpl extends ServiceImpl<PictureMapper, Picture
         picture.setPicScale(uploadPictureResult.getPicScale());
         picture.setPicFormat(uploadPictureResult.getPicFormat());
         picture.setPicColor(uploadPictureResult.getPicColor());
+        picture.setPicHash(uploadPictureResult.getPicHash());
         picture.setUserId(loginUser.getId());
 
         // 执行审核参数填充
@@ -0,0 +1,37 @@
+package com.demo.copicloud.domain.picture.valueobject;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+
+/**
+ * 分页总数统计方式枚举类
+ */
+@Getter
+public enum PictureCountModeEnum {
+    EXACT("精确统计（COUNT 查询）", "exact"),
+    NONE("不统计总数", "none"),
+    APPROXIMATE("近似统计（按空间、审核状态、分类缓存的计数）", "approximate");
+
+    private final String text;
+    private final String value;
+
+    PictureCountModeEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static PictureCountModeEnum getEnumByValue(String value) {
+        if (StrUtil.isBlank(value)) {
+            return null;
+        }
+        for (PictureCountModeEnum pictureCountModeEnum : PictureCountModeEnum.values()) {
+            if (pictureCountModeEnum.value.equals(value)) {
+                return pictureCountModeEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.demo.copicloud.domain.picture.valueobject;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.infrastructure.exception.BusinessException;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 游标分页位置
+ * 记录上一页最后一条数据的排序键，下一页从该位置之后继续查询（WHERE (editTime, id) < (?, ?)），
+ * 无论翻到第几页都只扫描 pageSize 条索引记录，也不需要统计总数
+ * 对外以 Base64 编码的不透明字符串传递，客户端无需关心其内容
+ */
+@Getter
+public class PictureCursor {
+
+    /**
+     * 按编辑时间排序（编辑时间相同再按 id）
+     */
+    public static final String SORT_EDIT_TIME = "editTime";
+
+    /**
+     * 按 id 排序
+     */
+    public static final String SORT_ID = "id";
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * 排序字段
+     */
+    private final String sortField;
+
+    /**
+     * 是否升序
+     */
+    private final boolean ascending;
+
+    /**
+     * 上一页最后一条数据的编辑时间（按 id 排序时为空）
+     */
+    private final Date editTime;
+
+    /**
+     * 上一页最后一条数据的 id
+     */
+    private final long id;
+
+    public PictureCursor(String sortField, boolean ascending, Date editTime, long id) {
+        this.sortField = sortField;
+        this.ascending = ascending;
+        this.editTime = editTime;
+        this.id = id;
+    }
+
+    /**
+     * 编码为游标字符串
+     */
+    public String encode() {
+        String raw = StrUtil.join(SEPARATOR, sortField, ascending ? 1 : 0,
+                editTime == null ? "" : editTime.getTime(), id);
+        return Base64.encodeUrlSafe(raw);
+    }
+
+    /**
+     * 解析游标字符串
+     *
+     * @param cursor 游标
+     * @return 游标分页位置
+     */
+    public static PictureCursor decode(String cursor) {
+        try {
+            List<String> parts = StrUtil.split(Base64.decodeStr(cursor), SEPARATOR);
+            if (parts.size() == 4) {
+                String sortField = parts.get(0);
+                boolean ascending = "1".equals(parts.get(1));
+                long id = Long.parseLong(parts.get(3));
+                if (SORT_ID.equals(sortField)) {
+                    return new PictureCursor(sortField, ascending, null, id);
+                }
+                if (SORT_EDIT_TIME.equals(sortField) && StrUtil.isNotBlank(parts.get(2))) {
+                    return new PictureCursor(sortField, ascending, new Date(Long.parseLong(parts.get(2))), id);
+                }
+            }
+        } catch (RuntimeException e) {
+            // 统一按参数错误处理
+        }
+        throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标不合法");
+    }
+}
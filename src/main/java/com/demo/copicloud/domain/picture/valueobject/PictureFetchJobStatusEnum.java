@@ -0,0 +1,37 @@
+package com.demo.copicloud.domain.picture.valueobject;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+
+/**
+ * 批量抓取图片任务状态枚举类
+ */
+@Getter
+public enum PictureFetchJobStatusEnum {
+    RUNNING("执行中", "running"),
+    SUCCEED("已完成", "succeed"),
+    FAILED("失败", "failed");
+
+    private final String text;
+    private final String value;
+
+    PictureFetchJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static PictureFetchJobStatusEnum getEnumByValue(String value) {
+        if (StrUtil.isBlank(value)) {
+            return null;
+        }
+        for (PictureFetchJobStatusEnum pictureFetchJobStatusEnum : PictureFetchJobStatusEnum.values()) {
+            if (pictureFetchJobStatusEnum.value.equals(value)) {
+                return pictureFetchJobStatusEnum;
+            }
+        }
+        return null;
+    }
+}
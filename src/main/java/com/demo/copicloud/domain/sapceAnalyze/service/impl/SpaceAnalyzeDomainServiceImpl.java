@@ -7,7 +7,9 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.demo.copicloud.application.service.SpaceAnalyzeApplicationService;
 import com.demo.copicloud.application.service.SpaceApplicationService;
 import com.demo.copicloud.domain.picture.entity.Picture;
+import com.demo.copicloud.domain.picture.entity.PictureTag;
 import com.demo.copicloud.domain.picture.repository.PictureRepository;
+import com.demo.copicloud.domain.picture.repository.PictureTagRepository;
 import com.demo.copicloud.domain.sapceAnalyze.service.SpaceAnalyzeDomainService;
 import com.demo.copicloud.domain.space.entity.Space;
 import com.demo.copicloud.domain.user.entity.User;
@@ -18,6 +20,7 @@ import com.demo.copicloud.interfaces.dto.space.space.analyze.*;
 import com.demo.copicloud.interfaces.vo.space.analyze.*;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedHashMap;
@@ -39,6 +42,15 @@ public class SpaceAnalyzeDomainServiceImpl implements SpaceAnalyzeDomainService
     @Resource
     private PictureRepository pictureRepository;
 
+    @Resource
+    private PictureTagRepository pictureTagRepository;
+
+    /**
+     * 标签统计是否查询 picture_tag 关联表（历史数据回填完成后开启）
+     */
+    @Value("${picture.tag-relation.read-enabled:false}")
+    private boolean tagRelationReadEnabled;
+
     /**
      * 空间资源使用分析
      *
@@ -146,6 +158,19 @@ public class SpaceAnalyzeDomainServiceImpl implements SpaceAnalyzeDomainService
         ThrowUtils.throwIf(spaceTagAnalyzeRequest == null, ErrorCode.PARAMS_ERROR);
         // 校验权限
         this.checkSpaceAnalyzeAuth(spaceTagAnalyzeRequest, loginUser);
+        // 标签关联表已回填时，直接在数据库分组统计
+        if (tagRelationReadEnabled) {
+            QueryWrapper<PictureTag> tagQueryWrapper = new QueryWrapper<>();
+            this.fillAnalyzeQueryWrapper(spaceTagAnalyzeRequest, tagQueryWrapper);
+            tagQueryWrapper.select("tag AS tag", "COUNT(*) AS count")
+                    .groupBy("tag")
+                    .orderByDesc("count");
+            return pictureTagRepository.getBaseMapper().selectMaps(tagQueryWrapper)
+                    .stream()
+                    .map(result -> new SpaceTagAnalyzeResponse(result.get("tag").toString(),
+                            ((Number) result.get("count")).longValue()))
+                    .collect(Collectors.toList());
+        }
         // 查询图片表中的 spaceId 字段 构造查询条件
         QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
         this.fillAnalyzeQueryWrapper(spaceTagAnalyzeRequest, queryWrapper);
@@ -297,7 +322,7 @@ public class SpaceAnalyzeDomainServiceImpl implements SpaceAnalyzeDomainService
      *
      * @param spaceAnalyzeRequest 请求参数
      */
-    private void fillAnalyzeQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<Picture> queryWrapper) {
+    private <T> void fillAnalyzeQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<T> queryWrapper) {
         Long spaceId = spaceAnalyzeRequest.getSpaceId();
         boolean queryPublic = spaceAnalyzeRequest.getQueryPublic();
         boolean queryAll = spaceAnalyzeRequest.getQueryAll();
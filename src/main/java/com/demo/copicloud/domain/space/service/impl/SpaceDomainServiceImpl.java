@@ -19,12 +19,16 @@ import com.demo.copicloud.infrastructure.common.DeleteRequest;
 import com.demo.copicloud.infrastructure.constant.CommonConstant;
 import com.demo.copicloud.infrastructure.exception.BusinessException;
 import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.manager.quota.SpaceQuotaManager;
+import com.demo.copicloud.infrastructure.manager.quota.SpaceUsageManager;
 import com.demo.copicloud.infrastructure.manager.sharing.DynamicShardingManager;
+import com.demo.copicloud.infrastructure.manager.sharing.PictureMigrationManager;
 import com.demo.copicloud.infrastructure.utils.ThrowUtils;
 import com.demo.copicloud.interfaces.assembler.SpaceAssembler;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceAddRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceEditRequest;
 import com.demo.copicloud.interfaces.dto.space.space.SpaceQueryRequest;
+import com.demo.copicloud.interfaces.vo.space.PictureMigrationVO;
 import com.demo.copicloud.interfaces.vo.space.SpaceVO;
 import com.demo.copicloud.interfaces.vo.user.UserVO;
 import jakarta.annotation.Resource;
@@ -64,10 +68,20 @@ public class SpaceDomainServiceImpl implements SpaceDomainService {
     @Resource
     private TransactionTemplate transactionTemplate;
 
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+
+    @Resource
+    private SpaceUsageManager spaceUsageManager;
+
     @Resource
     @Lazy
     private DynamicShardingManager dynamicShardingManager;
 
+    @Resource
+    @Lazy
+    private PictureMigrationManager pictureMigrationManager;
+
     /**
      * 添加空间
      *
@@ -358,7 +372,8 @@ public class SpaceDomainServiceImpl implements SpaceDomainService {
      */
     @Override
     public Space getById(Long spaceId) {
-        return spaceRepository.getById(spaceId);
+        // 合并尚未写回数据库的用量
+        return spaceUsageManager.applyPending(spaceRepository.getById(spaceId));
     }
 
     /**
@@ -366,7 +381,9 @@ public class SpaceDomainServiceImpl implements SpaceDomainService {
      */
     @Override
     public List<Space> listByIds(Set<Long> spaceIds) {
-        return spaceRepository.listByIds(spaceIds);
+        List<Space> spaceList = spaceRepository.listByIds(spaceIds);
+        spaceList.forEach(spaceUsageManager::applyPending);
+        return spaceList;
     }
 
     /**
@@ -374,7 +391,9 @@ public class SpaceDomainServiceImpl implements SpaceDomainService {
      */
     @Override
     public boolean removeById(long id) {
-        return spaceRepository.removeById(id);
+        boolean result = spaceRepository.removeById(id);
+        spaceQuotaManager.evict(id);
+        return result;
     }
 
     /**
@@ -382,7 +401,10 @@ public class SpaceDomainServiceImpl implements SpaceDomainService {
      */
     @Override
     public boolean updateById(Space space) {
-        return spaceRepository.updateById(space);
+        boolean result = spaceRepository.updateById(space);
+        // 空间上限可能变化，删除 Redis 中的额度，下次使用时重新加载
+        spaceQuotaManager.evict(space.getId());
+        return result;
     }
 
     /**
@@ -446,6 +468,24 @@ public class SpaceDomainServiceImpl implements SpaceDomainService {
         // 操作数据库
         boolean result = this.updateById(spaceEntity);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 团队空间升级为旗舰版后，已有图片在线迁移到独立分表
+        Integer spaceLevel = ObjUtil.defaultIfNull(spaceEntity.getSpaceLevel(), oldSpace.getSpaceLevel());
+        if (oldSpace.getSpaceType() == SpaceTypeEnum.TEAM.getValue()
+                && oldSpace.getSpaceLevel() != SpaceLevelEnum.FLAGSHIP.getValue()
+                && spaceLevel == SpaceLevelEnum.FLAGSHIP.getValue()) {
+            pictureMigrationManager.start(id);
+        }
+    }
+
+    /**
+     * 获取空间图片迁移进度
+     */
+    @Override
+    public PictureMigrationVO getPictureMigration(Long spaceId) {
+        ThrowUtils.throwIf(spaceId == null || spaceId <= 0, ErrorCode.PARAMS_ERROR);
+        PictureMigrationVO pictureMigrationVO = pictureMigrationManager.getProgress(spaceId);
+        ThrowUtils.throwIf(pictureMigrationVO == null, ErrorCode.NOT_FOUND_ERROR, "没有迁移记录");
+        return pictureMigrationVO;
     }
 
     /**
@@ -3,18 +3,35 @@ package com.demo.copicloud.infrastructure.api.COS;
 import cn.hutool.core.io.FileUtil;
 import com.demo.copicloud.infrastructure.config.CosClientConfig;
 import com.qcloud.cos.COSClient;
+import com.qcloud.cos.Headers;
 import com.qcloud.cos.exception.CosClientException;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
 import com.qcloud.cos.model.COSObject;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.GeneratePresignedUrlRequest;
 import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartETag;
 import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.http.HttpMethodName;
 import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import com.qcloud.cos.model.ciModel.persistence.ImageProcessRequest;
 import com.qcloud.cos.model.ciModel.persistence.PicOperations;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
 public class CosApi {
@@ -37,6 +54,21 @@ public class CosApi {
         cosClient.putObject(putObjectRequest);
     }
 
+    /**
+     * 流式上传对象
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流（由调用方关闭）
+     * @param contentLength 内容长度，必须准确
+     */
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        cosClient.putObject(putObjectRequest);
+    }
+
     /**
      * 上传对象（附带图片信息）
      *
@@ -45,6 +77,143 @@ public class CosApi {
      */
     public PutObjectResult putPictureObject(String key, File file) {
         PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, file);
+        putObjectRequest.setPicOperations(buildPicOperations(key, file.length()));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 流式上传对象（附带图片信息），无需先写入本地临时文件
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流（由调用方关闭）
+     * @param contentLength 内容长度，必须准确
+     */
+    public PutObjectResult putPictureObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        putObjectRequest.setPicOperations(buildPicOperations(key, contentLength));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 对已上传的对象进行图片处理（云上处理），规则与上传时处理一致
+     *
+     * @param key           唯一键
+     * @param contentLength 原图大小
+     */
+    public CIUploadResult processPictureObject(String key, long contentLength) {
+        ImageProcessRequest imageProcessRequest = new ImageProcessRequest(cosClientConfig.getBucket(), key);
+        imageProcessRequest.setPicOperations(buildPicOperations(key, contentLength));
+        return cosClient.processImage(imageProcessRequest);
+    }
+
+    /**
+     * 复制对象（服务端复制，内容不经过应用节点）
+     *
+     * @param sourceKey 源对象键
+     * @param targetKey 目标对象键
+     */
+    public void copyObject(String sourceKey, String targetKey) {
+        cosClient.copyObject(cosClientConfig.getBucket(), sourceKey, cosClientConfig.getBucket(), targetKey);
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 唯一键
+     * @return 分块上传 ID
+     */
+    public String initiateMultipartUpload(String key) {
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(cosClientConfig.getBucket(), key);
+        return cosClient.initiateMultipartUpload(request).getUploadId();
+    }
+
+    /**
+     * 上传分块
+     *
+     * @param key               唯一键
+     * @param multipartUploadId 分块上传 ID
+     * @param partNumber        分块序号（从 1 开始）
+     * @param inputStream       输入流（由调用方关闭）
+     * @param partSize          分块大小，必须准确
+     * @return 分块的 ETag
+     */
+    public String uploadPart(String key, String multipartUploadId, int partNumber, InputStream inputStream,
+                             long partSize) {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(cosClientConfig.getBucket());
+        request.setKey(key);
+        request.setUploadId(multipartUploadId);
+        request.setPartNumber(partNumber);
+        request.setInputStream(inputStream);
+        request.setPartSize(partSize);
+        return cosClient.uploadPart(request).getETag();
+    }
+
+    /**
+     * 完成分块上传，由已上传的分块合并出对象
+     *
+     * @param key               唯一键
+     * @param multipartUploadId 分块上传 ID
+     * @param partETags         分块序号及对应的 ETag
+     */
+    public void completeMultipartUpload(String key, String multipartUploadId, Map<Integer, String> partETags) {
+        List<PartETag> partETagList = new ArrayList<>(partETags.size());
+        partETags.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> partETagList.add(new PartETag(entry.getKey(), entry.getValue())));
+        CompleteMultipartUploadRequest request = new CompleteMultipartUploadRequest(cosClientConfig.getBucket(),
+                key, multipartUploadId, partETagList);
+        cosClient.completeMultipartUpload(request);
+    }
+
+    /**
+     * 终止分块上传，释放已上传的分块
+     *
+     * @param key               唯一键
+     * @param multipartUploadId 分块上传 ID
+     */
+    public void abortMultipartUpload(String key, String multipartUploadId) {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(cosClientConfig.getBucket(), key,
+                multipartUploadId));
+    }
+
+    /**
+     * 生成预签名上传地址，客户端可在有效期内直接 PUT 文件到该地址
+     * Content-Length 和 Content-Type 参与签名，上传的文件大小和类型必须与申请时一致
+     *
+     * @param key           唯一键
+     * @param expiration    过期时间
+     * @param contentLength 文件大小
+     * @param contentType   文件类型
+     */
+    public String generatePresignedPutUrl(String key, Date expiration, long contentLength, String contentType) {
+        GeneratePresignedUrlRequest request =
+                new GeneratePresignedUrlRequest(cosClientConfig.getBucket(), key, HttpMethodName.PUT);
+        request.setExpiration(expiration);
+        request.putCustomRequestHeader(Headers.CONTENT_LENGTH, String.valueOf(contentLength));
+        request.putCustomRequestHeader(Headers.CONTENT_TYPE, contentType);
+        return cosClient.generatePresignedUrl(request).toString();
+    }
+
+    /**
+     * 获取对象大小
+     *
+     * @param key 唯一键
+     */
+    public long getObjectLength(String key) {
+        return cosClient.getObjectMetadata(cosClientConfig.getBucket(), key).getContentLength();
+    }
+
+    /**
+     * 构造图片处理参数
+     *
+     * @param key           唯一键
+     * @param contentLength 原图大小
+     */
+    private PicOperations buildPicOperations(String key, long contentLength) {
         // 对图片进行处理（获取基本信息也被视作为一种处理）
         PicOperations picOperations = new PicOperations();
         // 1 表示返回原图信息
@@ -58,7 +227,7 @@ public class CosApi {
         compressRule.setFileId(webpKey);
         rules.add(compressRule);
         // 缩略图处理，仅对 > 20 KB 的图片生成缩略图
-        if (file.length() > 2 * 1024) {
+        if (contentLength > 2 * 1024) {
             PicOperations.Rule thumbnailRule = new PicOperations.Rule();
             thumbnailRule.setBucket(cosClientConfig.getBucket());
             String thumbnailKey = FileUtil.mainName(key) + "_thumbnail." + FileUtil.getSuffix(key);
@@ -69,8 +238,7 @@ public class CosApi {
         }
         // 构造处理参数
         picOperations.setRules(rules);
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
+        return picOperations;
     }
 
     /**
@@ -83,6 +251,27 @@ public class CosApi {
         return cosClient.getObject(getObjectRequest);
     }
 
+    /**
+     * 下载经过数据万象处理的对象（下载时处理，不修改原对象）
+     *
+     * @param key  唯一键
+     * @param rule 处理规则，例如 imageMogr2/thumbnail/512x/format/webp
+     */
+    public COSObject getProcessedObject(String key, String rule) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
+        getObjectRequest.putCustomQueryParameter(rule, null);
+        return cosClient.getObject(getObjectRequest);
+    }
+
+    /**
+     * 对象是否存在
+     *
+     * @param key 唯一键
+     */
+    public boolean doesObjectExist(String key) {
+        return cosClient.doesObjectExist(cosClientConfig.getBucket(), key);
+    }
+
     /**
      * 删除对象
      *
@@ -92,5 +281,30 @@ public class CosApi {
         cosClient.deleteObject(cosClientConfig.getBucket(), key);
     }
 
-}
+    /**
+     * 批量删除对象（单次最多 1000 个）
+     *
+     * @param keys 文件 key
+     * @return 删除失败的 key 及原因，全部成功时为空
+     */
+    public Map<String, String> deleteObjects(List<String> keys) throws CosClientException {
+        DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+        List<DeleteObjectsRequest.KeyVersion> keyList = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            keyList.add(new DeleteObjectsRequest.KeyVersion(key));
+        }
+        deleteObjectsRequest.setKeys(keyList);
+        // 静默模式，只返回删除失败的对象
+        deleteObjectsRequest.setQuiet(true);
+        Map<String, String> errors = new LinkedHashMap<>();
+        try {
+            cosClient.deleteObjects(deleteObjectsRequest);
+        } catch (MultiObjectDeleteException e) {
+            for (MultiObjectDeleteException.DeleteError deleteError : e.getErrors()) {
+                errors.put(deleteError.getKey(), deleteError.getCode() + ": " + deleteError.getMessage());
+            }
+        }
+        return errors;
+    }
 
+}
@@ -36,7 +36,7 @@ public class WebConfig implements WebMvcConfigurer {
         // 注册 JWT 拦截器
         registry.addInterceptor(new JwtAuthInterceptor())
                 .addPathPatterns("/**")
-                .excludePathPatterns("/user/login", "/user/register","user/logout");
+                .excludePathPatterns("/user/login", "/user/register","user/logout", "/storage/**");
     }
 
     @PostConstruct
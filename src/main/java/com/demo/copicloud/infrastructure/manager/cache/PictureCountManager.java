@@ -0,0 +1,229 @@
+package com.demo.copicloud.infrastructure.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.demo.copicloud.domain.picture.entity.Picture;
+import com.demo.copicloud.domain.picture.repository.PictureRepository;
+import com.demo.copicloud.interfaces.dto.picture.PictureQueryRequest;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片数量缓存
+ * 每个范围（公共图库或某个空间）一个 Redis Hash，field 为 {reviewStatus}:{category}，value 为图片数量；
+ * 分页查询只按空间、审核状态、分类过滤时可直接汇总得到近似总数，省去 COUNT 查询
+ * 首次查询时通过一次 GROUP BY 构建，图片变更后增量调整；计数设置过期时间，并发构建导致的偏差会在重建时修正
+ */
+@Slf4j
+@Component
+public class PictureCountManager {
+
+    private static final String KEY_PREFIX = "CoPicCloud:pictureCount:";
+
+    private static final String PUBLIC_SCOPE = "public";
+
+    private static final long EXPIRE_SECONDS = 3600L;
+
+    /**
+     * 仅在计数已构建时增量调整，避免在空 Hash 上累加出错误的数量
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "for i = 1, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+                    "return 1",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PictureRepository pictureRepository;
+
+    /**
+     * 获取近似总数
+     *
+     * @param pictureQueryRequest 查询请求
+     * @return 总数，查询条件不支持时返回 null
+     */
+    public Long getCount(PictureQueryRequest pictureQueryRequest) {
+        if (!this.supports(pictureQueryRequest)) {
+            return null;
+        }
+        Long spaceId = pictureQueryRequest.getSpaceId();
+        Integer reviewStatus = pictureQueryRequest.getReviewStatus();
+        String category = pictureQueryRequest.getCategory();
+        Map<Object, Object> counts;
+        try {
+            counts = this.loadCounts(spaceId);
+        } catch (Exception e) {
+            log.error("读取图片数量缓存失败, spaceId = {}", spaceId, e);
+            return null;
+        }
+        long total = 0L;
+        for (Map.Entry<Object, Object> entry : counts.entrySet()) {
+            String field = entry.getKey().toString();
+            if (reviewStatus != null && !reviewStatus.toString().equals(StrUtil.subBefore(field, ":", false))) {
+                continue;
+            }
+            if (StrUtil.isNotBlank(category) && !category.equals(StrUtil.subAfter(field, ":", false))) {
+                continue;
+            }
+            total += Long.parseLong(entry.getValue().toString());
+        }
+        return Math.max(total, 0L);
+    }
+
+    /**
+     * 图片新增、修改或删除后调整计数（处于事务中时在提交后执行）
+     *
+     * @param oldPicture 修改前的图片，新增时为空
+     * @param newPicture 修改后的图片（可以只包含修改的字段），删除时为空
+     */
+    public void onChange(Picture oldPicture, Picture newPicture) {
+        this.onChange(oldPicture == null ? List.of() : List.of(oldPicture),
+                newPicture == null ? List.of() : List.of(newPicture));
+    }
+
+    /**
+     * 批量调整计数，oldPictures 与 newPictures 按下标一一对应
+     */
+    public void onChange(List<Picture> oldPictures, List<Picture> newPictures) {
+        // 范围 -> field -> 增量
+        Map<String, Map<String, Long>> deltas = new HashMap<>();
+        int size = Math.max(oldPictures.size(), newPictures.size());
+        for (int i = 0; i < size; i++) {
+            Picture oldPicture = i < oldPictures.size() ? oldPictures.get(i) : null;
+            Picture newPicture = i < newPictures.size() ? newPictures.get(i) : null;
+            if (oldPicture != null) {
+                this.addDelta(deltas, oldPicture.getSpaceId(), oldPicture.getReviewStatus(), oldPicture.getCategory(), -1L);
+            }
+            if (newPicture != null) {
+                // 未修改的字段沿用旧值
+                Long spaceId = oldPicture == null ? newPicture.getSpaceId()
+                        : ObjUtil.defaultIfNull(newPicture.getSpaceId(), oldPicture.getSpaceId());
+                Integer reviewStatus = oldPicture == null ? newPicture.getReviewStatus()
+                        : ObjUtil.defaultIfNull(newPicture.getReviewStatus(), oldPicture.getReviewStatus());
+                String category = oldPicture == null ? newPicture.getCategory()
+                        : ObjUtil.defaultIfNull(newPicture.getCategory(), oldPicture.getCategory());
+                this.addDelta(deltas, spaceId, reviewStatus, category, 1L);
+            }
+        }
+        deltas.values().forEach(fieldDeltas -> fieldDeltas.values().removeIf(delta -> delta == 0L));
+        deltas.values().removeIf(Map::isEmpty);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyDeltas(deltas);
+                }
+            });
+            return;
+        }
+        this.applyDeltas(deltas);
+    }
+
+    private void applyDeltas(Map<String, Map<String, Long>> deltas) {
+        deltas.forEach((scope, fieldDeltas) -> {
+            List<String> args = new ArrayList<>(fieldDeltas.size() * 2);
+            fieldDeltas.forEach((field, delta) -> {
+                args.add(field);
+                args.add(String.valueOf(delta));
+            });
+            try {
+                stringRedisTemplate.execute(INCREMENT_IF_EXISTS_SCRIPT,
+                        Collections.singletonList(KEY_PREFIX + scope), args.toArray());
+            } catch (Exception e) {
+                // 计数更新失败时删除缓存，下次查询重新构建
+                log.error("图片数量缓存更新失败, scope = {}", scope, e);
+                stringRedisTemplate.delete(KEY_PREFIX + scope);
+            }
+        });
+    }
+
+    private void addDelta(Map<String, Map<String, Long>> deltas, Long spaceId, Integer reviewStatus,
+                          String category, long delta) {
+        deltas.computeIfAbsent(toScope(spaceId), key -> new HashMap<>())
+                .merge(toField(reviewStatus, category), delta, Long::sum);
+    }
+
+    /**
+     * 读取范围内的计数，不存在时通过 GROUP BY 构建
+     */
+    private Map<Object, Object> loadCounts(Long spaceId) {
+        String key = KEY_PREFIX + toScope(spaceId);
+        Map<Object, Object> counts = stringRedisTemplate.opsForHash().entries(key);
+        if (CollUtil.isNotEmpty(counts)) {
+            return counts;
+        }
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        if (spaceId == null) {
+            queryWrapper.isNull("spaceId");
+        } else {
+            queryWrapper.eq("spaceId", spaceId);
+        }
+        queryWrapper.select("reviewStatus AS reviewStatus",
+                        "category AS category",
+                        "COUNT(*) AS count")
+                .groupBy("reviewStatus", "category");
+        Map<String, String> loaded = new HashMap<>();
+        for (Map<String, Object> result : pictureRepository.getBaseMapper().selectMaps(queryWrapper)) {
+            Object reviewStatus = result.get("reviewStatus");
+            Object category = result.get("category");
+            long count = ((Number) result.get("count")).longValue();
+            loaded.merge(toField(reviewStatus == null ? null : ((Number) reviewStatus).intValue(),
+                            category == null ? null : category.toString()),
+                    String.valueOf(count),
+                    (a, b) -> String.valueOf(Long.parseLong(a) + Long.parseLong(b)));
+        }
+        // 空范围也写入一个占位 field，避免每次都回源统计
+        loaded.putIfAbsent(toField(null, null), "0");
+        stringRedisTemplate.opsForHash().putAll(key, loaded);
+        stringRedisTemplate.expire(key, EXPIRE_SECONDS, TimeUnit.SECONDS);
+        return new HashMap<>(loaded);
+    }
+
+    /**
+     * 只支持按空间（或公共图库）、审核状态、分类过滤的查询
+     */
+    private boolean supports(PictureQueryRequest pictureQueryRequest) {
+        if (pictureQueryRequest.getSpaceId() == null && !pictureQueryRequest.isNullSpaceId()) {
+            return false;
+        }
+        return ObjUtil.isAllEmpty(pictureQueryRequest.getId(),
+                pictureQueryRequest.getUserId(),
+                pictureQueryRequest.getStartEditTime(),
+                pictureQueryRequest.getEndEditTime(),
+                pictureQueryRequest.getTags(),
+                pictureQueryRequest.getPicSize(),
+                pictureQueryRequest.getPicWidth(),
+                pictureQueryRequest.getPicHeight(),
+                pictureQueryRequest.getPicScale(),
+                pictureQueryRequest.getReviewerId())
+                && StrUtil.isAllBlank(pictureQueryRequest.getName(),
+                pictureQueryRequest.getIntroduction(),
+                pictureQueryRequest.getPicFormat(),
+                pictureQueryRequest.getSearchText(),
+                pictureQueryRequest.getReviewMessage());
+    }
+
+    private String toScope(Long spaceId) {
+        return spaceId == null ? PUBLIC_SCOPE : String.valueOf(spaceId);
+    }
+
+    private String toField(Integer reviewStatus, String category) {
+        return (reviewStatus == null ? "" : reviewStatus) + ":" + StrUtil.nullToEmpty(category);
+    }
+}
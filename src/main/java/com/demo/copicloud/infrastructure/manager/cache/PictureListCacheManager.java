@@ -0,0 +1,437 @@
+package com.demo.copicloud.infrastructure.manager.cache;
+
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.demo.copicloud.infrastructure.exception.BusinessException;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.interfaces.vo.picture.PictureVO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 图片分页列表两级缓存（Caffeine + Redis）
+ * 本地缓存直接存放解码后的对象，命中时无需反序列化；Redis 中存放 PictureVOPageCodec 编码的二进制数据
+ * 缓存 key 中带有所属范围（公共图库或某个空间）的版本号，图片发生变更时递增版本号，旧 key 自然失效；
+ * 同时通过 Redis 发布订阅通知所有节点清理本地缓存，因此可以放心调大过期时间
+ * 未命中时同一个 key 在本节点只有一个请求回源，其余请求等待其结果；可选开启跨节点的分布式锁和过期后先返回旧值再异步刷新
+ */
+@Slf4j
+@Component
+public class PictureListCacheManager implements MessageListener {
+
+    private static final String KEY_PREFIX = "CoPicCloud:listPictureVOByPage:";
+
+    private static final String VERSION_KEY_PREFIX = KEY_PREFIX + "version:";
+
+    /**
+     * 版本变更通知频道，消息格式：{scope}:{version}
+     */
+    private static final String INVALIDATE_CHANNEL = "CoPicCloud:listPictureVOByPage:invalidate";
+
+    private static final String PUBLIC_SCOPE = "public";
+
+    private static final String LOCK_KEY_PREFIX = "lock:listPictureVOByPage:";
+
+    /**
+     * 分布式锁等待时间，超时后直接回源，避免请求长时间阻塞
+     */
+    private static final long LOCK_WAIT_SECONDS = 3L;
+
+    private static final long LOCK_LEASE_SECONDS = 10L;
+
+    /**
+     * 是否使用分布式锁，保证多个节点对同一个 key 只有一个回源
+     */
+    @Value("${picture.list-cache.distributed-lock:false}")
+    private boolean distributedLock;
+
+    /**
+     * 是否在缓存逻辑过期后先返回旧值，同时在后台刷新
+     */
+    @Value("${picture.list-cache.stale-while-revalidate:false}")
+    private boolean staleWhileRevalidate;
+
+    /**
+     * 逻辑过期后旧值的最长保留时间（秒）
+     */
+    @Value("${picture.list-cache.stale-seconds:300}")
+    private long staleSeconds;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisTemplate<String, byte[]> byteRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 本地缓存的分页对象由所有命中请求共享，调用方不应修改
+     * 与 Redis 使用同一个逻辑过期时间，开启 stale-while-revalidate 时额外保留 staleSeconds
+     */
+    private final Cache<String, CachedPage> LOCAL_CACHE =
+            Caffeine.newBuilder()
+                    .initialCapacity(1024) // 初始大小
+                    .maximumSize(10000L)
+                    .expireAfter(new Expiry<String, CachedPage>() {
+                        @Override
+                        public long expireAfterCreate(String key, CachedPage value, long currentTime) {
+                            return TimeUnit.MILLISECONDS.toNanos(
+                                    Math.max(0L, physicalExpireAt(value.expireAt()) - System.currentTimeMillis()));
+                        }
+
+                        @Override
+                        public long expireAfterUpdate(String key, CachedPage value, long currentTime, long currentDuration) {
+                            return expireAfterCreate(key, value, currentTime);
+                        }
+
+                        @Override
+                        public long expireAfterRead(String key, CachedPage value, long currentTime, long currentDuration) {
+                            return currentDuration;
+                        }
+                    })
+                    .build();
+
+    /**
+     * 正在回源的 key，同一个 key 的并发请求共享同一次查询结果
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Page<PictureVO>>> LOADING = new ConcurrentHashMap<>();
+
+    /**
+     * 后台刷新线程池，队列满时放弃本次刷新，继续返回旧值
+     */
+    private final ThreadPoolExecutor refreshExecutor =
+            new ThreadPoolExecutor(1, 4, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(256),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "picture-list-cache-refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /**
+     * 本地缓存的版本号，收到通知时直接覆盖；短暂过期用于兜底丢失的通知
+     */
+    private final Cache<String, Long> LOCAL_VERSION =
+            Caffeine.newBuilder()
+                    .maximumSize(10000L)
+                    .expireAfterWrite(30L, TimeUnit.SECONDS)
+                    .build();
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 构造缓存 key
+     *
+     * @param spaceId        空间 id（为空表示公共图库）
+     * @param queryCondition 查询条件（JSON）
+     * @return 带版本号的缓存 key
+     */
+    public String buildCacheKey(Long spaceId, String queryCondition) {
+        String scope = toScope(spaceId);
+        long version = this.getVersion(scope);
+        String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes(StandardCharsets.UTF_8));
+        return KEY_PREFIX + scope + ":" + version + ":" + hashKey;
+    }
+
+    /**
+     * 查询缓存，未命中时回源并写入缓存
+     * 同一个 key 在本节点只有一个请求执行 loader，其余请求等待该结果
+     *
+     * @param cacheKey 缓存 key
+     * @param loader   回源查询
+     * @return 图片分页
+     */
+    public Page<PictureVO> getOrLoad(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        CachedPage cached = this.getEntry(cacheKey);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached.page();
+            }
+            // 逻辑过期：返回旧值，由一个后台任务刷新
+            if (staleWhileRevalidate) {
+                this.refreshAsync(cacheKey, loader, cached.page());
+                return cached.page();
+            }
+        }
+        return this.loadSingleFlight(cacheKey, loader);
+    }
+
+    /**
+     * 依次查询本地缓存和 Redis，Redis 命中时回填本地缓存
+     *
+     * @param cacheKey 缓存 key
+     * @return 缓存值（可能已逻辑过期），未命中返回 null
+     */
+    private CachedPage getEntry(String cacheKey) {
+        CachedPage cached = LOCAL_CACHE.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        cached = this.getFromRedis(cacheKey);
+        if (cached != null) {
+            LOCAL_CACHE.put(cacheKey, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Redis 中的值为 8 字节逻辑过期时间 + PictureVOPageCodec 编码的分页数据
+     */
+    private CachedPage getFromRedis(String cacheKey) {
+        byte[] data = byteRedisTemplate.opsForValue().get(cacheKey);
+        if (data == null || data.length <= Long.BYTES) {
+            return null;
+        }
+        long expireAt = ByteBuffer.wrap(data, 0, Long.BYTES).getLong();
+        Page<PictureVO> page = PictureVOPageCodec.decode(Arrays.copyOfRange(data, Long.BYTES, data.length));
+        return page == null ? null : new CachedPage(page, expireAt);
+    }
+
+    /**
+     * 写入两级缓存，逻辑过期时间 30-60 分钟随机，防止缓存雪崩
+     */
+    public void put(String cacheKey, Page<PictureVO> page) {
+        long ttlSeconds = 1800 + RandomUtil.randomInt(0, 1800);
+        long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds);
+        LOCAL_CACHE.put(cacheKey, new CachedPage(page, expireAt));
+        byte[] body = PictureVOPageCodec.encode(page);
+        byte[] data = ByteBuffer.allocate(Long.BYTES + body.length)
+                .putLong(expireAt)
+                .put(body)
+                .array();
+        byteRedisTemplate.opsForValue().set(cacheKey, data,
+                ttlSeconds + (staleWhileRevalidate ? staleSeconds : 0L), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 本节点单飞回源
+     */
+    private Page<PictureVO> loadSingleFlight(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        CompletableFuture<Page<PictureVO>> future = new CompletableFuture<>();
+        CompletableFuture<Page<PictureVO>> existing = LOADING.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            return this.await(existing);
+        }
+        try {
+            Page<PictureVO> page = this.loadAndPut(cacheKey, loader);
+            future.complete(page);
+            return page;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            LOADING.remove(cacheKey, future);
+        }
+    }
+
+    /**
+     * 后台刷新，同一个 key 同时只有一个刷新任务
+     */
+    private void refreshAsync(String cacheKey, Supplier<Page<PictureVO>> loader, Page<PictureVO> stalePage) {
+        CompletableFuture<Page<PictureVO>> future = new CompletableFuture<>();
+        if (LOADING.putIfAbsent(cacheKey, future) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    future.complete(this.loadAndPut(cacheKey, loader));
+                } catch (Exception e) {
+                    log.warn("图片列表缓存后台刷新失败, key = {}", cacheKey, e);
+                    // 刷新失败时等待者拿到旧值，下次请求会重新触发刷新
+                    future.complete(stalePage);
+                } finally {
+                    LOADING.remove(cacheKey, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOADING.remove(cacheKey, future);
+            future.complete(stalePage);
+        }
+    }
+
+    /**
+     * 回源并写入缓存，开启分布式锁时同一个 key 在所有节点中只有一个回源
+     */
+    private Page<PictureVO> loadAndPut(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        if (!distributedLock) {
+            Page<PictureVO> page = loader.get();
+            this.put(cacheKey, page);
+            return page;
+        }
+        RLock lock = redissonClient.getLock(LOCK_KEY_PREFIX + cacheKey);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(LOCK_WAIT_SECONDS, LOCK_LEASE_SECONDS, TimeUnit.SECONDS);
+            // 拿到锁（或等待超时）后先检查其他节点是否已经写入
+            CachedPage cached = this.getFromRedis(cacheKey);
+            if (cached != null && !cached.isExpired()) {
+                LOCAL_CACHE.put(cacheKey, cached);
+                return cached.page();
+            }
+            Page<PictureVO> page = loader.get();
+            this.put(cacheKey, page);
+            return page;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 恢复线程中断状态
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "获取缓存锁被中断");
+        } finally {
+            if (locked && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Page<PictureVO> await(CompletableFuture<Page<PictureVO>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private long physicalExpireAt(long expireAt) {
+        return staleWhileRevalidate ? expireAt + TimeUnit.SECONDS.toMillis(staleSeconds) : expireAt;
+    }
+
+    /**
+     * 图片发生变更后递增所属范围的版本号，并通知所有节点
+     *
+     * @param spaceId 空间 id（为空表示公共图库）
+     */
+    public void bumpVersion(Long spaceId) {
+        // 处于事务中时等提交后再失效，避免其他请求在提交前把旧数据写入新版本
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doBumpVersion(spaceId);
+                }
+            });
+            return;
+        }
+        this.doBumpVersion(spaceId);
+    }
+
+    private void doBumpVersion(Long spaceId) {
+        String scope = toScope(spaceId);
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + scope);
+            if (version == null) {
+                return;
+            }
+            this.applyVersion(scope, version);
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, scope + ":" + version);
+        } catch (Exception e) {
+            // 缓存失效失败不影响业务，最坏情况由过期时间兜底
+            log.error("图片列表缓存版本更新失败, scope = {}", scope, e);
+        }
+    }
+
+    /**
+     * 收到其他节点的版本变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String scope = StrUtil.subBefore(body, ":", true);
+        String version = StrUtil.subAfter(body, ":", true);
+        if (StrUtil.isBlank(scope) || !StrUtil.isNumeric(version)) {
+            log.warn("无法识别的缓存失效消息: {}", body);
+            return;
+        }
+        this.applyVersion(scope, Long.parseLong(version));
+    }
+
+    /**
+     * 更新本地版本号并清理该范围下的本地缓存
+     */
+    private void applyVersion(String scope, long version) {
+        Long current = LOCAL_VERSION.getIfPresent(scope);
+        if (current != null && current >= version) {
+            return;
+        }
+        LOCAL_VERSION.put(scope, version);
+        String scopePrefix = KEY_PREFIX + scope + ":";
+        LOCAL_CACHE.asMap().keySet().removeIf(key -> key.startsWith(scopePrefix));
+    }
+
+    private long getVersion(String scope) {
+        return LOCAL_VERSION.get(scope, key -> {
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY_PREFIX + key);
+            return StrUtil.isNumeric(value) ? Long.parseLong(value) : 0L;
+        });
+    }
+
+    private String toScope(Long spaceId) {
+        return spaceId == null ? PUBLIC_SCOPE : String.valueOf(spaceId);
+    }
+
+    /**
+     * 缓存值及其逻辑过期时间
+     */
+    static final class CachedPage {
+
+        private final Page<PictureVO> page;
+
+        private final long expireAt;
+
+        CachedPage(Page<PictureVO> page, long expireAt) {
+            this.page = page;
+            this.expireAt = expireAt;
+        }
+
+        Page<PictureVO> page() {
+            return page;
+        }
+
+        long expireAt() {
+            return expireAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.demo.copicloud.infrastructure.manager.cache;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.demo.copicloud.interfaces.vo.picture.PictureRenditionVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureVO;
+import com.demo.copicloud.interfaces.vo.user.UserVO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 图片分页缓存的二进制编解码
+ * 手写定长结构：每条记录先写一个字段存在位图，再按固定顺序写入非空字段，
+ * 相比 JSON 省去字段名和数字的文本化，解码时也无需反射，且保留了 PictureVO 的泛型类型
+ * 修改 PictureVO 字段时需同步修改此处并递增 FORMAT_VERSION，旧格式的缓存会被视为未命中
+ */
+@Slf4j
+public final class PictureVOPageCodec {
+
+    /**
+     * 格式版本
+     */
+    private static final byte FORMAT_VERSION = 2;
+
+    private PictureVOPageCodec() {
+    }
+
+    /**
+     * 编码
+     *
+     * @param page 图片分页
+     * @return 二进制数据
+     */
+    public static byte[] encode(Page<PictureVO> page) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(page.getCurrent());
+            out.writeLong(page.getSize());
+            out.writeLong(page.getTotal());
+            List<PictureVO> records = page.getRecords();
+            int count = records == null ? 0 : records.size();
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                writePictureVO(out, records.get(i));
+            }
+        } catch (IOException e) {
+            // 写入内存流不会抛出 IO 异常
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码
+     *
+     * @param data 二进制数据
+     * @return 图片分页，格式不匹配或数据损坏时返回 null
+     */
+    public static Page<PictureVO> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != FORMAT_VERSION) {
+                return null;
+            }
+            Page<PictureVO> page = new Page<>(in.readLong(), in.readLong(), in.readLong());
+            int count = in.readInt();
+            List<PictureVO> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                records.add(readPictureVO(in));
+            }
+            page.setRecords(records);
+            return page;
+        } catch (IOException | RuntimeException e) {
+            log.warn("图片分页缓存解码失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writePictureVO(DataOutputStream out, PictureVO vo) throws IOException {
+        int mask = 0;
+        mask |= bit(0, vo.getId());
+        mask |= bit(1, vo.getUrl());
+        mask |= bit(2, vo.getPicColor());
+        mask |= bit(3, vo.getSpaceId());
+        mask |= bit(4, vo.getThumbnailUrl());
+        mask |= bit(5, vo.getName());
+        mask |= bit(6, vo.getIntroduction());
+        mask |= bit(7, vo.getTags());
+        mask |= bit(8, vo.getCategory());
+        mask |= bit(9, vo.getPicSize());
+        mask |= bit(10, vo.getPicWidth());
+        mask |= bit(11, vo.getPicHeight());
+        mask |= bit(12, vo.getPicScale());
+        mask |= bit(13, vo.getPicFormat());
+        mask |= bit(14, vo.getUserId());
+        mask |= bit(15, vo.getCreateTime());
+        mask |= bit(16, vo.getEditTime());
+        mask |= bit(17, vo.getUpdateTime());
+        mask |= bit(18, vo.getUser());
+        mask |= bit(19, vo.getPermissionList());
+        mask |= bit(20, vo.getRenditions());
+        out.writeInt(mask);
+        if (vo.getId() != null) out.writeLong(vo.getId());
+        if (vo.getUrl() != null) writeString(out, vo.getUrl());
+        if (vo.getPicColor() != null) writeString(out, vo.getPicColor());
+        if (vo.getSpaceId() != null) out.writeLong(vo.getSpaceId());
+        if (vo.getThumbnailUrl() != null) writeString(out, vo.getThumbnailUrl());
+        if (vo.getName() != null) writeString(out, vo.getName());
+        if (vo.getIntroduction() != null) writeString(out, vo.getIntroduction());
+        if (vo.getTags() != null) writeStringList(out, vo.getTags());
+        if (vo.getCategory() != null) writeString(out, vo.getCategory());
+        if (vo.getPicSize() != null) out.writeLong(vo.getPicSize());
+        if (vo.getPicWidth() != null) out.writeInt(vo.getPicWidth());
+        if (vo.getPicHeight() != null) out.writeInt(vo.getPicHeight());
+        if (vo.getPicScale() != null) out.writeDouble(vo.getPicScale());
+        if (vo.getPicFormat() != null) writeString(out, vo.getPicFormat());
+        if (vo.getUserId() != null) out.writeLong(vo.getUserId());
+        if (vo.getCreateTime() != null) out.writeLong(vo.getCreateTime().getTime());
+        if (vo.getEditTime() != null) out.writeLong(vo.getEditTime().getTime());
+        if (vo.getUpdateTime() != null) out.writeLong(vo.getUpdateTime().getTime());
+        if (vo.getUser() != null) writeUserVO(out, vo.getUser());
+        if (vo.getPermissionList() != null) writeStringList(out, vo.getPermissionList());
+        if (vo.getRenditions() != null) writeRenditions(out, vo.getRenditions());
+    }
+
+    private static PictureVO readPictureVO(DataInputStream in) throws IOException {
+        int mask = in.readInt();
+        PictureVO vo = new PictureVO();
+        if (has(mask, 0)) vo.setId(in.readLong());
+        if (has(mask, 1)) vo.setUrl(readString(in));
+        if (has(mask, 2)) vo.setPicColor(readString(in));
+        if (has(mask, 3)) vo.setSpaceId(in.readLong());
+        if (has(mask, 4)) vo.setThumbnailUrl(readString(in));
+        if (has(mask, 5)) vo.setName(readString(in));
+        if (has(mask, 6)) vo.setIntroduction(readString(in));
+        if (has(mask, 7)) vo.setTags(readStringList(in));
+        if (has(mask, 8)) vo.setCategory(readString(in));
+        if (has(mask, 9)) vo.setPicSize(in.readLong());
+        if (has(mask, 10)) vo.setPicWidth(in.readInt());
+        if (has(mask, 11)) vo.setPicHeight(in.readInt());
+        if (has(mask, 12)) vo.setPicScale(in.readDouble());
+        if (has(mask, 13)) vo.setPicFormat(readString(in));
+        if (has(mask, 14)) vo.setUserId(in.readLong());
+        if (has(mask, 15)) vo.setCreateTime(new Date(in.readLong()));
+        if (has(mask, 16)) vo.setEditTime(new Date(in.readLong()));
+        if (has(mask, 17)) vo.setUpdateTime(new Date(in.readLong()));
+        if (has(mask, 18)) vo.setUser(readUserVO(in));
+        // 与 PictureVO 的默认值保持一致，缺省时为空列表
+        vo.setPermissionList(has(mask, 19) ? readStringList(in) : new ArrayList<>());
+        if (has(mask, 20)) vo.setRenditions(readRenditions(in));
+        return vo;
+    }
+
+    private static void writeRenditions(DataOutputStream out, List<PictureRenditionVO> renditions) throws IOException {
+        out.writeInt(renditions.size());
+        for (PictureRenditionVO rendition : renditions) {
+            out.writeInt(rendition.getWidth());
+            out.writeInt(rendition.getHeight());
+            writeString(out, rendition.getUrl());
+        }
+    }
+
+    private static List<PictureRenditionVO> readRenditions(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<PictureRenditionVO> renditions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            PictureRenditionVO rendition = new PictureRenditionVO();
+            rendition.setWidth(in.readInt());
+            rendition.setHeight(in.readInt());
+            rendition.setUrl(readString(in));
+            renditions.add(rendition);
+        }
+        return renditions;
+    }
+
+    private static void writeUserVO(DataOutputStream out, UserVO user) throws IOException {
+        int mask = 0;
+        mask |= bit(0, user.getId());
+        mask |= bit(1, user.getUserAccount());
+        mask |= bit(2, user.getUserName());
+        mask |= bit(3, user.getUserAvatar());
+        mask |= bit(4, user.getUserProfile());
+        mask |= bit(5, user.getUserRole());
+        mask |= bit(6, user.getCreateTime());
+        mask |= bit(7, user.getUpdateTime());
+        out.writeByte(mask);
+        if (user.getId() != null) out.writeLong(user.getId());
+        if (user.getUserAccount() != null) writeString(out, user.getUserAccount());
+        if (user.getUserName() != null) writeString(out, user.getUserName());
+        if (user.getUserAvatar() != null) writeString(out, user.getUserAvatar());
+        if (user.getUserProfile() != null) writeString(out, user.getUserProfile());
+        if (user.getUserRole() != null) writeString(out, user.getUserRole());
+        if (user.getCreateTime() != null) out.writeLong(user.getCreateTime().getTime());
+        if (user.getUpdateTime() != null) out.writeLong(user.getUpdateTime().getTime());
+    }
+
+    private static UserVO readUserVO(DataInputStream in) throws IOException {
+        int mask = in.readUnsignedByte();
+        UserVO user = new UserVO();
+        if (has(mask, 0)) user.setId(in.readLong());
+        if (has(mask, 1)) user.setUserAccount(readString(in));
+        if (has(mask, 2)) user.setUserName(readString(in));
+        if (has(mask, 3)) user.setUserAvatar(readString(in));
+        if (has(mask, 4)) user.setUserProfile(readString(in));
+        if (has(mask, 5)) user.setUserRole(readString(in));
+        if (has(mask, 6)) user.setCreateTime(new Date(in.readLong()));
+        if (has(mask, 7)) user.setUpdateTime(new Date(in.readLong()));
+        return user;
+    }
+
+    private static int bit(int index, Object value) {
+        return value == null ? 0 : 1 << index;
+    }
+
+    private static boolean has(int mask, int index) {
+        return (mask & (1 << index)) != 0;
+    }
+
+    /**
+     * 写入字符串（长度前缀 + UTF-8），不受 writeUTF 的 64KB 限制
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStringList(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            // 列表元素为空时写入 -1
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static List<String> readStringList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int length = in.readInt();
+            if (length < 0) {
+                values.add(null);
+                continue;
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            values.add(new String(data, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+}
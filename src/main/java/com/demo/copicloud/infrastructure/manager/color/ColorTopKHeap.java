@@ -0,0 +1,99 @@
+package com.demo.copicloud.infrastructure.manager.color;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 定长堆，保留颜色距离最小（相似度最高）的 K 个图片 id
+ * 堆顶为当前 K 个中距离最大的一项，新元素只需和堆顶比较，整体为一次线性扫描
+ * 非线程安全，每次查询单独创建
+ */
+public class ColorTopKHeap {
+
+    private final long[] ids;
+
+    private final int[] distances;
+
+    private int size;
+
+    public ColorTopKHeap(int k) {
+        this.ids = new long[k];
+        this.distances = new int[k];
+    }
+
+    /**
+     * 尝试加入一个候选
+     *
+     * @param pictureId 图片 id
+     * @param distance  与目标颜色的距离平方
+     */
+    public void offer(long pictureId, int distance) {
+        if (ids.length == 0) {
+            return;
+        }
+        if (size < ids.length) {
+            ids[size] = pictureId;
+            distances[size] = distance;
+            siftUp(size++);
+        } else if (distance < distances[0]) {
+            ids[0] = pictureId;
+            distances[0] = distance;
+            siftDown(size);
+        }
+    }
+
+    /**
+     * 按距离升序（相似度降序）导出结果，导出后堆被清空
+     */
+    public List<Long> drainSorted() {
+        Long[] result = new Long[size];
+        for (int n = size; n > 0; n--) {
+            result[n - 1] = ids[0];
+            ids[0] = ids[n - 1];
+            distances[0] = distances[n - 1];
+            siftDown(n - 1);
+        }
+        size = 0;
+        return Arrays.asList(result);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (distances[parent] >= distances[i]) {
+                break;
+            }
+            swap(parent, i);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int n) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= n) {
+                break;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < n && distances[right] > distances[left]) {
+                largest = right;
+            }
+            if (distances[i] >= distances[largest]) {
+                break;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+    }
+}
@@ -0,0 +1,186 @@
+package com.demo.copicloud.infrastructure.manager.color;
+
+import com.demo.copicloud.domain.picture.repository.PictureRepository;
+import com.demo.copicloud.infrastructure.utils.ColorSimilarityUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 空间图片主色调索引
+ * 每个空间维护一份 id + 打包 RGB 的原始数组，颜色搜图时只做一次线性扫描 + 定长堆取 TopK，
+ * 不再把整个空间的图片记录加载到内存中排序
+ */
+@Slf4j
+@Component
+public class PictureColorIndexManager {
+
+    @Resource
+    private PictureRepository pictureRepository;
+
+    /**
+     * 空间 id -> 颜色索引
+     * 索引在首次查询时懒加载，本节点的上传、删除会直接更新索引，
+     * 其他节点的写入依靠过期后重建来感知
+     */
+    private final Cache<Long, SpaceColorIndex> INDEX_CACHE =
+            Caffeine.newBuilder()
+                    .maximumSize(1000L)
+                    // 10 分钟后重建，兜底其他节点的写入
+                    .expireAfterWrite(10L, TimeUnit.MINUTES)
+                    .build();
+
+    /**
+     * 查询与目标颜色最相近的 K 张图片 id（按相似度降序）
+     *
+     * @param spaceId 空间 id
+     * @param color   目标颜色，格式为0xRRGGBB
+     * @param topK    返回数量
+     * @return 图片 id 列表
+     */
+    public List<Long> searchNearest(Long spaceId, String color, int topK) {
+        int target = ColorSimilarityUtil.parseRgb(color);
+        if (target < 0 || topK <= 0) {
+            return List.of();
+        }
+        SpaceColorIndex index = INDEX_CACHE.get(spaceId, this::loadIndex);
+        return index.nearest(target, topK);
+    }
+
+    /**
+     * 新增或更新图片颜色（仅在索引已加载时生效）
+     *
+     * @param spaceId   空间 id
+     * @param pictureId 图片 id
+     * @param picColor  图片主色调
+     */
+    public void upsert(Long spaceId, Long pictureId, String picColor) {
+        if (spaceId == null || pictureId == null) {
+            return;
+        }
+        SpaceColorIndex index = INDEX_CACHE.getIfPresent(spaceId);
+        if (index == null) {
+            return;
+        }
+        int rgb = ColorSimilarityUtil.parseRgb(picColor);
+        if (rgb < 0) {
+            index.remove(pictureId);
+        } else {
+            index.put(pictureId, rgb);
+        }
+    }
+
+    /**
+     * 从索引中移除图片
+     *
+     * @param spaceId   空间 id
+     * @param pictureId 图片 id
+     */
+    public void remove(Long spaceId, Long pictureId) {
+        if (spaceId == null || pictureId == null) {
+            return;
+        }
+        SpaceColorIndex index = INDEX_CACHE.getIfPresent(spaceId);
+        if (index != null) {
+            index.remove(pictureId);
+        }
+    }
+
+    /**
+     * 使某个空间的索引失效，下次查询时重建
+     *
+     * @param spaceId 空间 id
+     */
+    public void invalidate(Long spaceId) {
+        if (spaceId != null) {
+            INDEX_CACHE.invalidate(spaceId);
+        }
+    }
+
+    /**
+     * 从数据库构建空间颜色索引，流式扫描 id 和 picColor 两列，不保留实体对象
+     */
+    private SpaceColorIndex loadIndex(Long spaceId) {
+        SpaceColorIndex index = new SpaceColorIndex(16);
+        pictureRepository.scanPictureColor(spaceId, index::put);
+        log.info("构建空间颜色索引完成，空间 id = {}，图片数 = {}", spaceId, index.size());
+        return index;
+    }
+
+    /**
+     * 单个空间的颜色索引
+     * ids 与 colors 按下标一一对应，删除时用末尾元素填补空位，保持数组紧凑
+     */
+    static final class SpaceColorIndex {
+
+        private long[] ids;
+
+        private int[] colors;
+
+        private int size;
+
+        /**
+         * 图片 id -> 数组下标
+         */
+        private final Map<Long, Integer> positions;
+
+        SpaceColorIndex(int initialCapacity) {
+            this.ids = new long[initialCapacity];
+            this.colors = new int[initialCapacity];
+            this.positions = new HashMap<>(initialCapacity * 4 / 3 + 1);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void put(long pictureId, int rgb) {
+            Integer pos = positions.get(pictureId);
+            if (pos != null) {
+                colors[pos] = rgb;
+                return;
+            }
+            if (size == ids.length) {
+                int newCapacity = ids.length + (ids.length >> 1);
+                ids = Arrays.copyOf(ids, newCapacity);
+                colors = Arrays.copyOf(colors, newCapacity);
+            }
+            ids[size] = pictureId;
+            colors[size] = rgb;
+            positions.put(pictureId, size);
+            size++;
+        }
+
+        synchronized void remove(long pictureId) {
+            Integer pos = positions.remove(pictureId);
+            if (pos == null) {
+                return;
+            }
+            int last = --size;
+            if (pos != last) {
+                ids[pos] = ids[last];
+                colors[pos] = colors[last];
+                positions.put(ids[pos], pos);
+            }
+        }
+
+        /**
+         * 线性扫描 + 定长堆取最近的 K 个
+         */
+        synchronized List<Long> nearest(int target, int topK) {
+            ColorTopKHeap heap = new ColorTopKHeap(Math.min(topK, size));
+            for (int i = 0; i < size; i++) {
+                heap.offer(ids[i], ColorSimilarityUtil.distanceSquared(target, colors[i]));
+            }
+            return heap.drainSorted();
+        }
+    }
+}
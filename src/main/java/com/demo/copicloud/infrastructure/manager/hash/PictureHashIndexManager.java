@@ -0,0 +1,247 @@
+package com.demo.copicloud.infrastructure.manager.hash;
+
+import com.demo.copicloud.domain.picture.repository.PictureRepository;
+import com.demo.copicloud.infrastructure.utils.PerceptualHashUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 空间图片感知哈希索引（BK 树）
+ * 按汉明距离组织指纹，查找近似重复图片时只需访问距离区间内的子树，无需调用外部以图搜图接口
+ */
+@Slf4j
+@Component
+public class PictureHashIndexManager {
+
+    /**
+     * 公共图库在缓存中的 key
+     */
+    private static final long PUBLIC_SPACE_KEY = 0L;
+
+    @Resource
+    private PictureRepository pictureRepository;
+
+    /**
+     * 空间 id -> BK 树
+     * 首次查询时懒加载，本节点的写入直接更新，其他节点的写入依靠过期后重建来感知
+     */
+    private final Cache<Long, BkTree> INDEX_CACHE =
+            Caffeine.newBuilder()
+                    .maximumSize(1000L)
+                    .expireAfterWrite(10L, TimeUnit.MINUTES)
+                    .build();
+
+    /**
+     * 查找与指纹相近的图片
+     *
+     * @param spaceId     空间 id（为空表示公共图库）
+     * @param hash        目标指纹
+     * @param maxDistance 最大汉明距离
+     * @param limit       最多返回数量
+     * @return 图片 id 列表（按距离升序）
+     */
+    public List<Long> searchSimilar(Long spaceId, long hash, int maxDistance, int limit) {
+        BkTree tree = INDEX_CACHE.get(toKey(spaceId), key -> loadTree(spaceId));
+        return tree.search(hash, maxDistance, limit);
+    }
+
+    /**
+     * 新增或更新图片指纹（仅在索引已加载时生效）
+     */
+    public void upsert(Long spaceId, Long pictureId, Long hash) {
+        if (pictureId == null) {
+            return;
+        }
+        BkTree tree = INDEX_CACHE.getIfPresent(toKey(spaceId));
+        if (tree == null) {
+            return;
+        }
+        if (hash == null) {
+            tree.remove(pictureId);
+        } else {
+            tree.add(pictureId, hash);
+        }
+    }
+
+    /**
+     * 从索引中移除图片
+     */
+    public void remove(Long spaceId, Long pictureId) {
+        if (pictureId == null) {
+            return;
+        }
+        BkTree tree = INDEX_CACHE.getIfPresent(toKey(spaceId));
+        if (tree != null) {
+            tree.remove(pictureId);
+        }
+    }
+
+    private long toKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SPACE_KEY : spaceId;
+    }
+
+    private BkTree loadTree(Long spaceId) {
+        BkTree tree = new BkTree();
+        pictureRepository.scanPictureHash(spaceId, tree::add);
+        log.info("构建空间感知哈希索引完成，空间 id = {}，图片数 = {}", spaceId, tree.size());
+        return tree;
+    }
+
+    /**
+     * BK 树
+     * 相同指纹的图片挂在同一个节点上，删除时只从节点中移除 id，不调整树结构
+     */
+    static final class BkTree {
+
+        private Node root;
+
+        /**
+         * 图片 id -> 指纹，用于更新和删除
+         */
+        private final Map<Long, Long> hashById = new HashMap<>();
+
+        synchronized int size() {
+            return hashById.size();
+        }
+
+        synchronized void add(long pictureId, long hash) {
+            Long oldHash = hashById.put(pictureId, hash);
+            if (oldHash != null) {
+                if (oldHash == hash) {
+                    return;
+                }
+                Node oldNode = find(oldHash);
+                if (oldNode != null) {
+                    oldNode.pictureIds.remove(pictureId);
+                }
+            }
+            if (root == null) {
+                root = new Node(hash);
+                root.pictureIds.add(pictureId);
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int distance = PerceptualHashUtil.hammingDistance(node.hash, hash);
+                if (distance == 0) {
+                    node.pictureIds.add(pictureId);
+                    return;
+                }
+                Node child = node.getChild(distance);
+                if (child == null) {
+                    child = new Node(hash);
+                    child.pictureIds.add(pictureId);
+                    node.addChild(distance, child);
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        synchronized void remove(long pictureId) {
+            Long hash = hashById.remove(pictureId);
+            if (hash == null) {
+                return;
+            }
+            Node node = find(hash);
+            if (node != null) {
+                node.pictureIds.remove(pictureId);
+            }
+        }
+
+        synchronized List<Long> search(long hash, int maxDistance, int limit) {
+            if (root == null || limit <= 0) {
+                return List.of();
+            }
+            // 每个距离一个桶，收集完按距离从小到大输出
+            List<List<Long>> buckets = new ArrayList<>(maxDistance + 1);
+            for (int i = 0; i <= maxDistance; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                int distance = PerceptualHashUtil.hammingDistance(node.hash, hash);
+                if (distance <= maxDistance) {
+                    buckets.get(distance).addAll(node.pictureIds);
+                }
+                // 三角不等式：只有距离在 [d - max, d + max] 内的子树才可能命中
+                for (int i = 0; i < node.childCount; i++) {
+                    if (Math.abs(node.childDistances[i] - distance) <= maxDistance) {
+                        stack.push(node.childNodes[i]);
+                    }
+                }
+            }
+            List<Long> result = new ArrayList<>();
+            for (List<Long> bucket : buckets) {
+                for (Long pictureId : bucket) {
+                    if (result.size() >= limit) {
+                        return result;
+                    }
+                    result.add(pictureId);
+                }
+            }
+            return result;
+        }
+
+        private Node find(long hash) {
+            Node node = root;
+            while (node != null) {
+                int distance = PerceptualHashUtil.hammingDistance(node.hash, hash);
+                if (distance == 0) {
+                    return node;
+                }
+                node = node.getChild(distance);
+            }
+            return null;
+        }
+    }
+
+    static final class Node {
+
+        private final long hash;
+
+        private final Set<Long> pictureIds = new HashSet<>(2);
+
+        /**
+         * 子节点按需扩容，childDistances[i] 为 childNodes[i] 与当前节点的汉明距离
+         * 大部分节点只有少量子节点，避免为每个节点分配 64 个槽位
+         */
+        private byte[] childDistances = new byte[0];
+
+        private Node[] childNodes = new Node[0];
+
+        private int childCount;
+
+        Node(long hash) {
+            this.hash = hash;
+        }
+
+        Node getChild(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) {
+                    return childNodes[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            if (childCount == childNodes.length) {
+                int newCapacity = Math.max(2, childCount * 2);
+                childDistances = Arrays.copyOf(childDistances, newCapacity);
+                childNodes = Arrays.copyOf(childNodes, newCapacity);
+            }
+            childDistances[childCount] = (byte) distance;
+            childNodes[childCount] = child;
+            childCount++;
+        }
+    }
+}
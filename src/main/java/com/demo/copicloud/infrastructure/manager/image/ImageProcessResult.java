@@ -0,0 +1,61 @@
+package com.demo.copicloud.infrastructure.manager.image;
+
+import lombok.Data;
+
+/**
+ * 图片处理结果
+ */
+@Data
+public class ImageProcessResult {
+
+    /**
+     * 原图宽度
+     */
+    private int originalWidth;
+
+    /**
+     * 原图高度
+     */
+    private int originalHeight;
+
+    /**
+     * 原图格式
+     */
+    private String originalFormat;
+
+    /**
+     * 主色调，格式为 0xRRGGBB
+     */
+    private String aveColor;
+
+    /**
+     * 压缩图
+     */
+    private EncodedImage compressed;
+
+    /**
+     * 缩略图，原图过小时为空
+     */
+    private EncodedImage thumbnail;
+
+    /**
+     * 编码后的图片
+     */
+    @Data
+    public static class EncodedImage {
+
+        /**
+         * 图片内容
+         */
+        private byte[] data;
+
+        /**
+         * 图片格式（文件后缀）
+         */
+        private String format;
+
+        private int width;
+
+        private int height;
+    }
+}
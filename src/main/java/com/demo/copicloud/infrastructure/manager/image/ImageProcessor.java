@@ -0,0 +1,16 @@
+package com.demo.copicloud.infrastructure.manager.image;
+
+/**
+ * 图片处理引擎
+ * 负责解码、压缩、生成缩略图和提取主色调，替代对象存储的数据万象处理；可替换为其他实现
+ */
+public interface ImageProcessor {
+
+    /**
+     * 处理图片
+     *
+     * @param data 原图内容
+     * @return 处理结果
+     */
+    ImageProcessResult process(byte[] data);
+}
@@ -0,0 +1,243 @@
+package com.demo.copicloud.infrastructure.manager.image;
+
+import com.demo.copicloud.infrastructure.exception.BusinessException;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.*;
+
+/**
+ * 本地图片处理引擎（基于 ImageIO 和 Java2D）
+ * 处理规则与数据万象保持一致：压缩图优先编码为 WebP（运行环境没有 WebP 编码器时退化为 JPEG，带透明通道时为 PNG），
+ * 原图超过 2KB 时按原格式生成不超过 128x128 的缩略图；
+ * 图片处理占用 CPU，使用有界线程池执行，队列满时直接拒绝；
+ * 解码会按图片头声明的尺寸分配内存，解码前先校验像素数，超过 {@link #MAX_PIXELS} 的图片直接拒绝
+ */
+@Slf4j
+@Component
+public class LocalImageProcessor implements ImageProcessor {
+
+    private static final int THUMBNAIL_SIZE = 128;
+
+    private static final long THUMBNAIL_MIN_BYTES = 2 * 1024L;
+
+    private static final float JPEG_QUALITY = 0.8f;
+
+    private static final long PROCESS_TIMEOUT_SECONDS = 30L;
+
+    /**
+     * 允许处理的最大像素数（约 4000 万像素，解码后每张约占 160MB 内存）
+     */
+    public static final long MAX_PIXELS = 40_000_000L;
+
+    /**
+     * 计算主色调时最多采样的边长，超过时按步长跳过像素
+     */
+    private static final int COLOR_SAMPLE_SIZE = 256;
+
+    private static final int PROCESSOR_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final ThreadPoolExecutor processExecutor =
+            new ThreadPoolExecutor(PROCESSOR_THREADS, PROCESSOR_THREADS, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(64),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "local-image-processor");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    @PreDestroy
+    public void shutdown() {
+        processExecutor.shutdownNow();
+    }
+
+    @Override
+    public ImageProcessResult process(byte[] data) {
+        Future<ImageProcessResult> future;
+        try {
+            future = processExecutor.submit(() -> this.doProcess(data));
+        } catch (RejectedExecutionException e) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片处理繁忙，请稍后再试");
+        }
+        try {
+            return future.get(PROCESS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException businessException) {
+                throw businessException;
+            }
+            log.error("图片处理失败", e.getCause());
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理失败");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理超时");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理失败");
+        }
+    }
+
+    private ImageProcessResult doProcess(byte[] data) throws IOException {
+        // 1. 解码
+        String originalFormat;
+        BufferedImage image;
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的图片格式");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream);
+                originalFormat = normalizeFormat(reader.getFormatName());
+                checkPixels(reader);
+                image = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+        ImageProcessResult result = new ImageProcessResult();
+        result.setOriginalWidth(image.getWidth());
+        result.setOriginalHeight(image.getHeight());
+        result.setOriginalFormat(originalFormat);
+        // 2. 主色调
+        result.setAveColor(averageColor(image));
+        // 3. 压缩图
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        String compressedFormat = hasWriter("webp") ? "webp" : (hasAlpha ? "png" : "jpg");
+        result.setCompressed(encode(image, compressedFormat));
+        // 4. 缩略图
+        if (data.length > THUMBNAIL_MIN_BYTES) {
+            String thumbnailFormat = hasWriter(originalFormat) ? originalFormat : "jpg";
+            result.setThumbnail(encode(thumbnail(image, THUMBNAIL_SIZE), thumbnailFormat));
+        }
+        return result;
+    }
+
+    /**
+     * 校验图片尺寸，超过像素上限时抛出异常（只读取图片头，不解码）
+     *
+     * @param reader 已设置输入的 ImageReader
+     */
+    public static void checkPixels(ImageReader reader) throws IOException {
+        long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+        if (pixels > MAX_PIXELS) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "图片尺寸过大");
+        }
+    }
+
+    /**
+     * 等比缩放到不超过 maxSize x maxSize，原图更小时不放大
+     */
+    public static BufferedImage thumbnail(BufferedImage image, int maxSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= maxSize && height <= maxSize) {
+            return image;
+        }
+        double scale = Math.min(maxSize * 1.0 / width, maxSize * 1.0 / height);
+        return resize(image, Math.max(1, (int) Math.round(width * scale)), Math.max(1, (int) Math.round(height * scale)));
+    }
+
+    /**
+     * 缩放到指定尺寸
+     */
+    public static BufferedImage resize(BufferedImage image, int width, int height) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return resized;
+    }
+
+    /**
+     * 计算平均颜色，格式为 0xRRGGBB
+     */
+    public static String averageColor(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int stepX = Math.max(1, width / COLOR_SAMPLE_SIZE);
+        int stepY = Math.max(1, height / COLOR_SAMPLE_SIZE);
+        long red = 0L;
+        long green = 0L;
+        long blue = 0L;
+        long count = 0L;
+        for (int y = 0; y < height; y += stepY) {
+            for (int x = 0; x < width; x += stepX) {
+                int rgb = image.getRGB(x, y);
+                red += (rgb >> 16) & 0xFF;
+                green += (rgb >> 8) & 0xFF;
+                blue += rgb & 0xFF;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return "0x000000";
+        }
+        int ave = (int) (red / count) << 16 | (int) (green / count) << 8 | (int) (blue / count);
+        return String.format("0x%06X", ave);
+    }
+
+    /**
+     * 编码图片，JPEG 使用固定质量并去掉透明通道
+     */
+    public static ImageProcessResult.EncodedImage encode(BufferedImage image, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的输出格式: " + format);
+        }
+        ImageWriter writer = writers.next();
+        BufferedImage output = image;
+        ImageWriteParam writeParam = writer.getDefaultWriteParam();
+        if ("jpg".equals(format)) {
+            if (image.getColorModel().hasAlpha() || image.getType() != BufferedImage.TYPE_INT_RGB) {
+                output = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = output.createGraphics();
+                graphics.drawImage(image, 0, 0, Color.WHITE, null);
+                graphics.dispose();
+            }
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionQuality(JPEG_QUALITY);
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(output, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+        ImageProcessResult.EncodedImage encodedImage = new ImageProcessResult.EncodedImage();
+        encodedImage.setData(outputStream.toByteArray());
+        encodedImage.setFormat(format);
+        encodedImage.setWidth(output.getWidth());
+        encodedImage.setHeight(output.getHeight());
+        return encodedImage;
+    }
+
+    private static boolean hasWriter(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    private static String normalizeFormat(String formatName) {
+        String format = formatName.toLowerCase();
+        return "jpeg".equals(format) ? "jpg" : format;
+    }
+}
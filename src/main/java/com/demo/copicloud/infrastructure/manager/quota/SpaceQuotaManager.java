@@ -0,0 +1,368 @@
+package com.demo.copicloud.infrastructure.manager.quota;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.demo.copicloud.domain.picture.entity.Picture;
+import com.demo.copicloud.domain.picture.repository.PictureRepository;
+import com.demo.copicloud.domain.space.entity.Space;
+import com.demo.copicloud.domain.space.repository.SpaceRepository;
+import com.demo.copicloud.infrastructure.exception.BusinessException;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 空间额度
+ * 每个空间一个 Redis Hash 保存上限、已用量和预留量，上传前通过 Lua 脚本原子地校验并预留额度，
+ * 并发上传不会超出上限，也不必争抢 space 行锁；图片入库后确认预留（预留量转为实际用量），失败时释放
+ * 预留记录在 ZSet 中并带有过期时间，节点宕机遗留的预留会在过期后自动归还
+ * 数据库中的 totalSize / totalCount 由 SpaceUsageManager 写回，定时任务按 picture 表汇总校正数据库，
+ * 并在没有进行中的预留时比对 Redis 与数据库，不一致则删除 Redis 中的额度，下次使用时重新加载
+ */
+@Slf4j
+@Component
+public class SpaceQuotaManager {
+
+    private static final String KEY_PREFIX = "CoPicCloud:spaceQuota:";
+
+    private static final String RESERVATIONS_KEY_SUFFIX = ":reservations";
+
+    /**
+     * 已加载额度的空间 id，用于定时校正
+     */
+    private static final String SPACES_KEY = "CoPicCloud:spaceQuota:spaces";
+
+    private static final String RECONCILE_LOCK_KEY = "lock:spaceQuotaReconcile";
+
+    private static final long EXPIRE_SECONDS = 24 * 3600L;
+
+    /**
+     * 预留有效期，需覆盖一次上传和入库的耗时
+     */
+    private static final long RESERVATION_EXPIRE_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * 归还已过期的预留（预留成员格式为 {预留 id}:{大小}:{数量}）
+     */
+    private static final String PURGE_EXPIRED_LUA =
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[5]) " +
+                    "for _, member in ipairs(expired) do " +
+                    "  local size, count = string.match(member, ':(%d+):(%d+)$') " +
+                    "  redis.call('HINCRBY', KEYS[1], 'reservedSize', -tonumber(size)) " +
+                    "  redis.call('HINCRBY', KEYS[1], 'reservedCount', -tonumber(count)) " +
+                    "end " +
+                    "if #expired > 0 then redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[5]) end ";
+
+    /**
+     * 校验并预留额度：返回 -1 表示额度未加载，0 表示条数不足，2 表示大小不足，1 表示预留成功
+     * KEYS: 额度 Hash、预留 ZSet；ARGV: 预留成员、大小、数量、预留过期时间、当前时间、Key 过期秒数
+     */
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+                    PURGE_EXPIRED_LUA +
+                    "local quota = redis.call('HMGET', KEYS[1], 'maxSize', 'maxCount', 'usedSize', 'usedCount', " +
+                    "  'reservedSize', 'reservedCount') " +
+                    "local size = tonumber(ARGV[2]) " +
+                    "local count = tonumber(ARGV[3]) " +
+                    "if tonumber(quota[4]) + tonumber(quota[6]) + count > tonumber(quota[2]) then return 0 end " +
+                    "if tonumber(quota[3]) + tonumber(quota[5]) + size > tonumber(quota[1]) then return 2 end " +
+                    "redis.call('HINCRBY', KEYS[1], 'reservedSize', size) " +
+                    "redis.call('HINCRBY', KEYS[1], 'reservedCount', count) " +
+                    "redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1]) " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[6]) " +
+                    "redis.call('EXPIRE', KEYS[2], ARGV[6]) " +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 从数据库加载额度（已加载时不覆盖），预留量由现存的预留重新汇总
+     * KEYS: 额度 Hash、预留 ZSet；ARGV: 上限大小、上限条数、已用大小、已用条数、当前时间、Key 过期秒数
+     */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+                    "redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[5]) " +
+                    "local reservedSize, reservedCount = 0, 0 " +
+                    "for _, member in ipairs(redis.call('ZRANGE', KEYS[2], 0, -1)) do " +
+                    "  local size, count = string.match(member, ':(%d+):(%d+)$') " +
+                    "  reservedSize = reservedSize + tonumber(size) " +
+                    "  reservedCount = reservedCount + tonumber(count) " +
+                    "end " +
+                    "redis.call('HSET', KEYS[1], 'maxSize', ARGV[1], 'maxCount', ARGV[2], 'usedSize', ARGV[3], " +
+                    "  'usedCount', ARGV[4], 'reservedSize', reservedSize, 'reservedCount', reservedCount) " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[6]) " +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 结束预留并累加实际用量（释放预留时用量为 0），预留已过期时只累加用量
+     * KEYS: 额度 Hash、预留 ZSet；ARGV: 预留成员、实际大小、实际数量
+     */
+    private static final DefaultRedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>(
+            "local removed = redis.call('ZREM', KEYS[2], ARGV[1]) " +
+                    "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "if removed == 1 then " +
+                    "  local size, count = string.match(ARGV[1], ':(%d+):(%d+)$') " +
+                    "  redis.call('HINCRBY', KEYS[1], 'reservedSize', -tonumber(size)) " +
+                    "  redis.call('HINCRBY', KEYS[1], 'reservedCount', -tonumber(count)) " +
+                    "end " +
+                    "redis.call('HINCRBY', KEYS[1], 'usedSize', ARGV[2]) " +
+                    "redis.call('HINCRBY', KEYS[1], 'usedCount', ARGV[3]) " +
+                    "return 1",
+            Long.class);
+
+    /**
+     * 额度已加载时调整用量
+     */
+    private static final DefaultRedisScript<Long> ADJUST_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "redis.call('HINCRBY', KEYS[1], 'usedSize', ARGV[1]) " +
+                    "redis.call('HINCRBY', KEYS[1], 'usedCount', ARGV[2]) " +
+                    "return 1",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private SpaceRepository spaceRepository;
+
+    @Resource
+    private PictureRepository pictureRepository;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private SpaceUsageManager spaceUsageManager;
+
+    /**
+     * 预留额度，额度不足时抛出异常
+     *
+     * @param spaceId 空间 id
+     * @param size    预计占用的大小（未知时传 0）
+     * @param count   图片数量
+     * @return 预留凭证，用于确认或释放
+     */
+    public String reserve(Long spaceId, long size, int count) {
+        // 至少预留 1 字节，与原先“已用大小达到上限即拒绝”的语义一致
+        String reservation = String.format("%s:%d:%d", IdUtil.fastSimpleUUID(), Math.max(size, 1L), count);
+        long now = System.currentTimeMillis();
+        List<String> keys = Arrays.asList(KEY_PREFIX + spaceId, KEY_PREFIX + spaceId + RESERVATIONS_KEY_SUFFIX);
+        Long result = null;
+        for (int i = 0; i < 2; i++) {
+            result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys, reservation, String.valueOf(Math.max(size, 1L)),
+                    String.valueOf(count), String.valueOf(now + RESERVATION_EXPIRE_MILLIS), String.valueOf(now),
+                    String.valueOf(EXPIRE_SECONDS));
+            if (result == null || result != -1L) {
+                break;
+            }
+            this.load(spaceId);
+        }
+        if (result == null || result == -1L) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "额度校验失败");
+        }
+        if (result == 0L) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
+        }
+        if (result == 2L) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
+        }
+        return reservation;
+    }
+
+    /**
+     * 确认预留：图片入库（事务提交）后调用，预留量转为实际用量
+     *
+     * @param spaceId     空间 id
+     * @param reservation 预留凭证
+     * @param actualSize  实际占用的大小
+     * @param actualCount 实际入库的图片数量
+     */
+    public void commit(Long spaceId, String reservation, long actualSize, int actualCount) {
+        this.settle(spaceId, reservation, actualSize, actualCount);
+    }
+
+    /**
+     * 释放预留：上传或入库失败时调用
+     *
+     * @param spaceId     空间 id
+     * @param reservation 预留凭证，为空时忽略
+     */
+    public void release(Long spaceId, String reservation) {
+        if (spaceId == null || StrUtil.isBlank(reservation)) {
+            return;
+        }
+        this.settle(spaceId, reservation, 0L, 0);
+    }
+
+    /**
+     * 图片删除（事务提交）后归还用量
+     *
+     * @param spaceId   空间 id
+     * @param sizeDelta 大小变化量
+     * @param countDelta 数量变化量
+     */
+    public void adjustUsage(Long spaceId, long sizeDelta, int countDelta) {
+        try {
+            stringRedisTemplate.execute(ADJUST_IF_EXISTS_SCRIPT, Collections.singletonList(KEY_PREFIX + spaceId),
+                    String.valueOf(sizeDelta), String.valueOf(countDelta));
+        } catch (Exception e) {
+            log.error("空间额度更新失败, spaceId = {}", spaceId, e);
+            this.evict(spaceId);
+        }
+    }
+
+    /**
+     * 校验额度是否足够（不预留），用于上传前的提前拦截
+     */
+    public void checkAvailable(Long spaceId, long size, int count) {
+        this.release(spaceId, this.reserve(spaceId, size, count));
+    }
+
+    /**
+     * 删除 Redis 中的额度，下次使用时从数据库重新加载（空间上限修改、空间删除后调用）
+     *
+     * @param spaceId 空间 id
+     */
+    public void evict(Long spaceId) {
+        if (spaceId == null) {
+            return;
+        }
+        stringRedisTemplate.delete(KEY_PREFIX + spaceId);
+    }
+
+    /**
+     * 定时校正额度
+     * 1. 按 picture 表汇总校正 space 表的 totalSize / totalCount（仅在读取期间没有其他更新时写入）
+     * 2. 没有进行中的预留时比对 Redis 与数据库，不一致则删除 Redis 中的额度
+     * 除已加载额度的空间外，还会校正用量写回记录中已稳定的空间（节点宕机可能丢失了未写回的变化量）
+     */
+    @Scheduled(initialDelay = 5, fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void reconcile() {
+        RLock lock = redissonClient.getLock(RECONCILE_LOCK_KEY);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            Set<Long> spaceIds = new TreeSet<>();
+            Set<String> loadedSpaceIds = stringRedisTemplate.opsForSet().members(SPACES_KEY);
+            if (CollUtil.isNotEmpty(loadedSpaceIds)) {
+                loadedSpaceIds.forEach(spaceIdStr -> spaceIds.add(Long.valueOf(spaceIdStr)));
+            }
+            Map<Long, Double> dirtySpaceMap = spaceUsageManager.listSettledDirtySpaces();
+            spaceIds.addAll(dirtySpaceMap.keySet());
+            for (Long spaceId : spaceIds) {
+                try {
+                    this.reconcile(spaceId);
+                } catch (Exception e) {
+                    log.error("空间额度校正失败, spaceId = {}", spaceId, e);
+                }
+            }
+            dirtySpaceMap.values().stream().max(Double::compare)
+                    .ifPresent(spaceUsageManager::clearSettledDirtySpaces);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void reconcile(Long spaceId) {
+        // 最近有变化的空间可能还有节点未写回，数据库用量暂时落后，留到稳定后再校正
+        if (!spaceUsageManager.isSettled(spaceId)) {
+            return;
+        }
+        String key = KEY_PREFIX + spaceId;
+        boolean loaded = Boolean.TRUE.equals(stringRedisTemplate.hasKey(key));
+        if (!loaded) {
+            stringRedisTemplate.opsForSet().remove(SPACES_KEY, String.valueOf(spaceId));
+        }
+        Space space = spaceRepository.getById(spaceId);
+        if (space == null) {
+            this.evict(spaceId);
+            stringRedisTemplate.opsForSet().remove(SPACES_KEY, String.valueOf(spaceId));
+            return;
+        }
+        // 先读空间再汇总图片，汇总期间有图片入库或删除时空间行已变化，条件更新不会生效
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("spaceId", spaceId)
+                .select("COUNT(*) AS totalCount", "IFNULL(SUM(picSize), 0) AS totalSize");
+        Map<String, Object> aggregate = pictureRepository.getBaseMapper().selectMaps(queryWrapper).get(0);
+        long totalCount = ((Number) aggregate.get("totalCount")).longValue();
+        long totalSize = ((Number) aggregate.get("totalSize")).longValue();
+        if (!Objects.equals(totalCount, space.getTotalCount()) || !Objects.equals(totalSize, space.getTotalSize())) {
+            boolean updated = spaceRepository.lambdaUpdate()
+                    .eq(Space::getId, spaceId)
+                    .eq(Space::getTotalCount, space.getTotalCount())
+                    .eq(Space::getTotalSize, space.getTotalSize())
+                    .set(Space::getTotalCount, totalCount)
+                    .set(Space::getTotalSize, totalSize)
+                    .update();
+            if (updated) {
+                log.warn("校正空间用量, spaceId = {}, totalCount {} -> {}, totalSize {} -> {}", spaceId,
+                        space.getTotalCount(), totalCount, space.getTotalSize(), totalSize);
+                space.setTotalCount(totalCount);
+                space.setTotalSize(totalSize);
+            } else {
+                return;
+            }
+        }
+        if (!loaded) {
+            return;
+        }
+        // 有进行中的预留时 Redis 可能暂时落后于数据库，留到下一轮比对
+        Long reservationCount = stringRedisTemplate.opsForZSet().zCard(key + RESERVATIONS_KEY_SUFFIX);
+        if (reservationCount != null && reservationCount > 0) {
+            return;
+        }
+        List<Object> quota = stringRedisTemplate.opsForHash().multiGet(key,
+                Arrays.asList("maxSize", "maxCount", "usedSize", "usedCount"));
+        if (!Objects.equals(String.valueOf(space.getMaxSize()), quota.get(0))
+                || !Objects.equals(String.valueOf(space.getMaxCount()), quota.get(1))
+                || !Objects.equals(String.valueOf(space.getTotalSize()), quota.get(2))
+                || !Objects.equals(String.valueOf(space.getTotalCount()), quota.get(3))) {
+            log.warn("空间额度缓存与数据库不一致, spaceId = {}, 重新加载", spaceId);
+            this.evict(spaceId);
+        }
+    }
+
+    /**
+     * 从数据库加载额度
+     */
+    private void load(Long spaceId) {
+        // 合并本节点尚未写回的用量，其他节点的变化量最多落后一个写回周期，由定时校正修复
+        Space space = spaceUsageManager.applyPending(spaceRepository.getById(spaceId));
+        if (space == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+        }
+        stringRedisTemplate.execute(LOAD_SCRIPT,
+                Arrays.asList(KEY_PREFIX + spaceId, KEY_PREFIX + spaceId + RESERVATIONS_KEY_SUFFIX),
+                String.valueOf(space.getMaxSize()), String.valueOf(space.getMaxCount()),
+                String.valueOf(space.getTotalSize()), String.valueOf(space.getTotalCount()),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(EXPIRE_SECONDS));
+        stringRedisTemplate.opsForSet().add(SPACES_KEY, String.valueOf(spaceId));
+    }
+
+    private void settle(Long spaceId, String reservation, long actualSize, int actualCount) {
+        try {
+            stringRedisTemplate.execute(SETTLE_SCRIPT,
+                    Arrays.asList(KEY_PREFIX + spaceId, KEY_PREFIX + spaceId + RESERVATIONS_KEY_SUFFIX),
+                    reservation, String.valueOf(actualSize), String.valueOf(actualCount));
+        } catch (Exception e) {
+            // 更新失败时删除额度，下次从数据库重新加载；未结束的预留会在过期后归还
+            log.error("空间额度更新失败, spaceId = {}", spaceId, e);
+            this.evict(spaceId);
+        }
+    }
+}
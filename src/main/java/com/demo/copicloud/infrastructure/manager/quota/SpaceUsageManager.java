@@ -0,0 +1,218 @@
+package com.demo.copicloud.infrastructure.manager.quota;
+
+import com.demo.copicloud.domain.space.entity.Space;
+import com.demo.copicloud.domain.space.repository.SpaceRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 空间用量写回
+ * 图片入库和删除不再在事务内更新 space 行（热点空间的所有写入都会排队等待这一行的行锁），
+ * 而是在事务提交后把变化量累加到本节点内存中每个空间一组的 LongAdder 上，定时（以及应用关闭时）按空间合并后批量写回
+ * 有变化的空间会记录到 Redis ZSet（分数为最后一次变化或写回的时间），节点宕机丢失的变化量由
+ * SpaceQuotaManager 的定时校正按 picture 表汇总修复；超过 {@link #SETTLE_MILLIS} 没有变化的空间，所有节点都已写回
+ */
+@Slf4j
+@Component
+public class SpaceUsageManager {
+
+    private static final String DIRTY_KEY = "CoPicCloud:spaceUsage:dirty";
+
+    /**
+     * 空间最后一次变化后经过该时长，可以认为所有节点都已写回，数据库中的用量可用于校正
+     */
+    public static final long SETTLE_MILLIS = 60_000L;
+
+    @Resource
+    private SpaceRepository spaceRepository;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 空间 id -> 尚未写回的变化量
+     */
+    private final Map<Long, SpaceUsageDelta> deltaMap = new ConcurrentHashMap<>();
+
+    /**
+     * 记录空间用量变化（在图片事务提交后调用）
+     *
+     * @param spaceId    空间 id，为空时忽略
+     * @param sizeDelta  大小变化量
+     * @param countDelta 数量变化量
+     */
+    public void record(Long spaceId, long sizeDelta, long countDelta) {
+        if (spaceId == null) {
+            return;
+        }
+        SpaceUsageDelta delta = deltaMap.computeIfAbsent(spaceId, id -> new SpaceUsageDelta());
+        delta.size.add(sizeDelta);
+        delta.count.add(countDelta);
+        // 每个写回周期只记录一次，避免每次变化都访问 Redis
+        if (!delta.pending.get() && delta.pending.compareAndSet(false, true)) {
+            try {
+                this.markDirty(Collections.singleton(spaceId));
+            } catch (Exception e) {
+                // 写回后会再次记录
+                log.error("空间用量变化记录失败, spaceId = {}", spaceId, e);
+            }
+        }
+    }
+
+    /**
+     * 合并本节点尚未写回的变化量
+     *
+     * @param space 从数据库查询的空间，为空时忽略
+     * @return 传入的空间
+     */
+    public Space applyPending(Space space) {
+        if (space == null || space.getId() == null) {
+            return space;
+        }
+        SpaceUsageDelta delta = deltaMap.get(space.getId());
+        if (delta != null) {
+            long size = delta.size.sum();
+            long count = delta.count.sum();
+            if (size != 0 && space.getTotalSize() != null) {
+                space.setTotalSize(space.getTotalSize() + size);
+            }
+            if (count != 0 && space.getTotalCount() != null) {
+                space.setTotalCount(space.getTotalCount() + count);
+            }
+        }
+        return space;
+    }
+
+    /**
+     * 空间最近是否没有变化（所有节点都已写回）
+     *
+     * @param spaceId 空间 id
+     */
+    public boolean isSettled(Long spaceId) {
+        Double score = stringRedisTemplate.opsForZSet().score(DIRTY_KEY, String.valueOf(spaceId));
+        return score == null || score < System.currentTimeMillis() - SETTLE_MILLIS;
+    }
+
+    /**
+     * 查询已稳定且需要校正的空间（可能有节点宕机丢失了变化量）
+     *
+     * @return 空间 id 与记录时间
+     */
+    public Map<Long, Double> listSettledDirtySpaces() {
+        Set<ZSetOperations.TypedTuple<String>> tuples =
+                stringRedisTemplate.opsForZSet().rangeByScoreWithScores(DIRTY_KEY, 0,
+                        System.currentTimeMillis() - SETTLE_MILLIS);
+        if (tuples == null || tuples.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Double> spaceMap = new LinkedHashMap<>();
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            spaceMap.put(Long.valueOf(tuple.getValue()), tuple.getScore());
+        }
+        return spaceMap;
+    }
+
+    /**
+     * 校正完成后移除记录（期间又有变化的空间分数已更新，不会被移除）
+     *
+     * @param maxScore 校正前读取到的最大记录时间
+     */
+    public void clearSettledDirtySpaces(double maxScore) {
+        stringRedisTemplate.opsForZSet().removeRangeByScore(DIRTY_KEY, 0, maxScore);
+    }
+
+    /**
+     * 定时写回变化量
+     */
+    @Scheduled(initialDelayString = "${space.usage.flush-interval-ms:1000}",
+            fixedDelayString = "${space.usage.flush-interval-ms:1000}")
+    public void flush() {
+        // 按空间 id 排序，多个节点同时写回时加锁顺序一致，不会死锁
+        Map<Long, long[]> flushMap = new TreeMap<>();
+        deltaMap.forEach((spaceId, delta) -> {
+            if (!delta.pending.get()) {
+                return;
+            }
+            // 先清除标记再取值，之后的变化会重新标记
+            delta.pending.set(false);
+            long size = delta.size.sumThenReset();
+            long count = delta.count.sumThenReset();
+            if (size != 0 || count != 0) {
+                flushMap.put(spaceId, new long[]{size, count});
+            }
+        });
+        if (flushMap.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> flushMap.forEach((spaceId, usage) -> {
+                boolean update = spaceRepository.lambdaUpdate()
+                        .eq(Space::getId, spaceId)
+                        .setSql("totalSize = totalSize + " + usage[0])
+                        .setSql("totalCount = totalCount + " + usage[1])
+                        .update();
+                if (!update) {
+                    // 空间已删除
+                    log.warn("空间用量写回失败, 空间不存在, spaceId = {}", spaceId);
+                }
+            }));
+        } catch (Exception e) {
+            // 写回失败时把变化量加回去，下一轮重试
+            log.error("空间用量写回失败, 空间数量 = {}", flushMap.size(), e);
+            flushMap.forEach((spaceId, usage) -> this.record(spaceId, usage[0], usage[1]));
+            return;
+        }
+        // 以写回时间作为最后变化时间，稳定期从写回后开始计算
+        try {
+            this.markDirty(flushMap.keySet());
+        } catch (Exception e) {
+            log.error("空间用量变化记录失败", e);
+        }
+    }
+
+    /**
+     * 应用关闭前写回剩余的变化量
+     */
+    @PreDestroy
+    public void destroy() {
+        this.flush();
+    }
+
+    private void markDirty(Collection<Long> spaceIds) {
+        double now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> tuples = spaceIds.stream()
+                .map(spaceId -> ZSetOperations.TypedTuple.of(String.valueOf(spaceId), now))
+                .collect(Collectors.toSet());
+        stringRedisTemplate.opsForZSet().add(DIRTY_KEY, tuples);
+    }
+
+    /**
+     * 单个空间尚未写回的变化量
+     */
+    private static class SpaceUsageDelta {
+
+        private final LongAdder size = new LongAdder();
+
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * 本周期是否有变化
+         */
+        private final AtomicBoolean pending = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,412 @@
+package com.demo.copicloud.infrastructure.manager.rendition;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.domain.picture.entity.PictureRendition;
+import com.demo.copicloud.domain.picture.repository.PictureObjectRepository;
+import com.demo.copicloud.domain.picture.repository.PictureRenditionRepository;
+import com.demo.copicloud.infrastructure.api.COS.CosApi;
+import com.demo.copicloud.infrastructure.manager.image.ImageProcessResult;
+import com.demo.copicloud.infrastructure.manager.image.LocalImageProcessor;
+import com.demo.copicloud.infrastructure.manager.storage.ObjectStorage;
+import com.demo.copicloud.infrastructure.manager.storage.PictureFileDeletionManager;
+import com.demo.copicloud.infrastructure.manager.upload.PictureUploadTemplate;
+import com.demo.copicloud.interfaces.vo.picture.PictureRenditionVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureVO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.qcloud.cos.model.COSObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 图片多分辨率副本
+ * 按配置的宽度阶梯（默认 256/512/1024）为图片生成副本，只生成比原图窄的宽度；
+ * 组装 PictureVO 时填充已生成的副本，缺失的副本提交到后台线程生成并保存到对象存储，下次请求即可使用
+ * 数据万象模式下使用下载时处理直接得到缩放后的 WebP，本地模式（或存储后端不支持数据万象）下读取原图后用本地图片处理引擎缩放
+ * 已查询的副本按原图 url 缓存在本地，副本保存或删除时失效并通知其他节点，命中时不查询数据库
+ */
+@Slf4j
+@Component
+public class PictureRenditionManager implements MessageListener {
+
+    private static final String LOCK_KEY_PREFIX = "lock:pictureRendition:";
+
+    /**
+     * 副本变更通知频道，消息格式：{nodeId}:{原图 url}
+     */
+    private static final String INVALIDATE_CHANNEL = "CoPicCloud:pictureRendition:invalidate";
+
+    /**
+     * 当前节点标识，忽略自己发出的通知
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    @Value("${picture.rendition.widths:256,512,1024}")
+    private String renditionWidths;
+
+    @Value("${picture.image-processor:ci}")
+    private String imageProcessorType;
+
+    @Resource
+    private PictureRenditionRepository pictureRenditionRepository;
+
+    @Resource
+    private CosApi cosApi;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private PictureFileDeletionManager pictureFileDeletionManager;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 原图 url -> 已生成的副本（不可修改的列表，直接设置到缓存中的 PictureVO 上，被多个请求共享），
+     * 尚未生成时为空列表；通知丢失时最多过期后恢复
+     */
+    private final Cache<String, List<PictureRenditionVO>> renditionCache =
+            Caffeine.newBuilder()
+                    .maximumSize(100_000L)
+                    .expireAfterWrite(10L, TimeUnit.MINUTES)
+                    .build();
+
+    /**
+     * 副本缓存的失效次数，查询数据库期间发生过失效时不写入查询结果，避免覆盖为旧数据
+     */
+    private final AtomicLong invalidateCount = new AtomicLong();
+
+    /**
+     * 正在生成的副本（原图 url#宽度），避免同一节点重复提交
+     */
+    private final Set<String> GENERATING = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 副本生成线程池，队列满时放弃本次生成，下次请求时再提交
+     */
+    private final ThreadPoolExecutor renditionExecutor =
+            new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(256),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "picture-rendition");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    @PostConstruct
+    public void initialize() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renditionExecutor.shutdownNow();
+    }
+
+    /**
+     * 填充已生成的副本，并在后台生成缺失的副本
+     * 副本列表不可修改且只取决于原图 url，可以直接设置到分页缓存中被并发读取的 PictureVO 上；
+     * 本地缓存未命中的原图才查询数据库，也只对这些原图检查缺失的副本，命中时不访问数据库
+     *
+     * @param pictureVOList 图片视图
+     */
+    public void fillRenditions(List<PictureVO> pictureVOList) {
+        List<Integer> widthList = this.getWidthList();
+        if (CollUtil.isEmpty(pictureVOList) || widthList.isEmpty()) {
+            return;
+        }
+        Set<String> sourceUrls = pictureVOList.stream()
+                .map(PictureVO::getUrl)
+                .filter(StrUtil::isNotBlank)
+                .collect(Collectors.toSet());
+        Map<String, List<PictureRenditionVO>> renditionMap = new HashMap<>(renditionCache.getAllPresent(sourceUrls));
+        Set<String> loadedUrls = new HashSet<>(sourceUrls);
+        loadedUrls.removeAll(renditionMap.keySet());
+        if (!loadedUrls.isEmpty()) {
+            long invalidateCountBefore = invalidateCount.get();
+            Map<String, List<PictureRendition>> loadedMap;
+            try {
+                loadedMap = pictureRenditionRepository.listBySourceUrls(loadedUrls);
+            } catch (Exception e) {
+                // 副本只是优化，查询失败时前端使用原图
+                log.error("查询图片副本失败", e);
+                return;
+            }
+            Map<String, List<PictureRenditionVO>> loadedVOMap = new HashMap<>();
+            for (String sourceUrl : loadedUrls) {
+                loadedVOMap.put(sourceUrl, loadedMap.getOrDefault(sourceUrl, List.of()).stream()
+                        .map(this::toVO)
+                        .sorted(Comparator.comparing(PictureRenditionVO::getWidth))
+                        .collect(Collectors.toUnmodifiableList()));
+            }
+            renditionMap.putAll(loadedVOMap);
+            if (invalidateCount.get() == invalidateCountBefore) {
+                renditionCache.putAll(loadedVOMap);
+            }
+        }
+        for (PictureVO pictureVO : pictureVOList) {
+            List<PictureRenditionVO> renditionList = renditionMap.get(pictureVO.getUrl());
+            if (renditionList == null) {
+                continue;
+            }
+            pictureVO.setRenditions(renditionList);
+            if (!loadedUrls.contains(pictureVO.getUrl())) {
+                continue;
+            }
+            Set<Integer> generatedWidths = renditionList.stream()
+                    .map(PictureRenditionVO::getWidth)
+                    .collect(Collectors.toSet());
+            for (Integer width : widthList) {
+                if (!generatedWidths.contains(width) && this.needRendition(pictureVO, width)) {
+                    this.submitGeneration(pictureVO.getUrl(), pictureVO.getPicWidth(), pictureVO.getPicHeight(), width);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除原图的所有副本（删除记录，文件加入删除队列）
+     *
+     * @param sourceUrl 原图 url
+     */
+    public void removeRenditions(String sourceUrl) {
+        if (StrUtil.isBlank(sourceUrl)) {
+            return;
+        }
+        List<String> urlList = pictureRenditionRepository.removeBySourceUrl(sourceUrl).stream()
+                .map(PictureRendition::getUrl)
+                .collect(Collectors.toList());
+        pictureFileDeletionManager.enqueue(urlList);
+        // 处于事务中时提交后再失效，避免提交前又把旧记录读入缓存
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(sourceUrl, true);
+                }
+            });
+            return;
+        }
+        this.invalidate(sourceUrl, true);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // url 中含有冒号，只按第一个冒号拆分
+        String sourceNodeId = StrUtil.subBefore(body, ":", false);
+        if (nodeId.equals(sourceNodeId)) {
+            return;
+        }
+        this.invalidate(StrUtil.subAfter(body, ":", false), false);
+    }
+
+    /**
+     * 失效原图的副本缓存
+     *
+     * @param sourceUrl 原图 url
+     * @param publish   是否通知其他节点
+     */
+    private void invalidate(String sourceUrl, boolean publish) {
+        invalidateCount.incrementAndGet();
+        renditionCache.invalidate(sourceUrl);
+        if (!publish) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + ":" + sourceUrl);
+        } catch (Exception e) {
+            // 通知失败时其他节点的缓存过期后恢复
+            log.error("发送图片副本变更通知失败, sourceUrl = {}", sourceUrl, e);
+        }
+    }
+
+    private boolean needRendition(PictureVO pictureVO, int width) {
+        return pictureVO.getPicWidth() != null && pictureVO.getPicHeight() != null
+                && pictureVO.getPicWidth() > width;
+    }
+
+    private void submitGeneration(String sourceUrl, int sourceWidth, int sourceHeight, int width) {
+        String generatingKey = sourceUrl + "#" + width;
+        if (!GENERATING.add(generatingKey)) {
+            return;
+        }
+        try {
+            renditionExecutor.execute(() -> {
+                try {
+                    this.generate(sourceUrl, sourceWidth, sourceHeight, width);
+                } catch (Exception e) {
+                    log.error("生成图片副本失败, sourceUrl = {}, width = {}", sourceUrl, width, e);
+                } finally {
+                    GENERATING.remove(generatingKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            GENERATING.remove(generatingKey);
+        }
+    }
+
+    /**
+     * 生成单个副本，多个节点之间通过分布式锁避免重复生成
+     */
+    private void generate(String sourceUrl, int sourceWidth, int sourceHeight, int width) throws Exception {
+        RLock lock = redissonClient.getLock(LOCK_KEY_PREFIX + sourceUrl + ":" + width);
+        if (!lock.tryLock(0, 60, TimeUnit.SECONDS)) {
+            return;
+        }
+        try {
+            if (pictureRenditionRepository.getBySourceUrlAndWidth(sourceUrl, width) != null) {
+                return;
+            }
+            String sourceKey = objectStorage.getKey(sourceUrl);
+            int height = Math.max(1, (int) Math.round(sourceHeight * 1.0 * width / sourceWidth));
+            byte[] data;
+            String format;
+            if ("local".equals(imageProcessorType) || !objectStorage.supportsImageProcessing()) {
+                ImageProcessResult.EncodedImage encodedImage = this.resizeLocally(sourceKey, width, height);
+                if (encodedImage == null) {
+                    return;
+                }
+                data = encodedImage.getData();
+                format = encodedImage.getFormat();
+            } else {
+                format = "webp";
+                String rule = String.format("imageMogr2/thumbnail/%dx/format/%s", width, format);
+                try (COSObject cosObject = cosApi.getProcessedObject(sourceKey, rule)) {
+                    data = IoUtil.readBytes(cosObject.getObjectContent());
+                }
+            }
+            // 与原图同目录：{文件名}_w{宽度}.{格式}
+            String renditionKey = sourceKey.substring(0, sourceKey.lastIndexOf('/') + 1)
+                    + FileUtil.mainName(sourceKey) + "_w" + width + "." + format;
+            PictureRendition pictureRendition = new PictureRendition();
+            pictureRendition.setSourceUrl(sourceUrl);
+            pictureRendition.setWidth(width);
+            pictureRendition.setHeight(height);
+            pictureRendition.setUrl(objectStorage.getUrl(renditionKey));
+            pictureRendition.setPicSize((long) data.length);
+            pictureRendition.setPicFormat(format);
+            this.saveRendition(renditionKey, data, pictureRendition);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 上传副本文件并保存记录
+     * 按内容寻址的原图，其副本与原图同在 objects/ 下，上传和保存期间持有内容哈希锁，
+     * 避免删除队列在保存记录之前检查引用，删掉刚上传（覆盖）的副本文件
+     */
+    private void saveRendition(String renditionKey, byte[] data, PictureRendition pictureRendition) throws Exception {
+        String contentHash = PictureUploadTemplate.getContentHash(renditionKey);
+        RLock lock = contentHash == null ? null
+                : redissonClient.getLock(PictureObjectRepository.LOCK_KEY_PREFIX + contentHash);
+        // 删除队列只在处理一批对象期间短暂持有，等待片刻；仍获取不到时放弃，下次请求时再生成
+        if (lock != null && !lock.tryLock(3, -1, TimeUnit.SECONDS)) {
+            return;
+        }
+        try {
+            objectStorage.putObject(renditionKey, new ByteArrayInputStream(data), data.length);
+            try {
+                pictureRenditionRepository.save(pictureRendition);
+            } catch (DuplicateKeyException e) {
+                log.info("图片副本已存在, sourceUrl = {}, width = {}", pictureRendition.getSourceUrl(),
+                        pictureRendition.getWidth());
+            }
+            this.invalidate(pictureRendition.getSourceUrl(), true);
+        } finally {
+            if (lock != null && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 下载原图并在本地缩放，原图无法解码时返回 null
+     */
+    private ImageProcessResult.EncodedImage resizeLocally(String sourceKey, int width, int height) throws Exception {
+        BufferedImage image = null;
+        try (InputStream inputStream = objectStorage.getObject(sourceKey);
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(imageInputStream);
+                    // 解码前校验像素数，避免超大原图耗尽内存
+                    LocalImageProcessor.checkPixels(reader);
+                    image = reader.read(0);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+        if (image == null) {
+            log.warn("原图无法解码，跳过生成副本, key = {}", sourceKey);
+            return null;
+        }
+        BufferedImage resized = LocalImageProcessor.resize(image, width, height);
+        String format = ImageIO.getImageWritersByFormatName("webp").hasNext() ? "webp"
+                : (resized.getColorModel().hasAlpha() ? "png" : "jpg");
+        return LocalImageProcessor.encode(resized, format);
+    }
+
+    private PictureRenditionVO toVO(PictureRendition pictureRendition) {
+        PictureRenditionVO pictureRenditionVO = new PictureRenditionVO();
+        pictureRenditionVO.setWidth(pictureRendition.getWidth());
+        pictureRenditionVO.setHeight(pictureRendition.getHeight());
+        pictureRenditionVO.setUrl(pictureRendition.getUrl());
+        return pictureRenditionVO;
+    }
+
+    private List<Integer> getWidthList() {
+        if (StrUtil.isBlank(renditionWidths)) {
+            return List.of();
+        }
+        return StrUtil.split(renditionWidths, ',', true, true).stream()
+                .map(Integer::valueOf)
+                .filter(width -> width > 0)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
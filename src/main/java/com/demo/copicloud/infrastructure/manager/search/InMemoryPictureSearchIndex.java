@@ -0,0 +1,501 @@
+package com.demo.copicloud.infrastructure.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.demo.copicloud.domain.picture.entity.Picture;
+import com.demo.copicloud.infrastructure.mapper.PictureMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内图片全文检索索引
+ * 名称和简介按单字 + 相邻两字切分建立倒排表（适用于中文，无需分词器），检索时取搜索词所有二元组倒排表的交集，
+ * 再对候选逐条校验是否真正包含搜索词，结果与 LIKE '%searchText%' 一致；标签和分类为精确匹配的倒排表
+ * 索引按范围（单个空间或公共图库）划分：某个范围首次检索时在后台只加载该范围的图片（按 spaceId 路由到单表），
+ * 加载完成前由数据库查询兜底；跨空间检索不走索引。本节点的写入直接更新，并通过 Redis 发布订阅通知其他节点
+ * 内存占用：每张图片约 1KB（名称和简介共 20 字左右）到 10KB（简介约 100 字），主要是二元组倒排表。
+ * 所有范围合计最多索引 picture.search-index.max-docs 张图片，超出时淘汰最久未使用的范围；
+ * 图片数超过 picture.search-index.max-scope-docs 的范围不建索引，直接查询数据库。
+ * 图片总量或简介长度明显超出上述估算时，应换成基于磁盘的实现（例如嵌入式 Lucene，实现 PictureSearchIndex 即可替换）
+ */
+@Slf4j
+@Component
+public class InMemoryPictureSearchIndex implements PictureSearchIndex, MessageListener {
+
+    /**
+     * 图片变更通知频道，消息格式：{nodeId}:{spaceId 或 public}:{pictureId}，重建索引时为 {nodeId}:rebuild
+     */
+    private static final String REFRESH_CHANNEL = "CoPicCloud:pictureSearch:refresh";
+
+    private static final String REBUILD_MESSAGE = "rebuild";
+
+    private static final String PUBLIC_SCOPE = "public";
+
+    /**
+     * 公共图库在缓存中的 key
+     */
+    private static final long PUBLIC_SCOPE_KEY = 0L;
+
+    /**
+     * 当前节点标识，忽略自己发出的通知
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 所有范围合计最多索引的图片数量
+     */
+    @Value("${picture.search-index.max-docs:200000}")
+    private long maxDocs;
+
+    /**
+     * 单个范围最多索引的图片数量，超过时该范围直接查询数据库
+     */
+    @Value("${picture.search-index.max-scope-docs:100000}")
+    private int maxScopeDocs;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 范围 -> 索引，按加载时的图片数计算权重
+     */
+    private Cache<Long, Index> indexCache;
+
+    /**
+     * 图片数超过上限的范围，一段时间内不再尝试加载
+     */
+    private final Cache<Long, Boolean> oversizedScopes =
+            Caffeine.newBuilder()
+                    .maximumSize(10_000L)
+                    .expireAfterWrite(10L, TimeUnit.MINUTES)
+                    .build();
+
+    /**
+     * 正在加载的范围 -> 加载期间发生变更的图片，加载完成后在新索引上重放
+     */
+    private final Map<Long, Queue<Long>> loadingScopes = new ConcurrentHashMap<>();
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "picture-search-index-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void initialize() {
+        indexCache = Caffeine.newBuilder()
+                .maximumWeight(maxDocs)
+                .weigher((Long scopeKey, Index index) -> Math.max(1, index.size()))
+                .build();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    @Override
+    public Collection<Long> search(Long spaceId, boolean nullSpaceId, String searchText, List<String> tags,
+                                   String category, int maxHits) {
+        // 跨空间检索需要加载所有范围，直接查询数据库
+        if (spaceId == null && !nullSpaceId) {
+            return null;
+        }
+        long scopeKey = toScopeKey(spaceId);
+        Index current = indexCache.getIfPresent(scopeKey);
+        if (current == null) {
+            this.load(spaceId);
+            return null;
+        }
+        return current.search(spaceId, nullSpaceId, searchText, tags, category, maxHits);
+    }
+
+    @Override
+    public void refresh(Long spaceId, Long pictureId) {
+        if (pictureId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doRefresh(spaceId, pictureId, true);
+                }
+            });
+            return;
+        }
+        this.doRefresh(spaceId, pictureId, true);
+    }
+
+    /**
+     * 丢弃所有节点已加载的范围，下次检索时重新加载；本节点有范围正在加载时返回 false
+     */
+    @Override
+    public boolean rebuild() {
+        if (!loadingScopes.isEmpty()) {
+            return false;
+        }
+        this.clear();
+        stringRedisTemplate.convertAndSend(REFRESH_CHANNEL, nodeId + ":" + REBUILD_MESSAGE);
+        return true;
+    }
+
+    private void clear() {
+        indexCache.invalidateAll();
+        oversizedScopes.invalidateAll();
+        log.info("图片全文检索索引已清空，将在检索时按范围重新加载");
+    }
+
+    /**
+     * 在后台加载单个范围的索引
+     */
+    private void load(Long spaceId) {
+        long scopeKey = toScopeKey(spaceId);
+        if (oversizedScopes.getIfPresent(scopeKey) != null) {
+            return;
+        }
+        if (loadingScopes.putIfAbsent(scopeKey, new ConcurrentLinkedQueue<>()) != null) {
+            return;
+        }
+        try {
+            loadExecutor.execute(() -> {
+                try {
+                    long start = System.currentTimeMillis();
+                    Index newIndex = new Index();
+                    boolean[] oversized = {false};
+                    pictureMapper.scanPictureSearchFields(spaceId, resultContext -> {
+                        if (newIndex.size() >= maxScopeDocs) {
+                            oversized[0] = true;
+                            resultContext.stop();
+                            return;
+                        }
+                        newIndex.put(resultContext.getResultObject());
+                    });
+                    if (oversized[0]) {
+                        oversizedScopes.put(scopeKey, true);
+                        log.info("范围内图片过多，不建立全文检索索引, spaceId = {}", spaceId);
+                    } else {
+                        indexCache.put(scopeKey, newIndex);
+                        log.info("图片全文检索索引加载完成, spaceId = {}, 图片数 = {}, 耗时 = {} ms",
+                                spaceId, newIndex.size(), System.currentTimeMillis() - start);
+                    }
+                } catch (Exception e) {
+                    log.error("图片全文检索索引加载失败, spaceId = {}", spaceId, e);
+                } finally {
+                    // 重放加载期间的变更
+                    Queue<Long> pending = loadingScopes.remove(scopeKey);
+                    if (pending != null) {
+                        pending.forEach(pictureId -> this.doRefresh(spaceId, pictureId, false));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loadingScopes.remove(scopeKey);
+        }
+    }
+
+    /**
+     * 收到其他节点的图片变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<String> parts = StrUtil.split(body, ':');
+        if (nodeId.equals(parts.get(0))) {
+            return;
+        }
+        if (parts.size() == 2 && REBUILD_MESSAGE.equals(parts.get(1))) {
+            this.clear();
+            return;
+        }
+        if (parts.size() != 3 || !StrUtil.isNumeric(parts.get(2))) {
+            log.warn("无法识别的检索索引通知: {}", body);
+            return;
+        }
+        Long spaceId = PUBLIC_SCOPE.equals(parts.get(1)) ? null : Long.valueOf(parts.get(1));
+        this.doRefresh(spaceId, Long.valueOf(parts.get(2)), false);
+    }
+
+    private void doRefresh(Long spaceId, Long pictureId, boolean publish) {
+        try {
+            long scopeKey = toScopeKey(spaceId);
+            loadingScopes.computeIfPresent(scopeKey, (key, pending) -> {
+                pending.add(pictureId);
+                return pending;
+            });
+            // 只更新本节点已加载的范围
+            Index current = indexCache.getIfPresent(scopeKey);
+            if (current != null) {
+                QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("id", "spaceId", "name", "introduction", "tags", "category")
+                        .eq("id", pictureId);
+                if (spaceId == null) {
+                    queryWrapper.isNull("spaceId");
+                } else {
+                    queryWrapper.eq("spaceId", spaceId);
+                }
+                Picture picture = pictureMapper.selectOne(queryWrapper);
+                if (picture == null) {
+                    current.remove(pictureId);
+                } else {
+                    current.put(picture);
+                }
+            }
+            if (publish) {
+                stringRedisTemplate.convertAndSend(REFRESH_CHANNEL,
+                        nodeId + ":" + (spaceId == null ? PUBLIC_SCOPE : spaceId) + ":" + pictureId);
+            }
+        } catch (Exception e) {
+            // 索引更新失败不影响业务，可通过重建修复
+            log.error("图片全文检索索引更新失败, pictureId = {}", pictureId, e);
+        }
+    }
+
+    private static long toScopeKey(Long spaceId) {
+        return spaceId == null ? PUBLIC_SCOPE_KEY : spaceId;
+    }
+
+    /**
+     * 索引数据
+     */
+    static final class Index {
+
+        private final Map<Long, Doc> docs = new HashMap<>();
+
+        /**
+         * 单字 / 二元组 -> 图片 id
+         */
+        private final Map<String, Set<Long>> grams = new HashMap<>();
+
+        private final Map<String, Set<Long>> tags = new HashMap<>();
+
+        private final Map<String, Set<Long>> categories = new HashMap<>();
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return docs.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(Picture picture) {
+            Doc doc = new Doc(picture);
+            lock.writeLock().lock();
+            try {
+                this.removeInternal(doc.id);
+                docs.put(doc.id, doc);
+                for (String gram : grams(doc.name)) {
+                    grams.computeIfAbsent(gram, key -> new HashSet<>()).add(doc.id);
+                }
+                for (String gram : grams(doc.introduction)) {
+                    grams.computeIfAbsent(gram, key -> new HashSet<>()).add(doc.id);
+                }
+                for (String tag : doc.tags) {
+                    tags.computeIfAbsent(tag, key -> new HashSet<>()).add(doc.id);
+                }
+                if (doc.category != null) {
+                    categories.computeIfAbsent(doc.category, key -> new HashSet<>()).add(doc.id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long pictureId) {
+            lock.writeLock().lock();
+            try {
+                this.removeInternal(pictureId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Collection<Long> search(Long spaceId, boolean nullSpaceId, String searchText, List<String> tagList,
+                                String category, int maxHits) {
+            String text = StrUtil.isEmpty(searchText) ? null : searchText.toLowerCase();
+            lock.readLock().lock();
+            try {
+                // 收集所有条件的倒排表，从最短的开始求交集
+                List<Set<Long>> postings = new ArrayList<>();
+                if (text != null) {
+                    for (String gram : queryGrams(text)) {
+                        postings.add(grams.getOrDefault(gram, Collections.emptySet()));
+                    }
+                }
+                if (CollUtil.isNotEmpty(tagList)) {
+                    for (String tag : tagList) {
+                        postings.add(tags.getOrDefault(tag.toLowerCase(), Collections.emptySet()));
+                    }
+                }
+                if (StrUtil.isNotBlank(category)) {
+                    postings.add(categories.getOrDefault(category.toLowerCase(), Collections.emptySet()));
+                }
+                if (postings.isEmpty()) {
+                    return null;
+                }
+                postings.sort(Comparator.comparingInt(Set::size));
+                List<Long> result = new ArrayList<>();
+                for (Long pictureId : postings.get(0)) {
+                    if (!containsInAll(postings, pictureId)) {
+                        continue;
+                    }
+                    Doc doc = docs.get(pictureId);
+                    if (!doc.inScope(spaceId, nullSpaceId)) {
+                        continue;
+                    }
+                    // 二元组只能说明可能包含，需要校验完整的搜索词
+                    if (text != null && !doc.name.contains(text) && !doc.introduction.contains(text)) {
+                        continue;
+                    }
+                    if (result.size() >= maxHits) {
+                        return null;
+                    }
+                    result.add(pictureId);
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private boolean containsInAll(List<Set<Long>> postings, Long pictureId) {
+            for (int i = 1; i < postings.size(); i++) {
+                if (!postings.get(i).contains(pictureId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void removeInternal(long pictureId) {
+            Doc doc = docs.remove(pictureId);
+            if (doc == null) {
+                return;
+            }
+            for (String gram : grams(doc.name)) {
+                removePosting(grams, gram, pictureId);
+            }
+            for (String gram : grams(doc.introduction)) {
+                removePosting(grams, gram, pictureId);
+            }
+            for (String tag : doc.tags) {
+                removePosting(tags, tag, pictureId);
+            }
+            if (doc.category != null) {
+                removePosting(categories, doc.category, pictureId);
+            }
+        }
+
+        private static void removePosting(Map<String, Set<Long>> postings, String key, long pictureId) {
+            Set<Long> ids = postings.get(key);
+            if (ids != null) {
+                ids.remove(pictureId);
+                if (ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+
+        /**
+         * 文本的所有单字和相邻两字
+         */
+        private static Set<String> grams(String text) {
+            Set<String> result = new HashSet<>();
+            for (int i = 0; i < text.length(); i++) {
+                result.add(text.substring(i, i + 1));
+                if (i + 1 < text.length()) {
+                    result.add(text.substring(i, i + 2));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 搜索词只需用到二元组（单字搜索词直接使用单字）
+         */
+        private static Set<String> queryGrams(String text) {
+            if (text.length() == 1) {
+                return Set.of(text);
+            }
+            Set<String> result = new HashSet<>();
+            for (int i = 0; i + 1 < text.length(); i++) {
+                result.add(text.substring(i, i + 2));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 索引中的图片，文本统一转为小写（与 MySQL 默认排序规则一致，不区分大小写）
+     */
+    static final class Doc {
+
+        private final long id;
+
+        private final Long spaceId;
+
+        private final String name;
+
+        private final String introduction;
+
+        private final Set<String> tags;
+
+        private final String category;
+
+        Doc(Picture picture) {
+            this.id = picture.getId();
+            this.spaceId = picture.getSpaceId();
+            this.name = StrUtil.nullToEmpty(picture.getName()).toLowerCase();
+            this.introduction = StrUtil.nullToEmpty(picture.getIntroduction()).toLowerCase();
+            this.category = StrUtil.isBlank(picture.getCategory()) ? null : picture.getCategory().toLowerCase();
+            Set<String> tagSet = new HashSet<>();
+            if (JSONUtil.isTypeJSONArray(picture.getTags())) {
+                for (String tag : JSONUtil.toList(picture.getTags(), String.class)) {
+                    if (StrUtil.isNotBlank(tag)) {
+                        tagSet.add(tag.toLowerCase());
+                    }
+                }
+            }
+            this.tags = tagSet;
+        }
+
+        boolean inScope(Long spaceId, boolean nullSpaceId) {
+            if (spaceId != null) {
+                return spaceId.equals(this.spaceId);
+            }
+            return !nullSpaceId || this.spaceId == null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.demo.copicloud.infrastructure.manager.search;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 图片全文检索索引
+ * 负责名称、简介、标签、分类的检索，只返回图片 id，由调用方回表查询其余字段；
+ * 可替换为其他实现（例如嵌入式 Lucene），调用方无需改动
+ */
+public interface PictureSearchIndex {
+
+    /**
+     * 检索图片 id
+     *
+     * @param spaceId     空间 id（为空时结合 nullSpaceId 判断）
+     * @param nullSpaceId 是否只检索公共图库
+     * @param searchText  搜索词（匹配名称或简介，语义同 LIKE '%searchText%'）
+     * @param tags        标签（需全部包含）
+     * @param category    分类
+     * @param maxHits     最多命中数量
+     * @return 命中的图片 id；索引未就绪、不支持该检索范围或命中数超过 maxHits 时返回 null，调用方应退化为数据库查询
+     */
+    Collection<Long> search(Long spaceId, boolean nullSpaceId, String searchText, List<String> tags,
+                            String category, int maxHits);
+
+    /**
+     * 从数据库重新读取单张图片并更新索引（图片不存在或已删除时移除），处于事务中时在提交后执行
+     *
+     * @param spaceId   空间 id（用于分表路由）
+     * @param pictureId 图片 id
+     */
+    void refresh(Long spaceId, Long pictureId);
+
+    /**
+     * 重建整个索引（可以是异步或延迟到下次检索时加载）
+     *
+     * @return 是否开始重建（已有重建或加载任务在执行时返回 false）
+     */
+    boolean rebuild();
+}
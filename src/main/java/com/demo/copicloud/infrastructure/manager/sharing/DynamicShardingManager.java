@@ -5,11 +5,13 @@ import com.demo.copicloud.domain.space.entity.Space;
 import com.demo.copicloud.domain.space.repository.SpaceRepository;
 import com.demo.copicloud.domain.space.valueobject.SpaceLevelEnum;
 import com.demo.copicloud.domain.space.valueobject.SpaceTypeEnum;
+import cn.hutool.core.collection.CollUtil;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.shardingsphere.driver.jdbc.core.connection.ShardingSphereConnection;
 import org.apache.shardingsphere.infra.metadata.database.ShardingSphereDatabase;
+import org.apache.shardingsphere.infra.metadata.database.resource.unit.StorageUnit;
 import org.apache.shardingsphere.infra.metadata.database.rule.RuleMetaData;
 import org.apache.shardingsphere.metadata.persist.MetaDataBasedPersistService;
 import org.apache.shardingsphere.mode.manager.ContextManager;
@@ -17,19 +19,29 @@ import org.apache.shardingsphere.mode.metadata.MetaDataContexts;
 import org.apache.shardingsphere.sharding.api.config.ShardingRuleConfiguration;
 import org.apache.shardingsphere.sharding.api.config.rule.ShardingTableRuleConfiguration;
 import org.apache.shardingsphere.sharding.rule.ShardingRule;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * 动态分表管理
+ * 已创建的分表名保存在 Redis Set 中，节点启动时直接读取（首次启动时才从 space 表汇总），
+ * 新建分表时只追加一个数据节点，并通过 Redis 发布订阅通知其他节点追加，定时比对 Redis 兜底丢失的通知
+ */
 @Component
 @Slf4j
-public class DynamicShardingManager {
+public class DynamicShardingManager implements MessageListener {
 
     @Resource
     private DataSource dataSource;
@@ -37,14 +49,47 @@ public class DynamicShardingManager {
     @Resource
     private SpaceRepository spaceRepository;
 
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
     private static final String LOGIC_TABLE_NAME = "picture";
 
     private static final String DATABASE_NAME = "logic_db";
 
+    /**
+     * 已创建的分表名
+     */
+    private static final String TABLE_NAMES_KEY = "CoPicCloud:sharding:pictureTables";
+
+    /**
+     * 新建分表通知频道，消息为分表名
+     */
+    private static final String TABLE_CREATED_CHANNEL = "CoPicCloud:sharding:pictureTableCreated";
+
+    /**
+     * 本节点已注册到 ShardingSphere 的表名（包括初始表 picture）及对应的 actual-data-nodes
+     */
+    private final Set<String> registeredTableNames = new LinkedHashSet<>();
+
+    private String actualDataNodes;
+
     @PostConstruct
     public void initialize() {
         log.info("初始化动态分表配置...");
-        this.updateShardingTableNodes();
+        // 先订阅再读取，避免错过读取期间新建的分表
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(TABLE_CREATED_CHANNEL));
+        Set<String> tableNames = this.fetchAllPictureTableNames();
+        synchronized (this) {
+            registeredTableNames.add(LOGIC_TABLE_NAME);
+            registeredTableNames.addAll(tableNames);
+            actualDataNodes = registeredTableNames.stream()
+                    .map(tableName -> DATABASE_NAME + "." + tableName)
+                    .collect(Collectors.joining(","));
+            this.updateShardingTableNodes();
+        }
     }
 
     /**
@@ -57,40 +102,173 @@ public class DynamicShardingManager {
         // 仅为旗舰版团队空间创建分表
         if (space.getSpaceType() == SpaceTypeEnum.TEAM.getValue() && space.getSpaceLevel() == SpaceLevelEnum.FLAGSHIP.getValue()) {
             Long spaceId = space.getId();
-            String tableName = "picture_" + spaceId;
-            // 创建新表
-            String createTableSql = "CREATE TABLE " + tableName + " LIKE picture";
             try {
-                SqlRunner.db().update(createTableSql);
-                // 更新分表
-                this.updateShardingTableNodes();
+                this.createTable(spaceId);
+                this.registerSpacePictureTable(spaceId);
             } catch (Exception e) {
-                log.error("创建图片空间分表失败，空间 id = {}", space.getId());
+                log.error("创建图片空间分表失败，空间 id = {}", space.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * 创建图片空间分表（不注册到 ShardingSphere）
+     */
+    private void createTable(Long spaceId) {
+        String createTableSql = "CREATE TABLE IF NOT EXISTS " + getTableName(spaceId) + " LIKE picture";
+        SqlRunner.db().update(createTableSql);
+    }
+
+    /**
+     * 注册图片空间分表，之后该空间的图片路由到分表；记录到 Redis 并通知其他节点
+     *
+     * @param spaceId 空间 id
+     */
+    public void registerSpacePictureTable(Long spaceId) {
+        String tableName = getTableName(spaceId);
+        stringRedisTemplate.opsForSet().add(TABLE_NAMES_KEY, tableName);
+        this.registerTable(tableName);
+        stringRedisTemplate.convertAndSend(TABLE_CREATED_CHANNEL, tableName);
+    }
+
+    /**
+     * 分表是否已在本节点注册
+     *
+     * @param spaceId 空间 id
+     */
+    public boolean isSpacePictureTableRegistered(Long spaceId) {
+        return this.isRegistered(getTableName(spaceId));
+    }
+
+    /**
+     * 分表已被其他节点注册但本节点还没有收到通知时立即注册
+     *
+     * @param spaceId 空间 id
+     */
+    public void ensureSpacePictureTableRegistered(Long spaceId) {
+        String tableName = getTableName(spaceId);
+        if (this.isRegistered(tableName)) {
+            return;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(TABLE_NAMES_KEY, tableName))) {
+            this.registerTable(tableName);
+        }
+    }
+
+    /**
+     * 获取 ShardingSphere 底层的实际数据源，用于直接读写未注册的分表
+     */
+    public DataSource getActualDataSource() {
+        ShardingSphereDatabase database = getContextManager().getMetaDataContexts().getMetaData().getDatabase(DATABASE_NAME);
+        if (database == null) {
+            throw new IllegalStateException("ShardingSphere 中未找到指定数据库: " + DATABASE_NAME);
+        }
+        StorageUnit storageUnit = database.getResourceMetaData().getStorageUnits().get(DATABASE_NAME);
+        if (storageUnit == null) {
+            throw new IllegalStateException("ShardingSphere 中未找到数据源: " + DATABASE_NAME);
+        }
+        return storageUnit.getDataSource();
+    }
+
+    /**
+     * 获取图片空间分表名
+     *
+     * @param spaceId 空间 id
+     */
+    public static String getTableName(Long spaceId) {
+        return LOGIC_TABLE_NAME + "_" + spaceId;
+    }
+
+    /**
+     * 收到其他节点新建分表的通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String tableName = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (!tableName.startsWith(LOGIC_TABLE_NAME + "_")) {
+            log.warn("无法识别的分表通知: {}", tableName);
+            return;
+        }
+        try {
+            this.registerTable(tableName);
+        } catch (Exception e) {
+            log.error("注册分表失败, tableName = {}", tableName, e);
+        }
+    }
+
+    /**
+     * 定时比对 Redis 中的分表，补注册丢失通知的分表
+     */
+    @Scheduled(initialDelay = 5, fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void syncTables() {
+        Set<String> tableNames = stringRedisTemplate.opsForSet().members(TABLE_NAMES_KEY);
+        if (CollUtil.isEmpty(tableNames)) {
+            return;
+        }
+        for (String tableName : tableNames) {
+            if (!this.isRegistered(tableName)) {
+                log.info("补注册分表: {}", tableName);
+                this.registerTable(tableName);
             }
         }
     }
 
     /**
-     * 获取所有动态表名，包括初始表 picture 和分表 picture_{spaceId}
+     * 追加一个分表到 actual-data-nodes，已注册时忽略
+     */
+    private synchronized void registerTable(String tableName) {
+        if (registeredTableNames.contains(tableName)) {
+            return;
+        }
+        String previousActualDataNodes = actualDataNodes;
+        registeredTableNames.add(tableName);
+        actualDataNodes = actualDataNodes + "," + DATABASE_NAME + "." + tableName;
+        try {
+            this.updateShardingTableNodes();
+        } catch (RuntimeException e) {
+            // 注册失败时回滚本地记录，通知重发或定时比对时重试
+            registeredTableNames.remove(tableName);
+            actualDataNodes = previousActualDataNodes;
+            throw e;
+        }
+    }
+
+    private synchronized boolean isRegistered(String tableName) {
+        return registeredTableNames.contains(tableName);
+    }
+
+    /**
+     * 获取所有分表名 picture_{spaceId}
+     * 优先读取 Redis 中的记录，不存在时（首次启动）从 space 表汇总后写入 Redis
      */
     private Set<String> fetchAllPictureTableNames() {
+        Set<String> cachedTableNames = stringRedisTemplate.opsForSet().members(TABLE_NAMES_KEY);
+        if (CollUtil.isNotEmpty(cachedTableNames)) {
+            return cachedTableNames;
+        }
         // 仅对旗舰版的团队空间才创建分表
         Set<Long> spaceIds = spaceRepository.lambdaQuery()
+                .select(Space::getId)
                 .eq(Space::getSpaceType, SpaceTypeEnum.TEAM.getValue())
                 .eq(Space::getSpaceLevel, SpaceLevelEnum.FLAGSHIP.getValue())
                 .list()
                 .stream()
                 .map(Space::getId)
                 .collect(Collectors.toSet());
+        // 升级为旗舰版后数据还在迁移的空间仍使用 picture 表，迁移完成时再注册
+        Set<Long> migratingSpaceIds = PictureMigrationManager.listMigratingSpaceIds(stringRedisTemplate);
         Set<String> tableNames = spaceIds.stream()
-                .map(spaceId -> LOGIC_TABLE_NAME + "_" + spaceId)
-                .collect(Collectors.toSet());
-        tableNames.add(LOGIC_TABLE_NAME); // 添加初始逻辑表
+                .filter(spaceId -> !migratingSpaceIds.contains(spaceId))
+                .map(DynamicShardingManager::getTableName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (!tableNames.isEmpty()) {
+            stringRedisTemplate.opsForSet().add(TABLE_NAMES_KEY, tableNames.toArray(new String[0]));
+        }
         return tableNames;
     }
 
     /**
-     * 更新 ShardingSphere 的 actual-data-nodes 动态表名配置
+     * 使用当前的 actual-data-nodes 更新 ShardingSphere 的分表规则
      */
     private void updateShardingTableNodes() {
         ContextManager contextManager = getContextManager();
@@ -107,13 +285,8 @@ public class DynamicShardingManager {
         Optional<ShardingRule> shardingRule = ruleMetaData.findSingleRule(ShardingRule.class);
         if (shardingRule.isPresent()) {
             ShardingRuleConfiguration ruleConfig = shardingRule.get().getConfiguration();
-
-            // 动态生成 actualDataNodes
-            Set<String> tableNames = this.fetchAllPictureTableNames();
-            String newActualDataNodes = tableNames.stream()
-                    .map(tableName -> DATABASE_NAME + "." + tableName)
-                    .collect(Collectors.joining(","));
-            log.info("动态分表 actual-data-nodes 配置: {}", newActualDataNodes);
+            String newActualDataNodes = actualDataNodes;
+            log.info("动态分表 actual-data-nodes 更新, 表数量: {}", registeredTableNames.size());
 
             // 更新分表规则配置
             List<ShardingTableRuleConfiguration> updatedRules = ruleConfig.getTables()
@@ -0,0 +1,475 @@
+package com.demo.copicloud.infrastructure.manager.sharing;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.utils.ThrowUtils;
+import com.demo.copicloud.interfaces.vo.space.PictureMigrationVO;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * 空间图片在线迁移到分表
+ * 团队空间升级为旗舰版后，其已有图片还在 picture 表中，按以下阶段迁移到 picture_{spaceId}，迁移期间空间可正常使用：
+ * 1. copying：创建分表但暂不注册（读写仍路由到 picture 表），按 id 分批复制，每批之间休眠限流
+ * 2. catching_up：按 updateTime 补复制复制期间新增或修改的图片（删除是逻辑删除，同样会更新 updateTime），
+ * 直到一轮补复制的数量少于一批
+ * 3. switching：短暂禁止该空间的图片写入，等待进行中的写入提交后做最后一次补复制，
+ * 把 picture 表中的旧数据标记为已迁移（逻辑删除，只按 id 查询时会访问所有表，避免查到两条），再注册分表切换路由；
+ * 标记到注册之间（其他节点为收到注册通知之前）该空间的查询会短暂查不到图片
+ * 4. purging：分批物理删除 picture 表中已标记的旧数据，每批之间休眠限流
+ * 进度保存在 Redis，节点宕机后由定时任务从断点继续；同一空间通过分布式锁保证只有一个节点在迁移
+ * 复制和清理直接访问 ShardingSphere 底层的数据源，不经过分片路由
+ */
+@Slf4j
+@Component
+public class PictureMigrationManager {
+
+    private static final String KEY_PREFIX = "CoPicCloud:pictureMigration:";
+
+    /**
+     * 未完成迁移的空间 id
+     */
+    private static final String ACTIVE_KEY = KEY_PREFIX + "active";
+
+    private static final String LOCK_KEY_PREFIX = "lock:pictureMigration:";
+
+    public static final String PHASE_COPYING = "copying";
+
+    public static final String PHASE_CATCHING_UP = "catching_up";
+
+    public static final String PHASE_SWITCHING = "switching";
+
+    public static final String PHASE_PURGING = "purging";
+
+    public static final String PHASE_DONE = "done";
+
+    /**
+     * 已迁移到分表的旧数据的 isDelete 值，与用户删除的数据（1）区分，切换失败时据此恢复
+     */
+    private static final int MIGRATED_DELETE_FLAG = 2;
+
+    /**
+     * 完成后进度保留时间
+     */
+    private static final long DONE_EXPIRE_SECONDS = 7 * 24 * 3600L;
+
+    /**
+     * 补复制轮数上限，达到后直接进入切换，由最后一次补复制兜底
+     */
+    private static final int MAX_CATCH_UP_ROUNDS = 10;
+
+    /**
+     * 每打印一次进度间隔的批数
+     */
+    private static final int LOG_INTERVAL_BATCHES = 20;
+
+    /**
+     * 每批处理的图片数量
+     */
+    @Value("${picture.migration.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 每批之间的休眠时间（毫秒），用于限制对数据库的压力
+     */
+    @Value("${picture.migration.batch-interval-ms:100}")
+    private long batchIntervalMillis;
+
+    /**
+     * 禁止写入后等待进行中写入提交的时间（毫秒），需大于图片入库事务的耗时
+     */
+    @Value("${picture.migration.freeze-grace-ms:2000}")
+    private long freezeGraceMillis;
+
+    @Resource
+    private DynamicShardingManager dynamicShardingManager;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 迁移线程，同一时刻本节点只迁移一个空间
+     */
+    private final ThreadPoolExecutor migrationExecutor =
+            new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "picture-migration");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    /**
+     * 本节点已提交的迁移，避免重复提交
+     */
+    private final Set<Long> submittedSpaceIds = ConcurrentHashMap.newKeySet();
+
+    @PreDestroy
+    public void shutdown() {
+        migrationExecutor.shutdownNow();
+    }
+
+    /**
+     * 开始迁移空间图片（分表已注册时忽略，已有未完成的迁移时继续执行）
+     *
+     * @param spaceId 空间 id
+     */
+    public void start(Long spaceId) {
+        if (dynamicShardingManager.isSpacePictureTableRegistered(spaceId)) {
+            return;
+        }
+        String key = KEY_PREFIX + spaceId;
+        Object phase = stringRedisTemplate.opsForHash().get(key, "phase");
+        if (phase == null || PHASE_DONE.equals(phase)) {
+            stringRedisTemplate.delete(key);
+            Map<String, String> progress = new HashMap<>();
+            progress.put("phase", PHASE_COPYING);
+            progress.put("lastId", "0");
+            progress.put("startTime", String.valueOf(System.currentTimeMillis()));
+            progress.put("updateTime", String.valueOf(System.currentTimeMillis()));
+            stringRedisTemplate.opsForHash().putAll(key, progress);
+        }
+        stringRedisTemplate.opsForSet().add(ACTIVE_KEY, String.valueOf(spaceId));
+        log.info("开始迁移空间图片到分表, spaceId = {}", spaceId);
+        this.submit(spaceId);
+    }
+
+    /**
+     * 校验空间当前能否写入图片，在图片入库、修改、删除的事务前调用
+     * 切换路由期间禁止写入；已切换的空间在本节点还未注册分表时立即注册
+     *
+     * @param spaceId 空间 id，为空时忽略
+     */
+    public void checkWritable(Long spaceId) {
+        if (spaceId == null) {
+            return;
+        }
+        Object phase = stringRedisTemplate.opsForHash().get(KEY_PREFIX + spaceId, "phase");
+        if (phase == null) {
+            return;
+        }
+        ThrowUtils.throwIf(PHASE_SWITCHING.equals(phase), ErrorCode.OPERATION_ERROR, "空间数据迁移中，请稍后重试");
+        if (PHASE_PURGING.equals(phase) || PHASE_DONE.equals(phase)) {
+            dynamicShardingManager.ensureSpacePictureTableRegistered(spaceId);
+        }
+    }
+
+    /**
+     * 获取迁移进度
+     *
+     * @param spaceId 空间 id
+     * @return 迁移进度，没有迁移记录时返回 null
+     */
+    public PictureMigrationVO getProgress(Long spaceId) {
+        Map<Object, Object> progress = stringRedisTemplate.opsForHash().entries(KEY_PREFIX + spaceId);
+        if (CollUtil.isEmpty(progress)) {
+            return null;
+        }
+        PictureMigrationVO pictureMigrationVO = new PictureMigrationVO();
+        pictureMigrationVO.setSpaceId(spaceId);
+        pictureMigrationVO.setPhase((String) progress.get("phase"));
+        pictureMigrationVO.setTotal(getLong(progress, "total"));
+        pictureMigrationVO.setCopied(getLong(progress, "copied"));
+        pictureMigrationVO.setCaughtUp(getLong(progress, "caughtUp"));
+        pictureMigrationVO.setPurged(getLong(progress, "purged"));
+        pictureMigrationVO.setStartTime(new Date(getLong(progress, "startTime")));
+        pictureMigrationVO.setUpdateTime(new Date(getLong(progress, "updateTime")));
+        pictureMigrationVO.setErrorMessage((String) progress.get("errorMessage"));
+        return pictureMigrationVO;
+    }
+
+    /**
+     * 继续未完成的迁移（节点重启或迁移失败后）
+     */
+    @Scheduled(initialDelay = 1, fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void resume() {
+        Set<String> spaceIds = stringRedisTemplate.opsForSet().members(ACTIVE_KEY);
+        if (CollUtil.isEmpty(spaceIds)) {
+            return;
+        }
+        spaceIds.forEach(spaceId -> this.submit(Long.valueOf(spaceId)));
+    }
+
+    /**
+     * 查询还未切换路由的迁移中空间 id（这些空间的图片仍在 picture 表中）
+     */
+    public static Set<Long> listMigratingSpaceIds(StringRedisTemplate stringRedisTemplate) {
+        Set<String> spaceIds = stringRedisTemplate.opsForSet().members(ACTIVE_KEY);
+        if (CollUtil.isEmpty(spaceIds)) {
+            return Collections.emptySet();
+        }
+        return spaceIds.stream()
+                .filter(spaceId -> {
+                    Object phase = stringRedisTemplate.opsForHash().get(KEY_PREFIX + spaceId, "phase");
+                    return PHASE_COPYING.equals(phase) || PHASE_CATCHING_UP.equals(phase)
+                            || PHASE_SWITCHING.equals(phase);
+                })
+                .map(Long::valueOf)
+                .collect(Collectors.toSet());
+    }
+
+    private void submit(Long spaceId) {
+        if (!submittedSpaceIds.add(spaceId)) {
+            return;
+        }
+        migrationExecutor.execute(() -> {
+            try {
+                this.migrate(spaceId);
+            } finally {
+                submittedSpaceIds.remove(spaceId);
+            }
+        });
+    }
+
+    /**
+     * 从当前阶段继续迁移
+     */
+    private void migrate(Long spaceId) {
+        RLock lock = redissonClient.getLock(LOCK_KEY_PREFIX + spaceId);
+        if (!lock.tryLock()) {
+            return;
+        }
+        String key = KEY_PREFIX + spaceId;
+        try {
+            String phase = (String) stringRedisTemplate.opsForHash().get(key, "phase");
+            if (phase == null || PHASE_DONE.equals(phase)) {
+                stringRedisTemplate.opsForSet().remove(ACTIVE_KEY, String.valueOf(spaceId));
+                return;
+            }
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dynamicShardingManager.getActualDataSource());
+            String tableName = DynamicShardingManager.getTableName(spaceId);
+            if (PHASE_COPYING.equals(phase)) {
+                this.copy(jdbcTemplate, spaceId, tableName);
+                phase = this.updatePhase(key, PHASE_CATCHING_UP);
+            }
+            if (PHASE_CATCHING_UP.equals(phase)) {
+                this.catchUp(jdbcTemplate, spaceId, tableName);
+                phase = this.updatePhase(key, PHASE_SWITCHING);
+            }
+            if (PHASE_SWITCHING.equals(phase)) {
+                this.switchRouting(jdbcTemplate, spaceId, tableName);
+                phase = this.updatePhase(key, PHASE_PURGING);
+            }
+            if (PHASE_PURGING.equals(phase)) {
+                this.purge(jdbcTemplate, spaceId);
+                this.updatePhase(key, PHASE_DONE);
+                stringRedisTemplate.expire(key, DONE_EXPIRE_SECONDS, TimeUnit.SECONDS);
+                stringRedisTemplate.opsForSet().remove(ACTIVE_KEY, String.valueOf(spaceId));
+                log.info("空间图片迁移完成, spaceId = {}", spaceId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 保留当前阶段，由定时任务重试
+            log.error("空间图片迁移失败, spaceId = {}", spaceId, e);
+            stringRedisTemplate.opsForHash().put(key, "errorMessage", StrUtil.maxLength(e.getMessage(), 500));
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 按 id 分批复制，从上次复制到的 id 继续
+     */
+    private void copy(JdbcTemplate jdbcTemplate, Long spaceId, String tableName) throws InterruptedException {
+        String key = KEY_PREFIX + spaceId;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + tableName + " LIKE picture");
+        // 记录复制开始时间，之后变化的图片由补复制处理（多减 1 秒覆盖 updateTime 的精度）
+        if (stringRedisTemplate.opsForHash().get(key, "catchUpFrom") == null) {
+            Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM picture WHERE spaceId = ?", Long.class, spaceId);
+            Map<String, String> progress = new HashMap<>();
+            progress.put("catchUpFrom", String.valueOf(this.getDatabaseTime(jdbcTemplate) - 1000L));
+            progress.put("total", String.valueOf(total));
+            stringRedisTemplate.opsForHash().putAll(key, progress);
+        }
+        long lastId = Long.parseLong((String) stringRedisTemplate.opsForHash().get(key, "lastId"));
+        int batches = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM picture WHERE spaceId = ? AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, spaceId, lastId, batchSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            long firstBatchId = ids.get(0);
+            lastId = ids.get(ids.size() - 1);
+            jdbcTemplate.update("REPLACE INTO " + tableName + " SELECT * FROM picture WHERE spaceId = ? AND id BETWEEN ? AND ?",
+                    spaceId, firstBatchId, lastId);
+            stringRedisTemplate.opsForHash().put(key, "lastId", String.valueOf(lastId));
+            this.addProgress(key, "copied", ids.size());
+            if (++batches % LOG_INTERVAL_BATCHES == 0) {
+                log.info("空间图片迁移进度, spaceId = {}, 已复制 {} / {}", spaceId,
+                        stringRedisTemplate.opsForHash().get(key, "copied"), stringRedisTemplate.opsForHash().get(key, "total"));
+            }
+            Thread.sleep(batchIntervalMillis);
+        }
+    }
+
+    /**
+     * 多轮补复制，直到一轮变化的图片少于一批
+     */
+    private void catchUp(JdbcTemplate jdbcTemplate, Long spaceId, String tableName) throws InterruptedException {
+        for (int round = 0; round < MAX_CATCH_UP_ROUNDS; round++) {
+            int changed = this.catchUpOnce(jdbcTemplate, spaceId, tableName, true);
+            if (changed < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 复制上次补复制之后变化的图片，并推进补复制的起始时间
+     *
+     * @param throttle 是否在每批之间休眠
+     * @return 本轮复制的数量
+     */
+    private int catchUpOnce(JdbcTemplate jdbcTemplate, Long spaceId, String tableName, boolean throttle)
+            throws InterruptedException {
+        String key = KEY_PREFIX + spaceId;
+        Timestamp since = new Timestamp(Long.parseLong((String) stringRedisTemplate.opsForHash().get(key, "catchUpFrom")));
+        long roundStart = this.getDatabaseTime(jdbcTemplate);
+        int changed = 0;
+        long lastId = 0L;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM picture WHERE spaceId = ? AND updateTime >= ? AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, spaceId, since, lastId, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(","));
+            List<Object> args = new ArrayList<>(ids.size() + 1);
+            args.add(spaceId);
+            args.addAll(ids);
+            jdbcTemplate.update("REPLACE INTO " + tableName + " SELECT * FROM picture WHERE spaceId = ? AND id IN ("
+                    + placeholders + ")", args.toArray());
+            changed += ids.size();
+            lastId = ids.get(ids.size() - 1);
+            if (throttle) {
+                Thread.sleep(batchIntervalMillis);
+            }
+        }
+        stringRedisTemplate.opsForHash().put(key, "catchUpFrom", String.valueOf(roundStart - 1000L));
+        this.addProgress(key, "caughtUp", changed);
+        return changed;
+    }
+
+    /**
+     * 禁止写入后完成最后一次补复制，标记 picture 表中的旧数据后注册分表
+     */
+    private void switchRouting(JdbcTemplate jdbcTemplate, Long spaceId, String tableName) throws InterruptedException {
+        String key = KEY_PREFIX + spaceId;
+        // 上次已注册但未更新阶段（节点宕机），旧数据已标记
+        dynamicShardingManager.ensureSpacePictureTableRegistered(spaceId);
+        if (dynamicShardingManager.isSpacePictureTableRegistered(spaceId)) {
+            return;
+        }
+        int changed;
+        try {
+            // 恢复上次切换中断时标记的旧数据，重新补复制
+            this.unmarkMigrated(jdbcTemplate, spaceId);
+            // 阶段已写入 Redis，新的写入会被拒绝；等待已通过校验的写入提交
+            Thread.sleep(freezeGraceMillis);
+            changed = this.catchUpOnce(jdbcTemplate, spaceId, tableName, false);
+            // 注册前标记旧数据，注册后只按 id 查询时不会同时查到两张表中的同一张图片
+            this.markMigrated(jdbcTemplate, spaceId);
+            dynamicShardingManager.registerSpacePictureTable(spaceId);
+        } catch (InterruptedException | RuntimeException e) {
+            // 切换失败时恢复旧数据和写入，下次重试重新补复制
+            if (!dynamicShardingManager.isSpacePictureTableRegistered(spaceId)) {
+                this.unmarkMigrated(jdbcTemplate, spaceId);
+                this.updatePhase(key, PHASE_CATCHING_UP);
+            }
+            throw e;
+        }
+        log.info("空间图片已切换到分表, spaceId = {}, 最后补复制 {} 张", spaceId, changed);
+    }
+
+    /**
+     * 分批标记 picture 表中已迁移的旧数据（写入已冻结，不限流）
+     * 显式保留 updateTime，避免触发 ON UPDATE 后被补复制当作变化的图片
+     */
+    private void markMigrated(JdbcTemplate jdbcTemplate, Long spaceId) {
+        String key = KEY_PREFIX + spaceId;
+        while (jdbcTemplate.update("UPDATE picture SET isDelete = ?, updateTime = updateTime "
+                + "WHERE spaceId = ? AND isDelete = 0 LIMIT ?", MIGRATED_DELETE_FLAG, spaceId, batchSize) > 0) {
+            this.touch(key);
+        }
+    }
+
+    /**
+     * 恢复标记的旧数据
+     */
+    private void unmarkMigrated(JdbcTemplate jdbcTemplate, Long spaceId) {
+        int restored = jdbcTemplate.update("UPDATE picture SET isDelete = 0, updateTime = updateTime "
+                + "WHERE spaceId = ? AND isDelete = ?", spaceId, MIGRATED_DELETE_FLAG);
+        if (restored > 0) {
+            log.info("恢复空间已标记迁移的图片, spaceId = {}, 数量 = {}", spaceId, restored);
+        }
+    }
+
+    /**
+     * 分批物理删除 picture 表中已迁移的图片（切换时已全部逻辑删除）
+     */
+    private void purge(JdbcTemplate jdbcTemplate, Long spaceId) throws InterruptedException {
+        String key = KEY_PREFIX + spaceId;
+        int batches = 0;
+        int deleted;
+        while ((deleted = jdbcTemplate.update("DELETE FROM picture WHERE spaceId = ? LIMIT ?", spaceId, batchSize)) > 0) {
+            this.addProgress(key, "purged", deleted);
+            if (++batches % LOG_INTERVAL_BATCHES == 0) {
+                log.info("空间图片迁移清理进度, spaceId = {}, 已清理 {}", spaceId,
+                        stringRedisTemplate.opsForHash().get(key, "purged"));
+            }
+            Thread.sleep(batchIntervalMillis);
+        }
+    }
+
+    private String updatePhase(String key, String phase) {
+        stringRedisTemplate.opsForHash().put(key, "phase", phase);
+        this.touch(key);
+        log.info("空间图片迁移进入阶段 {}, key = {}", phase, key);
+        return phase;
+    }
+
+    private void addProgress(String key, String field, long delta) {
+        stringRedisTemplate.opsForHash().increment(key, field, delta);
+        this.touch(key);
+    }
+
+    private void touch(String key) {
+        stringRedisTemplate.opsForHash().put(key, "updateTime", String.valueOf(System.currentTimeMillis()));
+    }
+
+    /**
+     * 以数据库时间为准，避免应用与数据库的时钟偏差导致漏复制
+     */
+    private long getDatabaseTime(JdbcTemplate jdbcTemplate) {
+        Timestamp now = jdbcTemplate.queryForObject("SELECT NOW()", Timestamp.class);
+        return now == null ? System.currentTimeMillis() : now.getTime();
+    }
+
+    private static long getLong(Map<Object, Object> progress, String field) {
+        Object value = progress.get(field);
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+}
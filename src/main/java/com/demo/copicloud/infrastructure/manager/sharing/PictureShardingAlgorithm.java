@@ -1,13 +1,29 @@
 package com.demo.copicloud.infrastructure.manager.sharing;
 
+import cn.hutool.core.util.NumberUtil;
+import com.google.common.collect.Range;
 import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
 import org.apache.shardingsphere.sharding.api.sharding.standard.RangeShardingValue;
 import org.apache.shardingsphere.sharding.api.sharding.standard.StandardShardingAlgorithm;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
+/**
+ * 图片分表算法（分片键 spaceId）
+ * 旗舰版团队空间的图片存放在 picture_{spaceId} 分表中，其余空间和公共图库的图片都在与逻辑表同名的 picture 表中
+ * 路由规则：
+ * 1. spaceId = ?：有分表时路由到分表，否则路由到 picture 表
+ * 2. spaceId IN (...)：ShardingSphere 对每个值分别调用精确分片并合并结果，只访问涉及的表
+ * 3. spaceId BETWEEN / > / <：路由到 spaceId 落在范围内的分表，以及 picture 表
+ * 4. 没有 spaceId 条件：ShardingSphere 不会调用分片算法，会访问全部表，仅用于管理员列表、全空间分析等本就需要跨空间的查询
+ * 5. 公共图库（spaceId IS NULL）：IS NULL 不会被解析为分片条件，与第 4 条一样访问全部表。
+ * 分表只属于旗舰版团队空间，多访问的分表中不会有公共图库的数据，结果正确，代价是每张分表一次空查询；
+ * 要只路由到 picture 表，需要把公共图库的 spaceId 改为固定值（例如 0）或所有查询改用 Hint 分片，
+ * 涉及数据迁移和全部查询的改造，不在当前分片算法的范围内
+ */
 @Component
 public class PictureShardingAlgorithm implements StandardShardingAlgorithm<Long> {
 
@@ -25,7 +41,7 @@ public class PictureShardingAlgorithm implements StandardShardingAlgorithm<Long>
         if (spaceId == null) {
             return logicTableName;
         }
-        String tableName = "picture_" + spaceId;
+        String tableName = logicTableName + "_" + spaceId;
         if (collection.contains(tableName)) {
             return tableName;
         } else {
@@ -38,11 +54,31 @@ public class PictureShardingAlgorithm implements StandardShardingAlgorithm<Long>
      *
      * @param collection 可用的目标表名集合
      * @param rangeShardingValue 分片范围值
-     * @return java.util.Collection<java.lang.String>
+     * @return 范围内空间的分表，以及存放其余空间图片的逻辑表
      **/
     @Override
     public Collection<String> doSharding(Collection<String> collection, RangeShardingValue<Long> rangeShardingValue) {
-        return List.of();
+        String logicTableName = rangeShardingValue.getLogicTableName();
+        Range<Long> valueRange = rangeShardingValue.getValueRange();
+        String tablePrefix = logicTableName + "_";
+        Set<String> tableNames = new LinkedHashSet<>();
+        // 范围内可能有没有分表的空间，图片在逻辑表中
+        if (collection.contains(logicTableName)) {
+            tableNames.add(logicTableName);
+        }
+        for (String tableName : collection) {
+            if (!tableName.startsWith(tablePrefix)) {
+                continue;
+            }
+            String spaceIdStr = tableName.substring(tablePrefix.length());
+            if (!NumberUtil.isLong(spaceIdStr)) {
+                continue;
+            }
+            if (valueRange.contains(Long.parseLong(spaceIdStr))) {
+                tableNames.add(tableName);
+            }
+        }
+        return tableNames;
     }
 
 }
@@ -0,0 +1,105 @@
+package com.demo.copicloud.infrastructure.manager.storage;
+
+import com.demo.copicloud.infrastructure.api.COS.CosApi;
+import com.demo.copicloud.infrastructure.config.CosClientConfig;
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 腾讯云对象存储
+ */
+@Component
+@ConditionalOnProperty(name = "picture.storage.type", havingValue = "cos", matchIfMissing = true)
+public class CosObjectStorage implements ObjectStorage {
+
+    @Resource
+    private CosApi cosApi;
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        cosApi.putObject(key, inputStream, contentLength);
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        return cosApi.getObject(key).getObjectContent();
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        cosApi.deleteObject(key);
+    }
+
+    @Override
+    public Map<String, String> deleteObjects(List<String> keys) {
+        return cosApi.deleteObjects(keys);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return cosApi.doesObjectExist(key);
+    }
+
+    @Override
+    public long getObjectLength(String key) {
+        return cosApi.getObjectLength(key);
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return cosClientConfig.getHost() + "/" + key;
+    }
+
+    @Override
+    public String getKey(String url) {
+        // 在对象的访问域名 bucket.cos.ap-guangzhou.com/doc/picture.jpg 中，对象键为 doc/picture.jpg
+        String path = URI.create(url).getPath();
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    @Override
+    public String generatePresignedPutUrl(String key, Date expiration, long contentLength, String contentType) {
+        return cosApi.generatePresignedPutUrl(key, expiration, contentLength, contentType);
+    }
+
+    @Override
+    public boolean supportsImageProcessing() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsMultipartUpload() {
+        return true;
+    }
+
+    @Override
+    public String initiateMultipartUpload(String key) {
+        return cosApi.initiateMultipartUpload(key);
+    }
+
+    @Override
+    public String uploadPart(String key, String multipartUploadId, int partNumber, InputStream inputStream,
+                             long contentLength) {
+        return cosApi.uploadPart(key, multipartUploadId, partNumber, inputStream, contentLength);
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String multipartUploadId, Map<Integer, String> partETags) {
+        cosApi.completeMultipartUpload(key, multipartUploadId, partETags);
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String multipartUploadId) {
+        cosApi.abortMultipartUpload(key, multipartUploadId);
+    }
+}
@@ -0,0 +1,75 @@
+package com.demo.copicloud.infrastructure.manager.storage;
+
+import cn.hutool.core.io.IoUtil;
+import com.demo.copicloud.infrastructure.exception.BusinessException;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存对象存储，进程重启后数据丢失，仅用于压测和离线测试
+ */
+@Component
+@ConditionalOnProperty(name = "picture.storage.type", havingValue = "memory")
+public class InMemoryObjectStorage implements ObjectStorage {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    private final String urlPrefix;
+
+    public InMemoryObjectStorage(@Value("${picture.storage.url-prefix:/api/storage}") String urlPrefix) {
+        this.urlPrefix = urlPrefix;
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        objects.put(key, IoUtil.readBytes(inputStream, false));
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        byte[] data = objects.get(key);
+        if (data == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return objects.containsKey(key);
+    }
+
+    @Override
+    public long getObjectLength(String key) {
+        byte[] data = objects.get(key);
+        if (data == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        }
+        return data.length;
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return urlPrefix + "/" + key;
+    }
+
+    @Override
+    public String getKey(String url) {
+        if (url.startsWith(urlPrefix + "/")) {
+            return url.substring(urlPrefix.length() + 1);
+        }
+        return url.startsWith("/") ? url.substring(1) : url;
+    }
+}
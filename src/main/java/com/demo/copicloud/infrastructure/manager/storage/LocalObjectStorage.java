@@ -0,0 +1,114 @@
+package com.demo.copicloud.infrastructure.manager.storage;
+
+import com.demo.copicloud.infrastructure.exception.BusinessException;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+
+/**
+ * 本地文件系统对象存储
+ * 对象键即相对根目录的路径；写入先落临时文件再原子替换，读取方不会看到写了一半的文件；
+ * 下载时提供文件路径，由 Tomcat 通过 sendfile 直接从文件发送到套接字，文件内容不经过用户态
+ */
+@Component
+@ConditionalOnProperty(name = "picture.storage.type", havingValue = "local")
+public class LocalObjectStorage implements ObjectStorage {
+
+    private final Path root;
+
+    private final String urlPrefix;
+
+    public LocalObjectStorage(@Value("${picture.storage.local.root:${java.io.tmpdir}/copicloud-storage}") String root,
+                              @Value("${picture.storage.url-prefix:/api/storage}") String urlPrefix) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.urlPrefix = urlPrefix;
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        Path path = this.resolve(key);
+        try {
+            Files.createDirectories(path.getParent());
+            Path tempFile = Files.createTempFile(path.getParent(), ".upload_", ".tmp");
+            try {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入本地对象失败: " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        try {
+            return Files.newInputStream(this.resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取本地对象失败: " + key, e);
+        }
+    }
+
+    @Override
+    public Path getLocalPath(String key) {
+        return this.resolve(key);
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            Files.deleteIfExists(this.resolve(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除本地对象失败: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(this.resolve(key));
+    }
+
+    @Override
+    public long getObjectLength(String key) {
+        try {
+            return Files.size(this.resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取本地对象失败: " + key, e);
+        }
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return urlPrefix + "/" + key;
+    }
+
+    @Override
+    public String getKey(String url) {
+        if (url.startsWith(urlPrefix + "/")) {
+            return url.substring(urlPrefix.length() + 1);
+        }
+        return url.startsWith("/") ? url.substring(1) : url;
+    }
+
+    /**
+     * 对象键转文件路径，拒绝跳出根目录的键
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "对象键不合法");
+        }
+        return path;
+    }
+}
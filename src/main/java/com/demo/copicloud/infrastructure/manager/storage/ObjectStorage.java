@@ -0,0 +1,174 @@
+package com.demo.copicloud.infrastructure.manager.storage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对象存储
+ * 上传、读取、删除图片文件以及对象键与访问地址之间的转换，通过 picture.storage.type 选择实现：
+ * cos（默认，腾讯云对象存储）、local（本地文件系统）、memory（内存，用于压测和离线测试）
+ */
+public interface ObjectStorage {
+
+    /**
+     * 单次批量删除的最大对象数量（COS 批量删除接口的上限）
+     */
+    int MAX_BATCH_DELETE_SIZE = 1000;
+
+    /**
+     * 上传对象，已存在时覆盖
+     *
+     * @param key           对象键
+     * @param inputStream   输入流（由调用方关闭）
+     * @param contentLength 内容长度
+     */
+    void putObject(String key, InputStream inputStream, long contentLength);
+
+    /**
+     * 读取对象
+     *
+     * @param key 对象键
+     * @return 输入流（由调用方关闭）
+     */
+    InputStream getObject(String key);
+
+    /**
+     * 删除对象，不存在时忽略
+     *
+     * @param key 对象键
+     */
+    void deleteObject(String key);
+
+    /**
+     * 批量删除对象，不存在的对象视为删除成功
+     *
+     * @param keys 对象键（数量不超过 {@link #MAX_BATCH_DELETE_SIZE}）
+     * @return 删除失败的对象键及原因，全部成功时为空
+     */
+    default Map<String, String> deleteObjects(List<String> keys) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (String key : keys) {
+            try {
+                this.deleteObject(key);
+            } catch (Exception e) {
+                errors.put(key, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * 对象是否存在
+     *
+     * @param key 对象键
+     */
+    boolean exists(String key);
+
+    /**
+     * 获取对象大小
+     *
+     * @param key 对象键
+     */
+    long getObjectLength(String key);
+
+    /**
+     * 对象键转访问地址
+     *
+     * @param key 对象键
+     */
+    String getUrl(String key);
+
+    /**
+     * 访问地址转对象键
+     *
+     * @param url 访问地址
+     */
+    String getKey(String url);
+
+    /**
+     * 是否支持上传和下载时的云端图片处理（数据万象）
+     */
+    default boolean supportsImageProcessing() {
+        return false;
+    }
+
+    /**
+     * 生成客户端直传用的预签名上传地址（HTTP PUT），文件大小和类型参与签名，上传时必须一致
+     *
+     * @param key           对象键
+     * @param expiration    过期时间
+     * @param contentLength 文件大小
+     * @param contentType   文件类型
+     * @return 上传地址，存储后端不支持直传时返回 null
+     */
+    default String generatePresignedPutUrl(String key, Date expiration, long contentLength, String contentType) {
+        return null;
+    }
+
+    /**
+     * 对象在本地文件系统中的路径，用于由容器直接发送文件（sendfile）
+     *
+     * @param key 对象键
+     * @return 文件路径，对象不在本地文件系统中时返回 null
+     */
+    default Path getLocalPath(String key) {
+        return null;
+    }
+
+    /**
+     * 是否支持原生分块上传，支持时分片直接上传为对象的分块，合并由存储后端完成
+     */
+    default boolean supportsMultipartUpload() {
+        return false;
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 对象键
+     * @return 分块上传 ID
+     */
+    default String initiateMultipartUpload(String key) {
+        throw new UnsupportedOperationException("不支持分块上传");
+    }
+
+    /**
+     * 上传分块，相同序号重复上传时覆盖
+     *
+     * @param key               对象键
+     * @param multipartUploadId 分块上传 ID
+     * @param partNumber        分块序号（从 1 开始）
+     * @param inputStream       输入流（由调用方关闭）
+     * @param contentLength     分块大小
+     * @return 分块的 ETag
+     */
+    default String uploadPart(String key, String multipartUploadId, int partNumber, InputStream inputStream,
+                              long contentLength) {
+        throw new UnsupportedOperationException("不支持分块上传");
+    }
+
+    /**
+     * 完成分块上传，由已上传的分块合并出对象
+     *
+     * @param key               对象键
+     * @param multipartUploadId 分块上传 ID
+     * @param partETags         分块序号及对应的 ETag
+     */
+    default void completeMultipartUpload(String key, String multipartUploadId, Map<Integer, String> partETags) {
+        throw new UnsupportedOperationException("不支持分块上传");
+    }
+
+    /**
+     * 终止分块上传，释放已上传的分块
+     *
+     * @param key               对象键
+     * @param multipartUploadId 分块上传 ID
+     */
+    default void abortMultipartUpload(String key, String multipartUploadId) {
+        throw new UnsupportedOperationException("不支持分块上传");
+    }
+}
@@ -0,0 +1,324 @@
+package com.demo.copicloud.infrastructure.manager.storage;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.domain.picture.entity.PictureFileDeletion;
+import com.demo.copicloud.domain.picture.entity.PictureObject;
+import com.demo.copicloud.domain.picture.entity.PictureRendition;
+import com.demo.copicloud.domain.picture.repository.PictureFileDeletionRepository;
+import com.demo.copicloud.domain.picture.repository.PictureObjectRepository;
+import com.demo.copicloud.domain.picture.repository.PictureRenditionRepository;
+import com.demo.copicloud.infrastructure.manager.upload.PictureUploadTemplate;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 图片文件删除队列
+ * 图片删除时只把文件写入 picture_file_deletion 表（处于事务中时随事务一起提交，不会丢失），
+ * 由定时任务按批（最多 1000 个）调用对象存储的批量删除接口；单个对象删除失败时按指数退避重试，
+ * 整批请求失败时暂停若干轮再处理；多节点部署时通过分布式锁保证同一时刻只有一个节点在删除
+ * 按内容寻址的对象（objects/ 下）在持有内容哈希锁期间检查引用并删除，与上传和副本生成互斥
+ */
+@Slf4j
+@Component
+public class PictureFileDeletionManager {
+
+    private static final String LOCK_KEY = "lock:pictureFileDeletion";
+
+    /**
+     * 单次定时任务最多处理的批数，剩余的留给下一轮
+     */
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    /**
+     * 单个对象的最大重试次数，超过后保留记录等待人工处理
+     */
+    private static final int MAX_RETRY_COUNT = 10;
+
+    private static final long BASE_RETRY_DELAY_MILLIS = 30_000L;
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 3_600_000L;
+
+    /**
+     * 整批请求失败后最多暂停的轮数
+     */
+    private static final int MAX_PAUSED_RUNS = 32;
+
+    /**
+     * 存储对象创建后超过该时间仍未被引用时视为入库失败遗留，需大于上传到入库的最长耗时
+     */
+    private static final long UNREFERENCED_OBJECT_TTL_MILLIS = 30 * 60 * 1000L;
+
+    private static final int UNREFERENCED_OBJECT_BATCH_SIZE = 100;
+
+    @Resource
+    private PictureFileDeletionRepository pictureFileDeletionRepository;
+
+    @Resource
+    private PictureObjectRepository pictureObjectRepository;
+
+    @Resource
+    private PictureRenditionRepository pictureRenditionRepository;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    private final LongAdder deletedCount = new LongAdder();
+
+    private final LongAdder skippedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder batchCount = new LongAdder();
+
+    /**
+     * 连续整批失败的次数，以及还需跳过的轮数
+     */
+    private int consecutiveFailures = 0;
+
+    private int pausedRuns = 0;
+
+    /**
+     * 将图片文件加入删除队列
+     *
+     * @param urls 文件访问地址（为空的忽略）
+     */
+    public void enqueue(Collection<String> urls) {
+        List<String> objectKeys = urls.stream()
+                .filter(StrUtil::isNotBlank)
+                .map(objectStorage::getKey)
+                .collect(Collectors.toList());
+        this.enqueueKeys(objectKeys);
+    }
+
+    /**
+     * 将对象键加入删除队列
+     *
+     * @param objectKeys 对象键
+     */
+    public void enqueueKeys(Collection<String> objectKeys) {
+        pictureFileDeletionRepository.enqueue(objectKeys);
+    }
+
+    /**
+     * 处理删除队列
+     */
+    @Scheduled(initialDelayString = "${picture.storage.deletion.interval-ms:5000}",
+            fixedDelayString = "${picture.storage.deletion.interval-ms:5000}")
+    public void drain() {
+        if (pausedRuns > 0) {
+            pausedRuns--;
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        try {
+            if (!lock.tryLock(0, 5, TimeUnit.MINUTES)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long deletedBefore = deletedCount.sum();
+        long failedBefore = failedCount.sum();
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                List<PictureFileDeletion> deletionList =
+                        pictureFileDeletionRepository.listDue(MAX_RETRY_COUNT, ObjectStorage.MAX_BATCH_DELETE_SIZE);
+                if (CollUtil.isEmpty(deletionList)) {
+                    break;
+                }
+                if (!this.deleteBatch(deletionList)) {
+                    break;
+                }
+                if (deletionList.size() < ObjectStorage.MAX_BATCH_DELETE_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理图片文件删除队列失败", e);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+        long deleted = deletedCount.sum() - deletedBefore;
+        long failed = failedCount.sum() - failedBefore;
+        if (deleted > 0 || failed > 0) {
+            log.info("图片文件删除队列: 本轮删除 {} 个, 失败 {} 个; 累计删除 {} 个, 跳过 {} 个, 失败 {} 次, 批量请求 {} 次",
+                    deleted, failed, deletedCount.sum(), skippedCount.sum(), failedCount.sum(), batchCount.sum());
+        }
+    }
+
+    /**
+     * 清理未被引用的存储对象
+     * 上传时先保存存储对象（引用数为 0），图片入库的事务中才增加引用数；事务失败时（迁移切换中禁止写入、
+     * 对象恰好失效、数据库异常）记录和文件会一直遗留，由该任务删除记录并将文件加入删除队列
+     */
+    @Scheduled(initialDelay = 10, fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void cleanUnreferencedObjects() {
+        List<PictureObject> pictureObjectList = pictureObjectRepository.listUnreferenced(
+                new Date(System.currentTimeMillis() - UNREFERENCED_OBJECT_TTL_MILLIS), UNREFERENCED_OBJECT_BATCH_SIZE);
+        int removed = 0;
+        for (PictureObject pictureObject : pictureObjectList) {
+            RLock lock = redissonClient.getLock(PictureObjectRepository.LOCK_KEY_PREFIX + pictureObject.getContentHash());
+            // 正在上传相同内容时跳过，留到下一轮
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                // 期间被图片引用时不会删除
+                if (pictureObjectRepository.removeUnreferenced(pictureObject.getId())) {
+                    this.enqueue(Arrays.asList(pictureObject.getUrl(), pictureObject.getThumbnailUrl()));
+                    removed++;
+                }
+            } finally {
+                if (lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("清理未被引用的存储对象 {} 个", removed);
+        }
+    }
+
+    /**
+     * 删除一批对象
+     * 按内容寻址的对象在检查引用和删除期间持有内容哈希锁，否则检查之后、删除之前相同内容再次上传（复用已有文件）
+     * 或副本重新生成，会删除刚被引用的文件；内容哈希锁被占用的对象留在队列中，下一轮再处理
+     *
+     * @return 整批请求失败时返回 false
+     */
+    private boolean deleteBatch(List<PictureFileDeletion> deletionList) {
+        // 同一对象键可能被重复入队，只删除一次
+        Map<String, List<PictureFileDeletion>> keyMap = deletionList.stream()
+                .collect(Collectors.groupingBy(PictureFileDeletion::getObjectKey, LinkedHashMap::new, Collectors.toList()));
+        Map<String, RLock> lockMap = new HashMap<>();
+        Set<String> busyHashes = new HashSet<>();
+        try {
+            for (String key : keyMap.keySet()) {
+                String contentHash = PictureUploadTemplate.getContentHash(key);
+                if (contentHash == null || lockMap.containsKey(contentHash) || busyHashes.contains(contentHash)) {
+                    continue;
+                }
+                RLock lock = redissonClient.getLock(PictureObjectRepository.LOCK_KEY_PREFIX + contentHash);
+                if (lock.tryLock()) {
+                    lockMap.put(contentHash, lock);
+                } else {
+                    busyHashes.add(contentHash);
+                }
+            }
+            if (!busyHashes.isEmpty()) {
+                keyMap.keySet().removeIf(key -> busyHashes.contains(PictureUploadTemplate.getContentHash(key)));
+            }
+            return this.deleteUnreferenced(keyMap);
+        } finally {
+            for (RLock lock : lockMap.values()) {
+                if (lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除未被引用的对象，并更新队列
+     *
+     * @param keyMap 对象键及其队列记录
+     * @return 整批请求失败时返回 false
+     */
+    private boolean deleteUnreferenced(Map<String, List<PictureFileDeletion>> keyMap) {
+        if (keyMap.isEmpty()) {
+            return true;
+        }
+        // 入队后又被重新引用的对象（相同内容再次上传、副本重新生成）不能删除
+        Set<String> referencedKeys = this.listReferencedKeys(keyMap.keySet());
+        List<String> keys = keyMap.keySet().stream()
+                .filter(key -> !referencedKeys.contains(key))
+                .collect(Collectors.toList());
+        Map<String, String> errors;
+        if (keys.isEmpty()) {
+            errors = Collections.emptyMap();
+        } else {
+            batchCount.increment();
+            try {
+                errors = objectStorage.deleteObjects(keys);
+            } catch (Exception e) {
+                // 对象存储整体不可用，暂停若干轮，避免持续请求
+                consecutiveFailures++;
+                pausedRuns = Math.min(1 << Math.min(consecutiveFailures, 5), MAX_PAUSED_RUNS);
+                failedCount.add(keys.size());
+                log.error("批量删除图片文件失败, 数量 = {}, 暂停 {} 轮", keys.size(), pausedRuns, e);
+                return false;
+            }
+        }
+        consecutiveFailures = 0;
+        List<Long> finishedIds = new ArrayList<>();
+        keyMap.forEach((key, sameKeyList) -> {
+            String error = errors.get(key);
+            if (error == null) {
+                sameKeyList.forEach(deletion -> finishedIds.add(deletion.getId()));
+                return;
+            }
+            for (PictureFileDeletion deletion : sameKeyList) {
+                int retryCount = deletion.getRetryCount() + 1;
+                long delay = Math.min(BASE_RETRY_DELAY_MILLIS << Math.min(retryCount - 1, 20), MAX_RETRY_DELAY_MILLIS);
+                pictureFileDeletionRepository.markFailed(deletion.getId(), retryCount,
+                        new Date(System.currentTimeMillis() + delay), error);
+                if (retryCount >= MAX_RETRY_COUNT) {
+                    log.error("图片文件删除重试次数已用完, key = {}, error = {}", key, error);
+                }
+            }
+            failedCount.increment();
+        });
+        if (!finishedIds.isEmpty()) {
+            pictureFileDeletionRepository.removeByIds(finishedIds);
+        }
+        skippedCount.add(referencedKeys.size());
+        deletedCount.add(keys.size() - errors.size());
+        return true;
+    }
+
+    /**
+     * 查询仍被存储对象或副本记录引用的对象键
+     */
+    private Set<String> listReferencedKeys(Collection<String> keys) {
+        Map<String, String> urlToKey = keys.stream()
+                .collect(Collectors.toMap(objectStorage::getUrl, Function.identity(), (a, b) -> a));
+        Set<String> urls = urlToKey.keySet();
+        Set<String> referencedUrls = new HashSet<>();
+        pictureObjectRepository.lambdaQuery()
+                .select(PictureObject::getUrl, PictureObject::getThumbnailUrl)
+                .in(PictureObject::getUrl, urls)
+                .or()
+                .in(PictureObject::getThumbnailUrl, urls)
+                .list()
+                .forEach(pictureObject -> {
+                    referencedUrls.add(pictureObject.getUrl());
+                    referencedUrls.add(pictureObject.getThumbnailUrl());
+                });
+        pictureRenditionRepository.lambdaQuery()
+                .select(PictureRendition::getUrl)
+                .in(PictureRendition::getUrl, urls)
+                .list()
+                .forEach(pictureRendition -> referencedUrls.add(pictureRendition.getUrl()));
+        return referencedUrls.stream()
+                .map(urlToKey::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,81 @@
+package com.demo.copicloud.infrastructure.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.utils.ThrowUtils;
+import com.demo.copicloud.interfaces.dto.picture.UploadPictureResult;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ChunkPictureUpload extends PictureUploadTemplate {
+
+    @Resource
+    private ChunkUploadManager chunkUploadManager;
+
+    /**
+     * 校验输入源（分片上传会话）
+     *
+     * @param inputSource 数据源
+     */
+    @Override
+    protected void validPicture(Object inputSource) {
+        ChunkUploadSession session = (ChunkUploadSession) inputSource;
+        ThrowUtils.throwIf(session == null, ErrorCode.PARAMS_ERROR, "上传不存在或已过期");
+        ThrowUtils.throwIf(!session.isAllPartsUploaded(), ErrorCode.PARAMS_ERROR, "还有分片未上传");
+    }
+
+    /**
+     * 获取原始文件名
+     *
+     * @param inputSource 分片上传会话
+     */
+    @Override
+    protected String getOriginFilename(Object inputSource) {
+        ChunkUploadSession session = (ChunkUploadSession) inputSource;
+        return session.getFileName();
+    }
+
+    /**
+     * 使用原生分块上传和数据万象时，合并出的对象复制到上传路径后直接在云端处理，图片内容不经过应用节点
+     *
+     * @param inputSource      数据源
+     * @param uploadPathPrefix 上传路径前缀
+     */
+    @Override
+    protected UploadPictureResult processInPlace(Object inputSource, String uploadPathPrefix) {
+        ChunkUploadSession session = (ChunkUploadSession) inputSource;
+        if (!session.isMultipart() || !isCloudProcessing()) {
+            return null;
+        }
+        String sourceKey = chunkUploadManager.mergeParts(session);
+        // 合并出的对象在临时目录中，完成后会被清理，复制到正式路径后再处理
+        String key = buildUploadPath(uploadPathPrefix, FileUtil.getSuffix(session.getFileName()));
+        cosApi.copyObject(sourceKey, key);
+        long picSize = session.getFileSize();
+        CIUploadResult ciUploadResult = cosApi.processPictureObject(key, picSize);
+        UploadPictureResult uploadPictureResult = buildResult(session.getFileName(), key, picSize, ciUploadResult, null);
+        uploadPictureResult.setPicHash(this.thumbnailHash(uploadPictureResult.getThumbnailUrl()));
+        return uploadPictureResult;
+    }
+
+    /**
+     * 按顺序读取所有分片
+     *
+     * @param inputSource 数据源
+     */
+    @Override
+    protected PictureStream openStream(Object inputSource) {
+        ChunkUploadSession session = (ChunkUploadSession) inputSource;
+        return new PictureStream(chunkUploadManager.openStream(session), session.getFileSize(), null);
+    }
+
+    /**
+     * 分片上传的大小上限由配置决定
+     */
+    @Override
+    protected long getMaxPictureSize() {
+        return chunkUploadManager.getMaxFileSize();
+    }
+}
@@ -0,0 +1,370 @@
+package com.demo.copicloud.infrastructure.manager.upload;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.infrastructure.exception.BusinessException;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.manager.storage.ObjectStorage;
+import com.demo.copicloud.infrastructure.manager.storage.PictureFileDeletionManager;
+import com.demo.copicloud.infrastructure.utils.ThrowUtils;
+import com.demo.copicloud.interfaces.vo.picture.ChunkUploadVO;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 分片上传
+ * 大图片拆成多个分片分别上传（可并行、可断点续传），单个请求只占用 servlet 线程传输一个分片：
+ * 存储后端支持原生分块上传时（COS），分片直接作为对象 chunks/{uploadId}/source 的分块上传，完成时由存储后端合并；
+ * 否则每个分片写入临时对象 chunks/{uploadId}/{序号}，完成时按顺序读取合并，再交给上传模板处理和入库
+ * 会话信息保存在 Redis 中，一天内未完成的上传由定时任务清理分片
+ */
+@Slf4j
+@Component
+public class ChunkUploadManager {
+
+    private static final String KEY_PREFIX = "CoPicCloud:chunkUpload:";
+
+    private static final String PARTS_KEY_SUFFIX = ":parts";
+
+    /**
+     * 原生分块上传时各分块的 ETag，完成上传时提交
+     */
+    private static final String ETAGS_KEY_SUFFIX = ":etags";
+
+    /**
+     * 所有未完成上传的过期时间，成员为 {uploadId}:{分片数量}，原生分块上传时为 {uploadId}:{分片数量}:{分块上传 ID}，
+     * 分值为过期时间戳
+     */
+    private static final String EXPIRY_KEY = "CoPicCloud:chunkUpload:expiry";
+
+    private static final String CHUNK_PATH_PREFIX = "chunks";
+
+    /**
+     * 原生分块上传合并出的对象名
+     */
+    private static final String SOURCE_NAME = "source";
+
+    private static final long EXPIRE_SECONDS = 24 * 3600L;
+
+    private static final long DEFAULT_PART_SIZE = 1024 * 1024L;
+
+    private static final long MIN_PART_SIZE = 256 * 1024L;
+
+    /**
+     * 原生分块上传除最后一块外的最小分块大小（COS 的限制）
+     */
+    private static final long MIN_MULTIPART_PART_SIZE = 1024 * 1024L;
+
+    private static final long MAX_PART_SIZE = 5 * 1024 * 1024L;
+
+    private static final int MAX_PART_COUNT = 1000;
+
+    private static final List<String> ALLOW_FORMAT_LIST = Arrays.asList("jpeg", "jpg", "png", "webp");
+
+    private static final String FIELD_USER_ID = "userId";
+
+    private static final String FIELD_FILE_NAME = "fileName";
+
+    private static final String FIELD_FILE_SIZE = "fileSize";
+
+    private static final String FIELD_PART_SIZE = "partSize";
+
+    private static final String FIELD_PART_COUNT = "partCount";
+
+    private static final String FIELD_MULTIPART_UPLOAD_ID = "multipartUploadId";
+
+    /**
+     * 分片上传的文件大小上限
+     */
+    @Value("${picture.chunk-upload.max-file-size:20971520}")
+    private long maxFileSize;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private PictureFileDeletionManager pictureFileDeletionManager;
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * 是否为分片上传的临时对象（上传未完成，不对外提供访问）
+     *
+     * @param key 对象键
+     */
+    public static boolean isChunkKey(String key) {
+        return key.startsWith(CHUNK_PATH_PREFIX + "/");
+    }
+
+    /**
+     * 创建上传会话
+     *
+     * @param userId   用户 id
+     * @param fileName 原始文件名
+     * @param fileSize 文件总大小
+     * @param partSize 分片大小，为空时使用默认值
+     */
+    public ChunkUploadSession createUpload(Long userId, String fileName, Long fileSize, Long partSize) {
+        ThrowUtils.throwIf(StrUtil.isBlank(fileName), ErrorCode.PARAMS_ERROR, "文件名不能为空");
+        ThrowUtils.throwIf(!ALLOW_FORMAT_LIST.contains(FileUtil.getSuffix(fileName)), ErrorCode.PARAMS_ERROR, "文件类型错误");
+        ThrowUtils.throwIf(fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件大小错误");
+        ThrowUtils.throwIf(fileSize > maxFileSize, ErrorCode.PARAMS_ERROR,
+                "文件大小不能超过 " + FileUtil.readableFileSize(maxFileSize));
+        if (partSize == null) {
+            partSize = DEFAULT_PART_SIZE;
+        }
+        boolean multipart = objectStorage.supportsMultipartUpload();
+        long minPartSize = multipart ? MIN_MULTIPART_PART_SIZE : MIN_PART_SIZE;
+        ThrowUtils.throwIf(partSize < minPartSize || partSize > MAX_PART_SIZE, ErrorCode.PARAMS_ERROR,
+                String.format("分片大小需在 %s 到 %s 之间", FileUtil.readableFileSize(minPartSize),
+                        FileUtil.readableFileSize(MAX_PART_SIZE)));
+        long partCount = (fileSize + partSize - 1) / partSize;
+        ThrowUtils.throwIf(partCount > MAX_PART_COUNT, ErrorCode.PARAMS_ERROR, "分片数量过多");
+
+        String uploadId = IdUtil.fastSimpleUUID();
+        String multipartUploadId = multipart ? objectStorage.initiateMultipartUpload(getSourceKey(uploadId)) : null;
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, String.valueOf(userId));
+        fields.put(FIELD_FILE_NAME, fileName);
+        fields.put(FIELD_FILE_SIZE, String.valueOf(fileSize));
+        fields.put(FIELD_PART_SIZE, String.valueOf(partSize));
+        fields.put(FIELD_PART_COUNT, String.valueOf(partCount));
+        if (multipartUploadId != null) {
+            fields.put(FIELD_MULTIPART_UPLOAD_ID, multipartUploadId);
+        }
+        stringRedisTemplate.opsForHash().putAll(KEY_PREFIX + uploadId, fields);
+        stringRedisTemplate.expire(KEY_PREFIX + uploadId, EXPIRE_SECONDS, TimeUnit.SECONDS);
+        stringRedisTemplate.opsForZSet().add(EXPIRY_KEY, getExpiryMember(uploadId, partCount, multipartUploadId),
+                System.currentTimeMillis() + EXPIRE_SECONDS * 1000);
+
+        ChunkUploadSession session = new ChunkUploadSession();
+        session.setUploadId(uploadId);
+        session.setUserId(userId);
+        session.setFileName(fileName);
+        session.setFileSize(fileSize);
+        session.setPartSize(partSize);
+        session.setPartCount((int) partCount);
+        session.setMultipartUploadId(multipartUploadId);
+        session.setUploadedParts(new HashSet<>());
+        return session;
+    }
+
+    /**
+     * 查询上传会话
+     *
+     * @param uploadId 上传 id
+     * @return 会话不存在或已过期时返回 null
+     */
+    public ChunkUploadSession getUpload(String uploadId) {
+        if (StrUtil.isBlank(uploadId)) {
+            return null;
+        }
+        Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(KEY_PREFIX + uploadId);
+        if (CollUtil.isEmpty(fields)) {
+            return null;
+        }
+        ChunkUploadSession session = new ChunkUploadSession();
+        session.setUploadId(uploadId);
+        session.setUserId(Long.parseLong(fields.get(FIELD_USER_ID).toString()));
+        session.setFileName(fields.get(FIELD_FILE_NAME).toString());
+        session.setFileSize(Long.parseLong(fields.get(FIELD_FILE_SIZE).toString()));
+        session.setPartSize(Long.parseLong(fields.get(FIELD_PART_SIZE).toString()));
+        session.setPartCount(Integer.parseInt(fields.get(FIELD_PART_COUNT).toString()));
+        Object multipartUploadId = fields.get(FIELD_MULTIPART_UPLOAD_ID);
+        session.setMultipartUploadId(multipartUploadId == null ? null : multipartUploadId.toString());
+        Set<String> parts = stringRedisTemplate.opsForSet().members(KEY_PREFIX + uploadId + PARTS_KEY_SUFFIX);
+        session.setUploadedParts(parts == null ? new HashSet<>()
+                : parts.stream().map(Integer::valueOf).collect(Collectors.toSet()));
+        return session;
+    }
+
+    /**
+     * 上传一个分片，重复上传同一分片时覆盖
+     *
+     * @param session    上传会话
+     * @param partNumber 分片序号（从 1 开始）
+     * @param file       分片内容
+     */
+    public void uploadPart(ChunkUploadSession session, Integer partNumber, MultipartFile file) {
+        ThrowUtils.throwIf(partNumber == null || partNumber < 1 || partNumber > session.getPartCount(),
+                ErrorCode.PARAMS_ERROR, "分片序号错误");
+        ThrowUtils.throwIf(file == null || file.getSize() != session.getPartLength(partNumber),
+                ErrorCode.PARAMS_ERROR, "分片大小错误");
+        String uploadId = session.getUploadId();
+        try (InputStream inputStream = file.getInputStream()) {
+            if (session.isMultipart()) {
+                String eTag = objectStorage.uploadPart(getSourceKey(uploadId), session.getMultipartUploadId(),
+                        partNumber, inputStream, file.getSize());
+                String eTagsKey = KEY_PREFIX + uploadId + ETAGS_KEY_SUFFIX;
+                stringRedisTemplate.opsForHash().put(eTagsKey, String.valueOf(partNumber), eTag);
+                stringRedisTemplate.expire(eTagsKey, EXPIRE_SECONDS, TimeUnit.SECONDS);
+            } else {
+                objectStorage.putObject(getPartKey(uploadId, partNumber), inputStream, file.getSize());
+            }
+        } catch (IOException e) {
+            log.error("分片上传失败, uploadId = {}, partNumber = {}", uploadId, partNumber, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "分片上传失败");
+        }
+        String partsKey = KEY_PREFIX + session.getUploadId() + PARTS_KEY_SUFFIX;
+        stringRedisTemplate.opsForSet().add(partsKey, String.valueOf(partNumber));
+        stringRedisTemplate.expire(partsKey, EXPIRE_SECONDS, TimeUnit.SECONDS);
+        session.getUploadedParts().add(partNumber);
+    }
+
+    /**
+     * 完成原生分块上传，由存储后端合并出完整对象，已合并过时直接返回（合并后入库失败重试的情况）
+     *
+     * @param session 上传会话（原生分块上传）
+     * @return 合并出的对象键
+     */
+    public String mergeParts(ChunkUploadSession session) {
+        String sourceKey = getSourceKey(session.getUploadId());
+        if (objectStorage.exists(sourceKey)) {
+            return sourceKey;
+        }
+        Map<Object, Object> eTagEntries = stringRedisTemplate.opsForHash()
+                .entries(KEY_PREFIX + session.getUploadId() + ETAGS_KEY_SUFFIX);
+        ThrowUtils.throwIf(eTagEntries.size() != session.getPartCount(), ErrorCode.PARAMS_ERROR, "还有分片未上传");
+        Map<Integer, String> partETags = new HashMap<>();
+        eTagEntries.forEach((partNumber, eTag) -> partETags.put(Integer.valueOf(partNumber.toString()), eTag.toString()));
+        try {
+            objectStorage.completeMultipartUpload(sourceKey, session.getMultipartUploadId(), partETags);
+        } catch (Exception e) {
+            log.error("合并分片失败, uploadId = {}", session.getUploadId(), e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "合并分片失败");
+        }
+        return sourceKey;
+    }
+
+    /**
+     * 按顺序读取所有分片，读到哪个分片才打开哪个；原生分块上传时读取合并出的对象
+     */
+    public InputStream openStream(ChunkUploadSession session) {
+        if (session.isMultipart()) {
+            return objectStorage.getObject(this.mergeParts(session));
+        }
+        Iterator<Integer> partIterator = new TreeSet<>(session.getUploadedParts()).iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return partIterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return objectStorage.getObject(getPartKey(session.getUploadId(), partIterator.next()));
+            }
+        });
+    }
+
+    /**
+     * 结束上传会话，分片（原生分块上传时为合并出的对象）加入删除队列
+     */
+    public void finishUpload(ChunkUploadSession session) {
+        String uploadId = session.getUploadId();
+        stringRedisTemplate.delete(Arrays.asList(KEY_PREFIX + uploadId, KEY_PREFIX + uploadId + PARTS_KEY_SUFFIX,
+                KEY_PREFIX + uploadId + ETAGS_KEY_SUFFIX));
+        stringRedisTemplate.opsForZSet().remove(EXPIRY_KEY,
+                getExpiryMember(uploadId, session.getPartCount(), session.getMultipartUploadId()));
+        if (session.isMultipart()) {
+            pictureFileDeletionManager.enqueueKeys(Collections.singletonList(getSourceKey(uploadId)));
+        } else {
+            this.deleteParts(uploadId, session.getPartCount());
+        }
+    }
+
+    /**
+     * 转为前端展示的上传进度
+     */
+    public ChunkUploadVO toVO(ChunkUploadSession session) {
+        ChunkUploadVO chunkUploadVO = new ChunkUploadVO();
+        chunkUploadVO.setUploadId(session.getUploadId());
+        chunkUploadVO.setFileName(session.getFileName());
+        chunkUploadVO.setFileSize(session.getFileSize());
+        chunkUploadVO.setPartSize(session.getPartSize());
+        chunkUploadVO.setPartCount(session.getPartCount());
+        chunkUploadVO.setUploadedParts(session.getUploadedParts().stream().sorted().collect(Collectors.toList()));
+        return chunkUploadVO;
+    }
+
+    /**
+     * 清理过期未完成的上传
+     */
+    @Scheduled(initialDelay = 10, fixedDelay = 60, timeUnit = TimeUnit.MINUTES)
+    public void cleanExpiredUploads() {
+        Set<String> expiredMembers = stringRedisTemplate.opsForZSet()
+                .rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis());
+        if (CollUtil.isEmpty(expiredMembers)) {
+            return;
+        }
+        for (String member : expiredMembers) {
+            // 多个节点同时清理时只由移除成功的节点处理
+            Long removed = stringRedisTemplate.opsForZSet().remove(EXPIRY_KEY, member);
+            if (removed == null || removed == 0) {
+                continue;
+            }
+            String[] parts = member.split(":", 3);
+            String uploadId = parts[0];
+            if (parts.length == 3) {
+                this.abortMultipartUpload(uploadId, parts[2]);
+            } else {
+                this.deleteParts(uploadId, Integer.parseInt(parts[1]));
+            }
+        }
+        log.info("清理过期分片上传 {} 个", expiredMembers.size());
+    }
+
+    /**
+     * 终止原生分块上传，已经合并过的对象加入删除队列
+     */
+    private void abortMultipartUpload(String uploadId, String multipartUploadId) {
+        String sourceKey = getSourceKey(uploadId);
+        try {
+            objectStorage.abortMultipartUpload(sourceKey, multipartUploadId);
+        } catch (Exception e) {
+            // 已完成合并的分块上传无法终止
+            log.warn("终止分块上传失败, uploadId = {}", uploadId, e);
+        }
+        pictureFileDeletionManager.enqueueKeys(Collections.singletonList(sourceKey));
+    }
+
+    private void deleteParts(String uploadId, int partCount) {
+        List<String> partKeys = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            partKeys.add(getPartKey(uploadId, partNumber));
+        }
+        pictureFileDeletionManager.enqueueKeys(partKeys);
+    }
+
+    private static String getPartKey(String uploadId, int partNumber) {
+        return String.format("%s/%s/%d", CHUNK_PATH_PREFIX, uploadId, partNumber);
+    }
+
+    private static String getSourceKey(String uploadId) {
+        return String.format("%s/%s/%s", CHUNK_PATH_PREFIX, uploadId, SOURCE_NAME);
+    }
+
+    private static String getExpiryMember(String uploadId, long partCount, String multipartUploadId) {
+        return multipartUploadId == null ? uploadId + ":" + partCount
+                : uploadId + ":" + partCount + ":" + multipartUploadId;
+    }
+}
@@ -0,0 +1,76 @@
+package com.demo.copicloud.infrastructure.manager.upload;
+
+import lombok.Data;
+
+import java.util.Set;
+
+/**
+ * 分片上传会话
+ */
+@Data
+public class ChunkUploadSession {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 发起上传的用户 id
+     */
+    private Long userId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小（字节）
+     */
+    private Long partSize;
+
+    /**
+     * 分片数量
+     */
+    private Integer partCount;
+
+    /**
+     * 原生分块上传 ID，存储后端不支持分块上传时为空
+     */
+    private String multipartUploadId;
+
+    /**
+     * 已上传的分片序号
+     */
+    private Set<Integer> uploadedParts;
+
+    /**
+     * 分片序号对应的大小，最后一片可能小于 partSize
+     */
+    public long getPartLength(int partNumber) {
+        if (partNumber < partCount) {
+            return partSize;
+        }
+        return fileSize - partSize * (partCount - 1);
+    }
+
+    /**
+     * 是否使用存储后端的原生分块上传
+     */
+    public boolean isMultipart() {
+        return multipartUploadId != null;
+    }
+
+    /**
+     * 是否所有分片都已上传
+     */
+    public boolean isAllPartsUploaded() {
+        return uploadedParts != null && uploadedParts.size() == partCount;
+    }
+}
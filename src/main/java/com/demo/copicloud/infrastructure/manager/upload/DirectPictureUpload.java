@@ -0,0 +1,84 @@
+package com.demo.copicloud.infrastructure.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.utils.ThrowUtils;
+import com.demo.copicloud.interfaces.dto.picture.UploadPictureResult;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+public class DirectPictureUpload extends PictureUploadTemplate {
+
+    @Resource
+    private DirectUploadManager directUploadManager;
+
+    /**
+     * 校验输入源（客户端已直传到对象存储的文件）
+     *
+     * @param inputSource 数据源
+     */
+    @Override
+    protected void validPicture(Object inputSource) {
+        DirectUploadSession session = (DirectUploadSession) inputSource;
+        ThrowUtils.throwIf(session == null, ErrorCode.PARAMS_ERROR, "上传不存在或已过期");
+        ThrowUtils.throwIf(!objectStorage.exists(session.getKey()), ErrorCode.PARAMS_ERROR, "文件未上传");
+        // 预签名地址无法限制文件大小，上传后再校验
+        long maxFileSize = directUploadManager.getMaxFileSize();
+        ThrowUtils.throwIf(objectStorage.getObjectLength(session.getKey()) > maxFileSize, ErrorCode.PARAMS_ERROR,
+                "文件大小不能超过 " + FileUtil.readableFileSize(maxFileSize));
+    }
+
+    /**
+     * 获取原始文件名
+     *
+     * @param inputSource 直传会话
+     */
+    @Override
+    protected String getOriginFilename(Object inputSource) {
+        DirectUploadSession session = (DirectUploadSession) inputSource;
+        return session.getFileName();
+    }
+
+    /**
+     * 使用数据万象时直接处理已上传的对象，图片内容不经过应用节点
+     *
+     * @param inputSource 数据源
+     */
+    @Override
+    protected UploadPictureResult processInPlace(Object inputSource, String uploadPathPrefix) {
+        if (!isCloudProcessing()) {
+            return null;
+        }
+        DirectUploadSession session = (DirectUploadSession) inputSource;
+        String key = session.getKey();
+        long picSize = objectStorage.getObjectLength(key);
+        CIUploadResult ciUploadResult = cosApi.processPictureObject(key, picSize);
+        UploadPictureResult uploadPictureResult = buildResult(session.getFileName(), key, picSize, ciUploadResult, null);
+        uploadPictureResult.setPicHash(this.thumbnailHash(uploadPictureResult.getThumbnailUrl()));
+        return uploadPictureResult;
+    }
+
+    /**
+     * 读取已上传的对象
+     *
+     * @param inputSource 数据源
+     */
+    @Override
+    protected PictureStream openStream(Object inputSource) {
+        DirectUploadSession session = (DirectUploadSession) inputSource;
+        return new PictureStream(objectStorage.getObject(session.getKey()),
+                objectStorage.getObjectLength(session.getKey()), null);
+    }
+
+    /**
+     * 直传的大小上限由配置决定
+     */
+    @Override
+    protected long getMaxPictureSize() {
+        return directUploadManager.getMaxFileSize();
+    }
+}
@@ -0,0 +1,208 @@
+package com.demo.copicloud.infrastructure.manager.upload;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.manager.storage.ObjectStorage;
+import com.demo.copicloud.infrastructure.manager.storage.PictureFileDeletionManager;
+import com.demo.copicloud.infrastructure.utils.ThrowUtils;
+import com.demo.copicloud.interfaces.vo.picture.DirectUploadVO;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端直传
+ * 服务端只签发短期有效的预签名上传地址，图片内容由客户端直接 PUT 到对象存储，不经过应用节点；
+ * 文件大小和类型参与签名，客户端只能上传申请时声明的大小；上传完成后客户端通知服务端，再在云端处理图片并入库
+ * 会话信息保存在 Redis 中，过期仍未完成的上传由定时任务删除已上传的文件；
+ * 完成后不再被图片引用的原文件，等上传地址过期（无法再被覆盖）后同样由定时任务删除
+ */
+@Slf4j
+@Component
+public class DirectUploadManager {
+
+    private static final String KEY_PREFIX = "CoPicCloud:directUpload:";
+
+    /**
+     * 所有未完成直传的过期时间，成员为对象键，分值为过期时间戳
+     */
+    private static final String EXPIRY_KEY = "CoPicCloud:directUpload:expiry";
+
+    /**
+     * 预签名地址有效期
+     */
+    private static final long URL_EXPIRE_SECONDS = 600L;
+
+    /**
+     * 会话有效期，需覆盖上传耗时
+     */
+    private static final long SESSION_EXPIRE_SECONDS = 3600L;
+
+    private static final Map<String, String> CONTENT_TYPE_MAP = Map.of(
+            "jpeg", "image/jpeg",
+            "jpg", "image/jpeg",
+            "png", "image/png",
+            "webp", "image/webp");
+
+    private static final String FIELD_USER_ID = "userId";
+
+    private static final String FIELD_SPACE_ID = "spaceId";
+
+    private static final String FIELD_PICTURE_ID = "pictureId";
+
+    private static final String FIELD_FILE_NAME = "fileName";
+
+    private static final String FIELD_KEY = "key";
+
+    private static final String FIELD_URL_EXPIRE_TIME = "urlExpireTime";
+
+    /**
+     * 直传的文件大小上限
+     */
+    @Value("${picture.direct-upload.max-file-size:20971520}")
+    private long maxFileSize;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    @Resource
+    private PictureFileDeletionManager pictureFileDeletionManager;
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    /**
+     * 创建直传会话并签发上传地址
+     *
+     * @param userId           用户 id
+     * @param spaceId          空间 id
+     * @param pictureId        要更新的图片 id
+     * @param fileName         原始文件名
+     * @param fileSize         文件大小
+     * @param uploadPathPrefix 上传路径前缀（space/{spaceId} 或 public/{userId}）
+     */
+    public DirectUploadVO createUpload(Long userId, Long spaceId, Long pictureId, String fileName, Long fileSize,
+                                       String uploadPathPrefix) {
+        ThrowUtils.throwIf(StrUtil.isBlank(fileName), ErrorCode.PARAMS_ERROR, "文件名不能为空");
+        String suffix = FileUtil.getSuffix(fileName);
+        String contentType = CONTENT_TYPE_MAP.get(suffix);
+        ThrowUtils.throwIf(contentType == null, ErrorCode.PARAMS_ERROR, "文件类型错误");
+        ThrowUtils.throwIf(fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件大小错误");
+        ThrowUtils.throwIf(fileSize > maxFileSize, ErrorCode.PARAMS_ERROR,
+                "文件大小不能超过 " + FileUtil.readableFileSize(maxFileSize));
+
+        String key = String.format("%s/%s_%s.%s", uploadPathPrefix, DateUtil.formatDate(new Date()),
+                RandomUtil.randomString(16), suffix);
+        Date expireTime = new Date(System.currentTimeMillis() + URL_EXPIRE_SECONDS * 1000);
+        String uploadUrl = objectStorage.generatePresignedPutUrl(key, expireTime, fileSize, contentType);
+        ThrowUtils.throwIf(uploadUrl == null, ErrorCode.OPERATION_ERROR, "当前存储不支持直传");
+
+        String uploadId = IdUtil.fastSimpleUUID();
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, String.valueOf(userId));
+        if (spaceId != null) {
+            fields.put(FIELD_SPACE_ID, String.valueOf(spaceId));
+        }
+        if (pictureId != null) {
+            fields.put(FIELD_PICTURE_ID, String.valueOf(pictureId));
+        }
+        fields.put(FIELD_FILE_NAME, fileName);
+        fields.put(FIELD_KEY, key);
+        fields.put(FIELD_URL_EXPIRE_TIME, String.valueOf(expireTime.getTime()));
+        stringRedisTemplate.opsForHash().putAll(KEY_PREFIX + uploadId, fields);
+        stringRedisTemplate.expire(KEY_PREFIX + uploadId, SESSION_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        stringRedisTemplate.opsForZSet().add(EXPIRY_KEY, key,
+                System.currentTimeMillis() + SESSION_EXPIRE_SECONDS * 1000);
+
+        DirectUploadVO directUploadVO = new DirectUploadVO();
+        directUploadVO.setUploadId(uploadId);
+        directUploadVO.setKey(key);
+        directUploadVO.setUploadUrl(uploadUrl);
+        directUploadVO.setContentType(contentType);
+        directUploadVO.setExpireTime(expireTime);
+        return directUploadVO;
+    }
+
+    /**
+     * 查询直传会话
+     *
+     * @param uploadId 上传 id
+     * @return 会话不存在或已过期时返回 null
+     */
+    public DirectUploadSession getUpload(String uploadId) {
+        if (StrUtil.isBlank(uploadId)) {
+            return null;
+        }
+        Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(KEY_PREFIX + uploadId);
+        if (CollUtil.isEmpty(fields)) {
+            return null;
+        }
+        DirectUploadSession session = new DirectUploadSession();
+        session.setUploadId(uploadId);
+        session.setUserId(Long.parseLong(fields.get(FIELD_USER_ID).toString()));
+        session.setSpaceId(toLong(fields.get(FIELD_SPACE_ID)));
+        session.setPictureId(toLong(fields.get(FIELD_PICTURE_ID)));
+        session.setFileName(fields.get(FIELD_FILE_NAME).toString());
+        session.setKey(fields.get(FIELD_KEY).toString());
+        session.setUrlExpireTime(toLong(fields.get(FIELD_URL_EXPIRE_TIME)));
+        return session;
+    }
+
+    /**
+     * 结束直传会话
+     *
+     * @param session    直传会话
+     * @param keepObject 原文件是否被图片引用；不再引用时等上传地址过期后删除，避免过期前被覆盖成任意内容而不占用额度
+     */
+    public void finishUpload(DirectUploadSession session, boolean keepObject) {
+        stringRedisTemplate.delete(KEY_PREFIX + session.getUploadId());
+        if (keepObject) {
+            stringRedisTemplate.opsForZSet().remove(EXPIRY_KEY, session.getKey());
+            return;
+        }
+        long deleteTime = session.getUrlExpireTime() == null ? System.currentTimeMillis()
+                : Math.max(System.currentTimeMillis(), session.getUrlExpireTime());
+        stringRedisTemplate.opsForZSet().add(EXPIRY_KEY, session.getKey(), deleteTime);
+    }
+
+    /**
+     * 清理过期未完成的直传（客户端已上传但未通知服务端的文件）
+     */
+    @Scheduled(initialDelay = 10, fixedDelay = 60, timeUnit = TimeUnit.MINUTES)
+    public void cleanExpiredUploads() {
+        Set<String> expiredKeys = stringRedisTemplate.opsForZSet()
+                .rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis());
+        if (CollUtil.isEmpty(expiredKeys)) {
+            return;
+        }
+        List<String> removedKeys = new ArrayList<>();
+        for (String key : expiredKeys) {
+            // 多个节点同时清理时只由移除成功的节点处理
+            Long removed = stringRedisTemplate.opsForZSet().remove(EXPIRY_KEY, key);
+            if (removed != null && removed > 0) {
+                removedKeys.add(key);
+            }
+        }
+        pictureFileDeletionManager.enqueueKeys(removedKeys);
+        log.info("清理过期直传 {} 个", removedKeys.size());
+    }
+
+    private Long toLong(Object value) {
+        return value == null ? null : Long.parseLong(value.toString());
+    }
+}
@@ -0,0 +1,45 @@
+package com.demo.copicloud.infrastructure.manager.upload;
+
+import lombok.Data;
+
+/**
+ * 直传会话
+ */
+@Data
+public class DirectUploadSession {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 申请直传的用户 id
+     */
+    private Long userId;
+
+    /**
+     * 空间 id，为空表示公共图库
+     */
+    private Long spaceId;
+
+    /**
+     * 要更新的图片 id，为空表示新增
+     */
+    private Long pictureId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 对象键
+     */
+    private String key;
+
+    /**
+     * 预签名上传地址的过期时间戳，此前对象仍可能被覆盖
+     */
+    private Long urlExpireTime;
+}
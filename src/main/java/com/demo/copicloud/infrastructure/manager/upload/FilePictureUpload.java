@@ -6,7 +6,6 @@ import com.demo.copicloud.infrastructure.utils.ThrowUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
@@ -45,15 +44,14 @@ public class FilePictureUpload extends PictureUploadTemplate {
     }
 
     /**
-     * 处理输入源并生成本地临时文件
+     * 打开上传文件的输入流，直接上传到对象存储
      *
      * @param inputSource 数据源
-     * @param file 文件
      */
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureStream openStream(Object inputSource) throws Exception {
         MultipartFile multipartFile = (MultipartFile) inputSource;
-        multipartFile.transferTo(file);
+        return new PictureStream(multipartFile.getInputStream(), multipartFile.getSize(), null);
     }
 }
 
@@ -0,0 +1,123 @@
+package com.demo.copicloud.infrastructure.manager.upload;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.domain.picture.valueobject.PictureFetchJobStatusEnum;
+import com.demo.copicloud.interfaces.vo.picture.PictureFetchJobVO;
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量抓取图片任务进度
+ * 进度保存在 Redis Hash 中，任意节点都可以查询；任务结束一天后自动过期
+ */
+@Component
+public class PictureFetchJobManager {
+
+    private static final String KEY_PREFIX = "CoPicCloud:pictureFetchJob:";
+
+    private static final long EXPIRE_SECONDS = 24 * 3600L;
+
+    private static final String FIELD_STATUS = "status";
+
+    private static final String FIELD_COUNT = "count";
+
+    private static final String FIELD_CANDIDATE_COUNT = "candidateCount";
+
+    private static final String FIELD_SUCCESS_COUNT = "successCount";
+
+    private static final String FIELD_FAIL_COUNT = "failCount";
+
+    private static final String FIELD_ERROR_MESSAGE = "errorMessage";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 创建任务
+     *
+     * @param count 目标抓取数量
+     * @return 任务 id
+     */
+    public String createJob(int count) {
+        String jobId = IdUtil.fastSimpleUUID();
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_STATUS, PictureFetchJobStatusEnum.RUNNING.getValue());
+        fields.put(FIELD_COUNT, String.valueOf(count));
+        fields.put(FIELD_CANDIDATE_COUNT, "0");
+        fields.put(FIELD_SUCCESS_COUNT, "0");
+        fields.put(FIELD_FAIL_COUNT, "0");
+        stringRedisTemplate.opsForHash().putAll(KEY_PREFIX + jobId, fields);
+        stringRedisTemplate.expire(KEY_PREFIX + jobId, EXPIRE_SECONDS, TimeUnit.SECONDS);
+        return jobId;
+    }
+
+    /**
+     * 记录抓取到的候选图片数量
+     */
+    public void setCandidateCount(String jobId, int candidateCount) {
+        stringRedisTemplate.opsForHash().put(KEY_PREFIX + jobId, FIELD_CANDIDATE_COUNT, String.valueOf(candidateCount));
+    }
+
+    /**
+     * 累加已入库的图片数量
+     */
+    public void incrementSuccessCount(String jobId, int delta) {
+        stringRedisTemplate.opsForHash().increment(KEY_PREFIX + jobId, FIELD_SUCCESS_COUNT, delta);
+    }
+
+    /**
+     * 累加上传失败的图片数量
+     */
+    public void incrementFailCount(String jobId) {
+        stringRedisTemplate.opsForHash().increment(KEY_PREFIX + jobId, FIELD_FAIL_COUNT, 1);
+    }
+
+    /**
+     * 结束任务
+     *
+     * @param jobId        任务 id
+     * @param status       最终状态
+     * @param errorMessage 失败原因，成功时为空
+     */
+    public void finishJob(String jobId, PictureFetchJobStatusEnum status, String errorMessage) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_STATUS, status.getValue());
+        if (StrUtil.isNotBlank(errorMessage)) {
+            fields.put(FIELD_ERROR_MESSAGE, errorMessage);
+        }
+        stringRedisTemplate.opsForHash().putAll(KEY_PREFIX + jobId, fields);
+    }
+
+    /**
+     * 查询任务进度
+     *
+     * @param jobId 任务 id
+     * @return 任务进度，任务不存在或已过期时返回 null
+     */
+    public PictureFetchJobVO getJob(String jobId) {
+        Map<Object, Object> fields = stringRedisTemplate.opsForHash().entries(KEY_PREFIX + jobId);
+        if (CollUtil.isEmpty(fields)) {
+            return null;
+        }
+        PictureFetchJobVO pictureFetchJobVO = new PictureFetchJobVO();
+        pictureFetchJobVO.setJobId(jobId);
+        pictureFetchJobVO.setStatus((String) fields.get(FIELD_STATUS));
+        pictureFetchJobVO.setCount(toInt(fields.get(FIELD_COUNT)));
+        pictureFetchJobVO.setCandidateCount(toInt(fields.get(FIELD_CANDIDATE_COUNT)));
+        pictureFetchJobVO.setSuccessCount(toInt(fields.get(FIELD_SUCCESS_COUNT)));
+        pictureFetchJobVO.setFailCount(toInt(fields.get(FIELD_FAIL_COUNT)));
+        pictureFetchJobVO.setErrorMessage((String) fields.get(FIELD_ERROR_MESSAGE));
+        return pictureFetchJobVO;
+    }
+
+    private Integer toInt(Object value) {
+        return value == null ? 0 : Integer.parseInt(value.toString());
+    }
+}
@@ -3,23 +3,39 @@ package com.demo.copicloud.infrastructure.manager.upload;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.HexUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
+import com.demo.copicloud.domain.picture.entity.PictureObject;
+import com.demo.copicloud.domain.picture.repository.PictureObjectRepository;
 import com.demo.copicloud.infrastructure.api.COS.CosApi;
-import com.demo.copicloud.infrastructure.config.CosClientConfig;
 import com.demo.copicloud.infrastructure.exception.BusinessException;
 import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.manager.image.ImageProcessResult;
+import com.demo.copicloud.infrastructure.manager.image.ImageProcessor;
+import com.demo.copicloud.infrastructure.manager.storage.ObjectStorage;
+import com.demo.copicloud.infrastructure.utils.PerceptualHashUtil;
+import com.demo.copicloud.infrastructure.utils.ThrowUtils;
 import com.demo.copicloud.interfaces.dto.picture.UploadPictureResult;
 import com.qcloud.cos.model.PutObjectResult;
 import com.qcloud.cos.model.ciModel.persistence.CIObject;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
 import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
 import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
 import jakarta.annotation.Resource;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
 
-import java.io.File;
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 当代码中有部分重复代码时 可以提取公共部分 定义一个模板方法 抽象类
@@ -32,7 +48,34 @@ public abstract class PictureUploadTemplate {
     protected CosApi cosApi;
 
     @Resource
-    protected CosClientConfig cosClientConfig;
+    protected ObjectStorage objectStorage;
+
+    @Resource
+    protected PictureObjectRepository pictureObjectRepository;
+
+    @Resource
+    protected RedissonClient redissonClient;
+
+    @Resource
+    protected ImageProcessor imageProcessor;
+
+    /**
+     * 图片处理方式：ci 使用对象存储的数据万象处理，local 使用本地图片处理引擎
+     */
+    @Value("${picture.image-processor:ci}")
+    private String imageProcessorType;
+
+    private static final String LOCAL_PROCESSOR = "local";
+
+    /**
+     * 按内容寻址上传的对象键前缀，对象键为 {前缀}/{sha256}.{后缀}
+     */
+    private static final String CONTENT_PATH_PREFIX = "objects";
+
+    /**
+     * 默认图片大小上限
+     */
+    private static final long MAX_PICTURE_SIZE = 2 * 1024 * 1024L;
 
     /**
      * 模板方法 定义上传流程
@@ -41,56 +84,149 @@ public abstract class PictureUploadTemplate {
     public final UploadPictureResult uploadPicture(Object inputSource, String uploadPathPrefix) {
         // 1. 校验图片
         validPicture(inputSource);
-
-        // 2. 图片上传地址
-        String uuid = RandomUtil.randomString(16);
+        // 图片已在对象存储中时（客户端直传、原生分片上传），子类可直接在云端处理，无需读取图片内容
+        UploadPictureResult processedResult = processInPlace(inputSource, uploadPathPrefix);
+        if (processedResult != null) {
+            return processedResult;
+        }
         // 获取原始对象名称
         String originFilename = getOriginFilename(inputSource);
-        // 构造上传文件名
-        String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
-                        FileUtil.getSuffix(originFilename));
-        // 构造上传路径
-        String uploadPath = String.format("%s/%s", uploadPathPrefix, uploadFilename);
+        String suffix = FileUtil.getSuffix(originFilename);
 
         File file = null;
         try {
-            // 3. 创建临时文件
-            file = File.createTempFile(uploadPath, null);
-            // 处理文件来源（本地或 URL）
-            processFile(inputSource, file);
-
-            // 4. 上传图片到对象存储
-            PutObjectResult putObjectResult = cosApi.putPictureObject(uploadPath, file);
-            // 获取到图片信息
-            ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
-
-            // 获取处理后的图片信息
-            ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-            List<CIObject> objectList = processResults.getObjectList();
-            if (CollUtil.isNotEmpty(objectList)) {
-                // 获取压缩图
-                CIObject compressedCiObject = objectList.get(0);
-                // 缩略图默认为压缩处理后的图片
-                CIObject thumbnailCiObject = compressedCiObject;
-                // 判断当有缩略图时才获取
-                if (objectList.size() > 1) {
-                    // 获取缩略图
-                    thumbnailCiObject = objectList.get(1);
-                }
-                // 封装压缩图返回结果
-                return buildResult(originFilename, compressedCiObject, thumbnailCiObject,imageInfo);
+            // 2. 图片内容写入临时文件，同时计算内容哈希，再计算感知哈希
+            file = File.createTempFile("picture_", null);
+            String contentHash = writePicture(inputSource, file);
+            Long picHash = PerceptualHashUtil.dHash(file);
+            // 3. 按内容寻址上传，相同内容只上传一次
+            return storePicture(originFilename, suffix, uploadPathPrefix, file, contentHash, picHash);
+        } catch (IOException e) {
+            log.error("创建临时文件失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        } finally {
+            // 清理临时文件
+            deleteTempFile(file);
+        }
+    }
+
+    /**
+     * 按内容寻址上传，已存在相同内容的对象时直接复用
+     */
+    private UploadPictureResult storePicture(String originFilename, String suffix, String uploadPathPrefix,
+                                             File file, String contentHash, Long picHash) {
+        RLock lock = redissonClient.getLock(PictureObjectRepository.LOCK_KEY_PREFIX + contentHash);
+        boolean locked = false;
+        try {
+            // 不指定租期，由看门狗续期到释放为止，覆盖上传和图片处理的耗时
+            locked = lock.tryLock(3, -1, TimeUnit.SECONDS);
+            if (!locked) {
+                // 获取锁失败时不做去重，按随机路径上传
+                return putPicture(originFilename, buildUploadPath(uploadPathPrefix, suffix), file, picHash);
+            }
+            // 已存在相同内容的对象，直接复用，不再上传和处理
+            PictureObject pictureObject = pictureObjectRepository.getByContentHash(contentHash);
+            if (pictureObject != null) {
+                return buildResult(originFilename, pictureObject);
             }
-            // 5. 封装返回结果
-            return buildResult(originFilename, file, uploadPath, imageInfo);
+            String uploadPath = String.format("%s/%s.%s", CONTENT_PATH_PREFIX, contentHash, suffix);
+            UploadPictureResult uploadPictureResult = putPicture(originFilename, uploadPath, file, picHash);
+            // 记录存储对象，引用数在图片入库时增加；入库失败遗留的记录由 PictureFileDeletionManager 定时清理
+            pictureObjectRepository.save(toPictureObject(contentHash, uploadPictureResult));
+            uploadPictureResult.setContentHash(contentHash);
+            return uploadPictureResult;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
             log.error("图片上传到对象存储失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
         } finally {
-            // 6. 清理临时文件
-            deleteTempFile(file);
+            if (locked && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
         }
     }
 
+    /**
+     * 将图片内容写入临时文件，同时计算内容 SHA-256，图片内容不整体读入内存
+     * 输入源声明了长度时先按声明的长度校验大小，写入时再按实际长度校验
+     *
+     * @return 内容 SHA-256
+     */
+    private String writePicture(Object inputSource, File file) {
+        long maxPictureSize = getMaxPictureSize();
+        try (PictureStream pictureStream = openStream(inputSource)) {
+            ThrowUtils.throwIf(pictureStream.getLength() > maxPictureSize, ErrorCode.PARAMS_ERROR,
+                    "文件大小不能超过 " + FileUtil.readableFileSize(maxPictureSize));
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            try (InputStream inputStream = new DigestInputStream(pictureStream.getInputStream(), messageDigest);
+                 OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+                byte[] buffer = new byte[8192];
+                long size = 0L;
+                int n;
+                while ((n = inputStream.read(buffer)) != -1) {
+                    size += n;
+                    ThrowUtils.throwIf(size > maxPictureSize, ErrorCode.PARAMS_ERROR,
+                            "文件大小不能超过 " + FileUtil.readableFileSize(maxPictureSize));
+                    outputStream.write(buffer, 0, n);
+                }
+            }
+            return HexUtil.encodeHexStr(messageDigest.digest());
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("读取图片失败", e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+        }
+    }
+
+    /**
+     * 上传图片到对象存储并封装返回结果
+     */
+    private UploadPictureResult putPicture(String originFilename, String uploadPath, File file, Long picHash) {
+        if (!isCloudProcessing()) {
+            // 本地处理需要解码整张图片，相比之下原图内容读入内存的开销很小
+            return putPictureWithLocalProcessor(originFilename, uploadPath, FileUtil.readBytes(file), picHash);
+        }
+        PutObjectResult putObjectResult = cosApi.putPictureObject(uploadPath, file);
+        return buildResult(originFilename, uploadPath, file.length(), putObjectResult.getCiUploadResult(), picHash);
+    }
+
+    /**
+     * 按内容寻址的对象键（包括同目录下的压缩图、缩略图和副本）对应的内容哈希
+     *
+     * @param key 对象键
+     * @return 内容哈希，不是按内容寻址的对象时返回 null
+     */
+    public static String getContentHash(String key) {
+        String prefix = CONTENT_PATH_PREFIX + "/";
+        // SHA-256 的十六进制长度
+        int hashLength = 64;
+        if (key == null || key.length() < prefix.length() + hashLength || !key.startsWith(prefix)) {
+            return null;
+        }
+        String contentHash = key.substring(prefix.length(), prefix.length() + hashLength);
+        return contentHash.chars().allMatch(c -> Character.digit(c, 16) >= 0) ? contentHash : null;
+    }
+
+    /**
+     * 随机上传路径：{前缀}/{日期}_{随机串}.{后缀}
+     */
+    protected String buildUploadPath(String uploadPathPrefix, String suffix) {
+        return String.format("%s/%s_%s.%s", uploadPathPrefix, DateUtil.formatDate(new Date()),
+                RandomUtil.randomString(16), suffix);
+    }
+
+    /**
+     * 是否使用数据万象处理图片（存储后端不支持数据万象时只能在本地处理）
+     */
+    protected boolean isCloudProcessing() {
+        return !LOCAL_PROCESSOR.equals(imageProcessorType) && objectStorage.supportsImageProcessing();
+    }
+
     // 抽象方法 子类须重写
     /**
      * 校验输入源（本地文件或 URL）
@@ -103,14 +239,76 @@ public abstract class PictureUploadTemplate {
     protected abstract String getOriginFilename(Object inputSource);
 
     /**
-     * 处理输入源并生成本地临时文件
+     * 打开输入源的输入流
+     *
+     * @return 输入流及其声明的长度（未知时为 -1）
+     */
+    protected abstract PictureStream openStream(Object inputSource) throws Exception;
+
+    /**
+     * 直接处理已在对象存储中的图片，子类可按输入源重写
+     *
+     * @param inputSource      输入源
+     * @param uploadPathPrefix 上传路径前缀，处理结果需要另存时使用
+     * @return 处理结果；返回 null 时按常规流程读取图片内容后上传
+     */
+    protected UploadPictureResult processInPlace(Object inputSource, String uploadPathPrefix) {
+        return null;
+    }
+
+    /**
+     * 由缩略图计算感知哈希（感知哈希本身只取 9x8 灰度，缩略图足够），用于云端处理的图片，失败时返回 null
      */
-    protected abstract void processFile(Object inputSource, File file) throws Exception;
+    protected Long thumbnailHash(String thumbnailUrl) {
+        try (InputStream inputStream = objectStorage.getObject(objectStorage.getKey(thumbnailUrl))) {
+            return PerceptualHashUtil.dHash(IoUtil.readBytes(inputStream, false));
+        } catch (Exception e) {
+            log.warn("计算云端处理图片的感知哈希失败, url = {}", thumbnailUrl, e);
+            return null;
+        }
+    }
+
+    /**
+     * 图片大小上限，子类可按输入源放宽
+     */
+    protected long getMaxPictureSize() {
+        return MAX_PICTURE_SIZE;
+    }
+
+    /**
+     * 根据对象存储的数据万象处理结果封装返回结果
+     */
+    protected UploadPictureResult buildResult(String originFilename, String uploadPath, long picSize,
+                                              CIUploadResult ciUploadResult, Long picHash) {
+        // 获取到图片信息
+        ImageInfo imageInfo = ciUploadResult.getOriginalInfo().getImageInfo();
+        // 获取处理后的图片信息
+        ProcessResults processResults = ciUploadResult.getProcessResults();
+        List<CIObject> objectList = processResults.getObjectList();
+        UploadPictureResult uploadPictureResult;
+        if (CollUtil.isNotEmpty(objectList)) {
+            // 获取压缩图
+            CIObject compressedCiObject = objectList.get(0);
+            // 缩略图默认为压缩处理后的图片
+            CIObject thumbnailCiObject = compressedCiObject;
+            // 判断当有缩略图时才获取
+            if (objectList.size() > 1) {
+                // 获取缩略图
+                thumbnailCiObject = objectList.get(1);
+            }
+            // 封装压缩图返回结果
+            uploadPictureResult = buildResult(originFilename, compressedCiObject, thumbnailCiObject, imageInfo);
+        } else {
+            uploadPictureResult = buildResult(originFilename, picSize, uploadPath, imageInfo);
+        }
+        uploadPictureResult.setPicHash(picHash);
+        return uploadPictureResult;
+    }
 
     /**
      * 封装返回结果
      */
-    private UploadPictureResult buildResult(String originFilename, File file, String uploadPath, ImageInfo imageInfo) {
+    private UploadPictureResult buildResult(String originFilename, long picSize, String uploadPath, ImageInfo imageInfo) {
         UploadPictureResult uploadPictureResult = new UploadPictureResult();
         int picWidth = imageInfo.getWidth();
         int picHeight = imageInfo.getHeight();
@@ -120,9 +318,9 @@ public abstract class PictureUploadTemplate {
         uploadPictureResult.setPicHeight(picHeight);
         uploadPictureResult.setPicScale(picScale);
         uploadPictureResult.setPicFormat(imageInfo.getFormat());
-        uploadPictureResult.setPicSize(FileUtil.size(file));
+        uploadPictureResult.setPicSize(picSize);
         uploadPictureResult.setPicColor(imageInfo.getAve());
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        uploadPictureResult.setUrl(objectStorage.getUrl(uploadPath));
         return uploadPictureResult;
     }
 
@@ -142,13 +340,91 @@ public abstract class PictureUploadTemplate {
         uploadPictureResult.setPicColor(imageInfo.getAve());
         uploadPictureResult.setPicSize(compressedCiObject.getSize().longValue());
         // 设置图片为压缩后的地址
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
+        uploadPictureResult.setUrl(objectStorage.getUrl(compressedCiObject.getKey()));
         // 设置缩略图
-        uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnailCiObject.getKey());
+        uploadPictureResult.setThumbnailUrl(objectStorage.getUrl(thumbnailCiObject.getKey()));
+
+        return uploadPictureResult;
+    }
+
+    /**
+     * 本地生成压缩图和缩略图后分别上传，对象键与数据万象的处理规则一致
+     */
+    private UploadPictureResult putPictureWithLocalProcessor(String originFilename, String uploadPath, byte[] data,
+                                                             Long picHash) {
+        ImageProcessResult imageProcessResult = imageProcessor.process(data);
+        // 上传原图
+        objectStorage.putObject(uploadPath, new ByteArrayInputStream(data), data.length);
+        // 与原图同目录：{文件名}.{格式}、{文件名}_thumbnail.{格式}
+        String keyPrefix = uploadPath.substring(0, uploadPath.lastIndexOf('/') + 1) + FileUtil.mainName(uploadPath);
+        ImageProcessResult.EncodedImage compressed = imageProcessResult.getCompressed();
+        String compressedKey = keyPrefix + "." + compressed.getFormat();
+        objectStorage.putObject(compressedKey, new ByteArrayInputStream(compressed.getData()),
+                compressed.getData().length);
+        // 缩略图默认为压缩处理后的图片
+        String thumbnailKey = compressedKey;
+        ImageProcessResult.EncodedImage thumbnail = imageProcessResult.getThumbnail();
+        if (thumbnail != null) {
+            thumbnailKey = keyPrefix + "_thumbnail." + thumbnail.getFormat();
+            objectStorage.putObject(thumbnailKey, new ByteArrayInputStream(thumbnail.getData()),
+                    thumbnail.getData().length);
+        }
 
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        int picWidth = compressed.getWidth();
+        int picHeight = compressed.getHeight();
+        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
+        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(compressed.getFormat());
+        uploadPictureResult.setPicColor(imageProcessResult.getAveColor());
+        uploadPictureResult.setPicSize((long) compressed.getData().length);
+        uploadPictureResult.setUrl(objectStorage.getUrl(compressedKey));
+        uploadPictureResult.setThumbnailUrl(objectStorage.getUrl(thumbnailKey));
+        uploadPictureResult.setPicHash(picHash);
         return uploadPictureResult;
     }
 
+    /**
+     * 根据已存在的存储对象封装返回结果
+     */
+    private UploadPictureResult buildResult(String originFilename, PictureObject pictureObject) {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+        uploadPictureResult.setPicWidth(pictureObject.getPicWidth());
+        uploadPictureResult.setPicHeight(pictureObject.getPicHeight());
+        uploadPictureResult.setPicScale(pictureObject.getPicScale());
+        uploadPictureResult.setPicFormat(pictureObject.getPicFormat());
+        uploadPictureResult.setPicSize(pictureObject.getPicSize());
+        uploadPictureResult.setPicColor(pictureObject.getPicColor());
+        uploadPictureResult.setPicHash(pictureObject.getPicHash());
+        uploadPictureResult.setUrl(pictureObject.getUrl());
+        uploadPictureResult.setThumbnailUrl(pictureObject.getThumbnailUrl());
+        uploadPictureResult.setContentHash(pictureObject.getContentHash());
+        return uploadPictureResult;
+    }
+
+    /**
+     * 由上传结果构造存储对象
+     */
+    private PictureObject toPictureObject(String contentHash, UploadPictureResult uploadPictureResult) {
+        PictureObject pictureObject = new PictureObject();
+        pictureObject.setContentHash(contentHash);
+        pictureObject.setUrl(uploadPictureResult.getUrl());
+        pictureObject.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+        pictureObject.setPicSize(uploadPictureResult.getPicSize());
+        pictureObject.setPicWidth(uploadPictureResult.getPicWidth());
+        pictureObject.setPicHeight(uploadPictureResult.getPicHeight());
+        pictureObject.setPicScale(uploadPictureResult.getPicScale());
+        pictureObject.setPicFormat(uploadPictureResult.getPicFormat());
+        pictureObject.setPicColor(uploadPictureResult.getPicColor());
+        pictureObject.setPicHash(uploadPictureResult.getPicHash());
+        pictureObject.setRefCount(0);
+        return pictureObject;
+    }
+
     /**
      * 删除临时文件
      */
@@ -161,7 +437,34 @@ public abstract class PictureUploadTemplate {
             log.error("临时文件删除失败, 文件路径：{}", file.getAbsolutePath());
         }
     }
-}
 
+    /**
+     * 输入流及其声明的长度（未知时为 -1），关闭时同时释放关联的资源（例如 HTTP 响应）
+     */
+    @Getter
+    protected static class PictureStream implements Closeable {
+
+        private final InputStream inputStream;
+
+        private final long length;
 
+        private final Closeable resource;
 
+        public PictureStream(InputStream inputStream, long length, Closeable resource) {
+            this.inputStream = inputStream;
+            this.length = length;
+            this.resource = resource;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                inputStream.close();
+            } finally {
+                if (resource != null) {
+                    resource.close();
+                }
+            }
+        }
+    }
+}
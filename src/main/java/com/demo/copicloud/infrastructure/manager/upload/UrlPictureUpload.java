@@ -1,6 +1,8 @@
 package com.demo.copicloud.infrastructure.manager.upload;
 
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
 import cn.hutool.http.HttpStatus;
 import cn.hutool.http.HttpUtil;
@@ -10,7 +12,6 @@ import com.demo.copicloud.infrastructure.exception.ErrorCode;
 import com.demo.copicloud.infrastructure.utils.ThrowUtils;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
@@ -84,14 +85,20 @@ public class UrlPictureUpload extends PictureUploadTemplate{
     }
 
     /**
-     * 处理输入源并生成本地临时文件
+     * 下载图片并返回响应体输入流
+     * 响应声明的 Content-Length 用于提前校验大小，未声明时长度为 -1，读取时按实际长度校验
      *
      * @param inputSource 数据源 url
-     * @param file 本地临时文件
      */
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureStream openStream(Object inputSource) {
         String fileUrl = (String) inputSource;
-        HttpUtil.downloadFile(fileUrl, file);
+        HttpResponse httpResponse = HttpRequest.get(fileUrl).executeAsync();
+        if (httpResponse.getStatus() != HttpStatus.HTTP_OK) {
+            httpResponse.close();
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "图片下载失败");
+        }
+        long fileSize = NumberUtil.parseLong(httpResponse.header("Content-Length"), -1L);
+        return new PictureStream(httpResponse.bodyStream(), fileSize, httpResponse);
     }
 }
@@ -0,0 +1,12 @@
+package com.demo.copicloud.infrastructure.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.demo.copicloud.domain.picture.entity.PictureFileDeletion;
+
+/**
+* @description 针对表【picture_file_deletion(对象存储文件删除队列)】的数据库操作Mapper
+* @Entity com.demo.copicloud.domain.picture.entity.PictureFileDeletion
+*/
+public interface PictureFileDeletionMapper extends BaseMapper<PictureFileDeletion> {
+
+}
@@ -2,6 +2,8 @@ package com.demo.copicloud.infrastructure.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.demo.copicloud.domain.picture.entity.Picture;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
 * @author Zangdibo
@@ -11,6 +13,36 @@ import com.demo.copicloud.domain.picture.entity.Picture;
 */
 public interface PictureMapper extends BaseMapper<Picture> {
 
+    /**
+     * 流式查询空间内图片的 id 和主色调
+     *
+     * @param spaceId 空间 id
+     * @param handler 逐行处理器
+     */
+    void scanPictureColor(@Param("spaceId") Long spaceId, ResultHandler<Picture> handler);
+
+    /**
+     * 流式查询空间内图片的 id 和感知哈希
+     *
+     * @param spaceId 空间 id（为空表示公共图库）
+     * @param handler 逐行处理器
+     */
+    void scanPictureHash(@Param("spaceId") Long spaceId, ResultHandler<Picture> handler);
+
+    /**
+     * 流式查询单个空间或公共图库的图片搜索字段（id、spaceId、名称、简介、标签、分类）
+     *
+     * @param spaceId 空间 id，为空时查询公共图库
+     * @param handler 逐行处理器
+     */
+    void scanPictureSearchFields(@Param("spaceId") Long spaceId, ResultHandler<Picture> handler);
+
+    /**
+     * 流式查询所有带标签图片的 id、spaceId 和标签
+     *
+     * @param handler 逐行处理器
+     */
+    void scanPictureTags(ResultHandler<Picture> handler);
 }
 
 
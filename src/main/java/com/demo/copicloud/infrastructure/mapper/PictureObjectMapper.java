@@ -0,0 +1,12 @@
+package com.demo.copicloud.infrastructure.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.demo.copicloud.domain.picture.entity.PictureObject;
+
+/**
+* @description 针对表【picture_object(图片存储对象)】的数据库操作Mapper
+* @Entity com.demo.copicloud.domain.picture.entity.PictureObject
+*/
+public interface PictureObjectMapper extends BaseMapper<PictureObject> {
+
+}
@@ -0,0 +1,12 @@
+package com.demo.copicloud.infrastructure.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.demo.copicloud.domain.picture.entity.PictureRendition;
+
+/**
+* @description 针对表【picture_rendition(图片多分辨率副本)】的数据库操作Mapper
+* @Entity com.demo.copicloud.domain.picture.entity.PictureRendition
+*/
+public interface PictureRenditionMapper extends BaseMapper<PictureRendition> {
+
+}
@@ -0,0 +1,12 @@
+package com.demo.copicloud.infrastructure.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.demo.copicloud.domain.picture.entity.PictureTag;
+
+/**
+* @description 针对表【picture_tag(图片标签关联)】的数据库操作Mapper
+* @Entity com.demo.copicloud.domain.picture.entity.PictureTag
+*/
+public interface PictureTagMapper extends BaseMapper<PictureTag> {
+
+}
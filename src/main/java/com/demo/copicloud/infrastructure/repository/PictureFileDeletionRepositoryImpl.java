@@ -0,0 +1,59 @@
+package com.demo.copicloud.infrastructure.repository;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.demo.copicloud.domain.picture.entity.PictureFileDeletion;
+import com.demo.copicloud.domain.picture.repository.PictureFileDeletionRepository;
+import com.demo.copicloud.infrastructure.mapper.PictureFileDeletionMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class PictureFileDeletionRepositoryImpl extends ServiceImpl<PictureFileDeletionMapper, PictureFileDeletion>
+        implements PictureFileDeletionRepository {
+
+    @Override
+    public void enqueue(Collection<String> objectKeys) {
+        if (CollUtil.isEmpty(objectKeys)) {
+            return;
+        }
+        Date now = new Date();
+        List<PictureFileDeletion> deletionList = objectKeys.stream()
+                .filter(StrUtil::isNotBlank)
+                .distinct()
+                .map(objectKey -> {
+                    PictureFileDeletion deletion = new PictureFileDeletion();
+                    deletion.setObjectKey(objectKey);
+                    deletion.setRetryCount(0);
+                    deletion.setNextRetryTime(now);
+                    return deletion;
+                })
+                .collect(Collectors.toList());
+        this.saveBatch(deletionList);
+    }
+
+    @Override
+    public List<PictureFileDeletion> listDue(int maxRetryCount, int limit) {
+        return this.lambdaQuery()
+                .lt(PictureFileDeletion::getRetryCount, maxRetryCount)
+                .le(PictureFileDeletion::getNextRetryTime, new Date())
+                .orderByAsc(PictureFileDeletion::getId)
+                .last("LIMIT " + limit)
+                .list();
+    }
+
+    @Override
+    public void markFailed(Long id, int retryCount, Date nextRetryTime, String lastError) {
+        this.lambdaUpdate()
+                .eq(PictureFileDeletion::getId, id)
+                .set(PictureFileDeletion::getRetryCount, retryCount)
+                .set(PictureFileDeletion::getNextRetryTime, nextRetryTime)
+                .set(PictureFileDeletion::getLastError, StrUtil.maxLength(lastError, 500))
+                .update();
+    }
+}
@@ -0,0 +1,70 @@
+package com.demo.copicloud.infrastructure.repository;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.demo.copicloud.domain.picture.entity.PictureObject;
+import com.demo.copicloud.domain.picture.repository.PictureObjectRepository;
+import com.demo.copicloud.infrastructure.mapper.PictureObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Service
+public class PictureObjectRepositoryImpl extends ServiceImpl<PictureObjectMapper, PictureObject>
+        implements PictureObjectRepository {
+
+    @Override
+    public PictureObject getByContentHash(String contentHash) {
+        return this.lambdaQuery()
+                .eq(PictureObject::getContentHash, contentHash)
+                .one();
+    }
+
+    @Override
+    public PictureObject getByUrl(String url) {
+        return this.lambdaQuery()
+                .eq(PictureObject::getUrl, url)
+                .one();
+    }
+
+    @Override
+    public boolean acquire(String contentHash) {
+        return this.lambdaUpdate()
+                .eq(PictureObject::getContentHash, contentHash)
+                .setSql("refCount = refCount + 1")
+                .update();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean release(Long id) {
+        this.lambdaUpdate()
+                .eq(PictureObject::getId, id)
+                .gt(PictureObject::getRefCount, 0)
+                .setSql("refCount = refCount - 1")
+                .update();
+        return this.lambdaUpdate()
+                .eq(PictureObject::getId, id)
+                .le(PictureObject::getRefCount, 0)
+                .remove();
+    }
+
+    @Override
+    public List<PictureObject> listUnreferenced(Date createdBefore, int limit) {
+        return this.lambdaQuery()
+                .eq(PictureObject::getRefCount, 0)
+                .lt(PictureObject::getCreateTime, createdBefore)
+                .orderByAsc(PictureObject::getId)
+                .last("LIMIT " + limit)
+                .list();
+    }
+
+    @Override
+    public boolean removeUnreferenced(Long id) {
+        return this.lambdaUpdate()
+                .eq(PictureObject::getId, id)
+                .eq(PictureObject::getRefCount, 0)
+                .remove();
+    }
+}
@@ -0,0 +1,49 @@
+package com.demo.copicloud.infrastructure.repository;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.demo.copicloud.domain.picture.entity.PictureRendition;
+import com.demo.copicloud.domain.picture.repository.PictureRenditionRepository;
+import com.demo.copicloud.infrastructure.mapper.PictureRenditionMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class PictureRenditionRepositoryImpl extends ServiceImpl<PictureRenditionMapper, PictureRendition>
+        implements PictureRenditionRepository {
+
+    @Override
+    public Map<String, List<PictureRendition>> listBySourceUrls(Collection<String> sourceUrls) {
+        if (CollUtil.isEmpty(sourceUrls)) {
+            return new HashMap<>();
+        }
+        return this.lambdaQuery()
+                .in(PictureRendition::getSourceUrl, sourceUrls)
+                .orderByAsc(PictureRendition::getWidth)
+                .list()
+                .stream()
+                .collect(Collectors.groupingBy(PictureRendition::getSourceUrl));
+    }
+
+    @Override
+    public PictureRendition getBySourceUrlAndWidth(String sourceUrl, int width) {
+        return this.lambdaQuery()
+                .eq(PictureRendition::getSourceUrl, sourceUrl)
+                .eq(PictureRendition::getWidth, width)
+                .one();
+    }
+
+    @Override
+    public List<PictureRendition> removeBySourceUrl(String sourceUrl) {
+        List<PictureRendition> renditionList = this.lambdaQuery()
+                .eq(PictureRendition::getSourceUrl, sourceUrl)
+                .list();
+        if (CollUtil.isEmpty(renditionList)) {
+            return Collections.emptyList();
+        }
+        this.removeByIds(renditionList.stream().map(PictureRendition::getId).collect(Collectors.toList()));
+        return renditionList;
+    }
+}
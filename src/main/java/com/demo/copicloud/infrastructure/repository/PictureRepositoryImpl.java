@@ -3,9 +3,70 @@ package com.demo.copicloud.infrastructure.repository;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.demo.copicloud.domain.picture.entity.Picture;
 import com.demo.copicloud.domain.picture.repository.PictureRepository;
+import com.demo.copicloud.infrastructure.manager.color.ColorTopKHeap;
+import com.demo.copicloud.infrastructure.manager.search.PictureSearchIndex;
 import com.demo.copicloud.infrastructure.mapper.PictureMapper;
+import com.demo.copicloud.infrastructure.utils.ColorSimilarityUtil;
+import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+
 @Service
 public class PictureRepositoryImpl extends ServiceImpl<PictureMapper, Picture> implements PictureRepository {
+
+    @Resource
+    private PictureSearchIndex pictureSearchIndex;
+
+    @Override
+    public void scanPictureColor(Long spaceId, PictureColorConsumer consumer) {
+        baseMapper.scanPictureColor(spaceId, resultContext -> {
+            Picture picture = resultContext.getResultObject();
+            int rgb = ColorSimilarityUtil.parseRgb(picture.getPicColor());
+            if (rgb >= 0) {
+                consumer.accept(picture.getId(), rgb);
+            }
+        });
+    }
+
+    @Override
+    public void scanPictureHash(Long spaceId, PictureHashConsumer consumer) {
+        baseMapper.scanPictureHash(spaceId, resultContext -> {
+            Picture picture = resultContext.getResultObject();
+            consumer.accept(picture.getId(), picture.getPicHash());
+        });
+    }
+
+    @Override
+    public void scanPictureTags(PictureTagsConsumer consumer) {
+        baseMapper.scanPictureTags(resultContext -> {
+            Picture picture = resultContext.getResultObject();
+            consumer.accept(picture.getId(), picture.getSpaceId(), picture.getTags());
+        });
+    }
+
+    @Override
+    public List<Long> listIdsByNearestColor(Long spaceId, int targetRgb, int topK) {
+        ColorTopKHeap heap = new ColorTopKHeap(topK);
+        this.scanPictureColor(spaceId, (pictureId, rgb) ->
+                heap.offer(pictureId, ColorSimilarityUtil.distanceSquared(targetRgb, rgb)));
+        return heap.drainSorted();
+    }
+
+    @Override
+    public Collection<Long> searchIds(Long spaceId, boolean nullSpaceId, String searchText, List<String> tags,
+                                      String category, int maxHits) {
+        return pictureSearchIndex.search(spaceId, nullSpaceId, searchText, tags, category, maxHits);
+    }
+
+    @Override
+    public void refreshSearchIndex(Long spaceId, Long pictureId) {
+        pictureSearchIndex.refresh(spaceId, pictureId);
+    }
+
+    @Override
+    public boolean rebuildSearchIndex() {
+        return pictureSearchIndex.rebuild();
+    }
 }
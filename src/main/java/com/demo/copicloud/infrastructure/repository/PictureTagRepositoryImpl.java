@@ -0,0 +1,84 @@
+package com.demo.copicloud.infrastructure.repository;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.demo.copicloud.domain.picture.entity.PictureTag;
+import com.demo.copicloud.domain.picture.repository.PictureTagRepository;
+import com.demo.copicloud.infrastructure.mapper.PictureTagMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class PictureTagRepositoryImpl extends ServiceImpl<PictureTagMapper, PictureTag> implements PictureTagRepository {
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void replaceTags(Long pictureId, Long spaceId, List<String> tags) {
+        this.removeByPictureId(pictureId);
+        if (CollUtil.isEmpty(tags)) {
+            return;
+        }
+        // 按唯一索引的排序规则去重，保持原有顺序
+        List<PictureTag> pictureTagList = PictureTag.normalizeTags(tags).stream()
+                .map(tag -> {
+                    PictureTag pictureTag = new PictureTag();
+                    pictureTag.setPictureId(pictureId);
+                    pictureTag.setSpaceId(spaceId);
+                    pictureTag.setTag(tag);
+                    return pictureTag;
+                })
+                .collect(Collectors.toList());
+        this.saveBatch(pictureTagList);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void replaceTags(Map<Long, List<PictureTag>> pictureTagsMap) {
+        if (CollUtil.isEmpty(pictureTagsMap)) {
+            return;
+        }
+        this.lambdaUpdate()
+                .in(PictureTag::getPictureId, pictureTagsMap.keySet())
+                .remove();
+        List<PictureTag> pictureTagList = pictureTagsMap.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        if (CollUtil.isNotEmpty(pictureTagList)) {
+            this.saveBatch(pictureTagList);
+        }
+    }
+
+    @Override
+    public void removeByPictureId(Long pictureId) {
+        this.lambdaUpdate()
+                .eq(PictureTag::getPictureId, pictureId)
+                .remove();
+    }
+
+    @Override
+    public Collection<Long> listPictureIdsByTags(Long spaceId, boolean nullSpaceId, List<String> tags, int maxHits) {
+        // 按排序规则相同的标签只会有一条关联，去重后再统计命中数量
+        List<String> tagSet = PictureTag.normalizeTags(tags);
+        if (tagSet.isEmpty()) {
+            return Collections.emptyList();
+        }
+        QueryWrapper<PictureTag> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("pictureId")
+                .in("tag", tagSet)
+                .eq(spaceId != null, "spaceId", spaceId)
+                .isNull(spaceId == null && nullSpaceId, "spaceId")
+                .groupBy("pictureId")
+                // 同时包含全部标签
+                .having("COUNT(*) = {0}", tagSet.size())
+                .last("LIMIT " + (maxHits + 1));
+        List<Long> pictureIds = this.getBaseMapper().selectObjs(queryWrapper)
+                .stream()
+                .map(obj -> ((Number) obj).longValue())
+                .collect(Collectors.toList());
+        return pictureIds.size() > maxHits ? null : pictureIds;
+    }
+}
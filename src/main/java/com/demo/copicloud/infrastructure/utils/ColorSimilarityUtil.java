@@ -26,6 +26,47 @@ public class ColorSimilarityUtil {
         return Math.max(0, Math.min(1, similarity));
     }
 
+    /**
+     * 将十六进制颜色字符串解析为打包的 RGB 整数（0xRRGGBB）
+     *
+     * @param hex 颜色字符串，格式为0xRRGGBB（也兼容 #RRGGBB 或省略前导零的写法）
+     * @return 打包后的 RGB 值，无法解析时返回 -1
+     */
+    public static int parseRgb(String hex) {
+        if (hex == null) {
+            return -1;
+        }
+        String value = hex.trim();
+        if (value.startsWith("0x") || value.startsWith("0X")) {
+            value = value.substring(2);
+        } else if (value.startsWith("#")) {
+            value = value.substring(1);
+        }
+        if (value.isEmpty() || value.length() > 6) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value, 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 计算两个打包 RGB 值之间欧几里得距离的平方
+     * 距离平方与相似度单调对应，排序时无需开方
+     *
+     * @param rgb1 第一个颜色（0xRRGGBB）
+     * @param rgb2 第二个颜色（0xRRGGBB）
+     * @return 距离的平方
+     */
+    public static int distanceSquared(int rgb1, int rgb2) {
+        int rDiff = ((rgb1 >> 16) & 0xFF) - ((rgb2 >> 16) & 0xFF);
+        int gDiff = ((rgb1 >> 8) & 0xFF) - ((rgb2 >> 8) & 0xFF);
+        int bDiff = (rgb1 & 0xFF) - (rgb2 & 0xFF);
+        return rDiff * rDiff + gDiff * gDiff + bDiff * bDiff;
+    }
+
     /**
      * 将十六进制颜色字符串转换为RGB数组
      *
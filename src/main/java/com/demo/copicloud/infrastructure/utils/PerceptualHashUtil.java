@@ -0,0 +1,126 @@
+package com.demo.copicloud.infrastructure.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 感知哈希工具（dHash）
+ * 将图片缩放为 9x8 灰度图，逐行比较相邻像素的明暗得到 64 位指纹，
+ * 两张图片指纹的汉明距离越小越相似（一般 <= 10 可视为近似重复）
+ * 解码前先读取图片头中的尺寸，超过像素上限的图片不计算；解码时按步长跳过像素（降采样），
+ * 内存占用只与采样后的尺寸有关，不会因图片头声明的超大尺寸一次性分配大量内存
+ */
+@Slf4j
+public class PerceptualHashUtil {
+
+    private static final int HASH_WIDTH = 9;
+
+    private static final int HASH_HEIGHT = 8;
+
+    /**
+     * 允许计算的最大像素数
+     */
+    public static final long MAX_PIXELS = 100_000_000L;
+
+    /**
+     * 降采样后的目标边长，保留足够细节后再缩放为 9x8
+     */
+    private static final int SAMPLE_SIZE = 64;
+
+    /**
+     * 计算图片文件的 dHash
+     *
+     * @param file 图片文件
+     * @return 64 位指纹，无法解码（例如 JDK 不支持的格式）或超过像素上限时返回 null
+     */
+    public static Long dHash(File file) {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(file)) {
+            return dHash(inputStream);
+        } catch (IOException e) {
+            log.warn("计算感知哈希失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 计算图片字节的 dHash
+     *
+     * @param data 图片内容
+     * @return 64 位指纹，无法解码或超过像素上限时返回 null
+     */
+    public static Long dHash(byte[] data) {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            return dHash(inputStream);
+        } catch (IOException e) {
+            log.warn("计算感知哈希失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Long dHash(ImageInputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(inputStream, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            if ((long) width * height > MAX_PIXELS) {
+                log.warn("图片尺寸过大，跳过计算感知哈希: {}x{}", width, height);
+                return null;
+            }
+            ImageReadParam readParam = reader.getDefaultReadParam();
+            readParam.setSourceSubsampling(Math.max(1, width / SAMPLE_SIZE), Math.max(1, height / SAMPLE_SIZE), 0, 0);
+            return dHash(reader.read(0, readParam));
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * 计算图片的 dHash
+     *
+     * @param image 图片
+     * @return 64 位指纹
+     */
+    public static long dHash(BufferedImage image) {
+        // 缩放并转为灰度图
+        BufferedImage gray = new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+        graphics.dispose();
+        // 相邻像素左亮于右记为 1
+        long hash = 0L;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                int left = gray.getRaster().getSample(x, y, 0);
+                int right = gray.getRaster().getSample(x + 1, y, 0);
+                hash = (hash << 1) | (left > right ? 1L : 0L);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 计算两个指纹的汉明距离
+     */
+    public static int hammingDistance(long hash1, long hash2) {
+        return Long.bitCount(hash1 ^ hash2);
+    }
+}
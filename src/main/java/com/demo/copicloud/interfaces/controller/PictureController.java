@@ -26,7 +26,12 @@ import com.demo.copicloud.infrastructure.manager.auth.model.SpaceUserPermissionC
 import com.demo.copicloud.infrastructure.utils.ThrowUtils;
 import com.demo.copicloud.interfaces.assembler.PictureAssembler;
 import com.demo.copicloud.interfaces.dto.picture.*;
+import com.demo.copicloud.interfaces.vo.picture.ChunkUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.DirectUploadVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureCursorPageVO;
+import com.demo.copicloud.interfaces.vo.picture.PictureFetchJobVO;
 import com.demo.copicloud.interfaces.vo.picture.PictureTagCategory;
+import com.demo.copicloud.interfaces.vo.picture.PictureUploadResultVO;
 import com.demo.copicloud.interfaces.vo.picture.PictureVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -94,18 +99,15 @@ public class PictureController {
     @Operation(summary = "批量上传图片（本地文件）")
     @PostMapping("/upload/pictures")
     @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
-    public BaseResponse<Integer> uploadPictures(MultipartFile[] file, PictureUploadRequest pictureUploadRequest,
-                                                HttpServletRequest request) {
+    public BaseResponse<List<PictureUploadResultVO>> uploadPictures(MultipartFile[] file,
+                                                                    PictureUploadRequest pictureUploadRequest,
+                                                                    HttpServletRequest request) {
         ThrowUtils.throwIf(file == null, ErrorCode.PARAMS_ERROR, "文件不能为空");
         User loginUser = userApplicationService.getLoginUser(request);
-        // 计数器
-        Integer count = 0;
-        // 获取所有文件依次上传
-        for (MultipartFile multipartFile : file) {
-            pictureApplicationService.uploadPicture(multipartFile, pictureUploadRequest, loginUser);
-            count++;
-        }
-        return ResultUtils.success(count);
+        // 并发上传所有文件，返回每个文件的上传结果
+        List<PictureUploadResultVO> resultList =
+                pictureApplicationService.uploadPictures(Arrays.asList(file), pictureUploadRequest, loginUser);
+        return ResultUtils.success(resultList);
     }
 
     /**
@@ -122,6 +124,86 @@ public class PictureController {
         return ResultUtils.success(pictureVO);
     }
 
+    /**
+     * 初始化分片上传（大图片）
+     */
+    @Operation(summary = "初始化分片上传")
+    @PostMapping("/upload/chunk/init")
+    public BaseResponse<ChunkUploadVO> initChunkUpload(@RequestBody ChunkUploadInitRequest chunkUploadInitRequest,
+                                                       HttpServletRequest request) {
+        ThrowUtils.throwIf(chunkUploadInitRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userApplicationService.getLoginUser(request);
+        ChunkUploadVO chunkUploadVO = pictureApplicationService.initChunkUpload(chunkUploadInitRequest, loginUser);
+        return ResultUtils.success(chunkUploadVO);
+    }
+
+    /**
+     * 上传分片（可并行、可重复上传）
+     */
+    @Operation(summary = "上传分片")
+    @PostMapping("/upload/chunk/part")
+    public BaseResponse<Boolean> uploadChunkPart(@RequestPart("file") MultipartFile file, String uploadId,
+                                                 Integer partNumber, HttpServletRequest request) {
+        ThrowUtils.throwIf(file == null, ErrorCode.PARAMS_ERROR, "分片不能为空");
+        User loginUser = userApplicationService.getLoginUser(request);
+        pictureApplicationService.uploadChunkPart(uploadId, partNumber, file, loginUser);
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 查询分片上传进度（断点续传时获取已上传的分片）
+     */
+    @Operation(summary = "查询分片上传进度")
+    @GetMapping("/upload/chunk")
+    public BaseResponse<ChunkUploadVO> getChunkUpload(String uploadId, HttpServletRequest request) {
+        ThrowUtils.throwIf(uploadId == null, ErrorCode.PARAMS_ERROR, "上传 id 不能为空");
+        User loginUser = userApplicationService.getLoginUser(request);
+        ChunkUploadVO chunkUploadVO = pictureApplicationService.getChunkUpload(uploadId, loginUser);
+        return ResultUtils.success(chunkUploadVO);
+    }
+
+    /**
+     * 完成分片上传 添加
+     */
+    @Operation(summary = "完成分片上传")
+    @PostMapping("/upload/chunk/complete")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
+    public BaseResponse<PictureVO> completeChunkUpload(@RequestBody ChunkUploadCompleteRequest chunkUploadCompleteRequest,
+                                                       HttpServletRequest request) {
+        ThrowUtils.throwIf(chunkUploadCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userApplicationService.getLoginUser(request);
+        PictureVO pictureVO = pictureApplicationService.completeChunkUpload(chunkUploadCompleteRequest, loginUser);
+        return ResultUtils.success(pictureVO);
+    }
+
+    /**
+     * 申请直传（客户端直接上传到对象存储）
+     */
+    @Operation(summary = "申请直传")
+    @PostMapping("/upload/direct")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
+    public BaseResponse<DirectUploadVO> createDirectUpload(@RequestBody DirectUploadRequest directUploadRequest,
+                                                           HttpServletRequest request) {
+        ThrowUtils.throwIf(directUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userApplicationService.getLoginUser(request);
+        DirectUploadVO directUploadVO = pictureApplicationService.createDirectUpload(directUploadRequest, loginUser);
+        return ResultUtils.success(directUploadVO);
+    }
+
+    /**
+     * 完成直传 添加
+     */
+    @Operation(summary = "完成直传")
+    @PostMapping("/upload/direct/complete")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
+    public BaseResponse<PictureVO> completeDirectUpload(@RequestBody DirectUploadCompleteRequest directUploadCompleteRequest,
+                                                        HttpServletRequest request) {
+        ThrowUtils.throwIf(directUploadCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userApplicationService.getLoginUser(request);
+        PictureVO pictureVO = pictureApplicationService.completeDirectUpload(directUploadCompleteRequest, loginUser);
+        return ResultUtils.success(pictureVO);
+    }
+
     /**
      * 批量抓取图片并上传
      */
@@ -136,6 +218,32 @@ public class PictureController {
         return ResultUtils.success(uploadCount);
     }
 
+    /**
+     * 提交批量抓取任务（后台执行，返回任务 id）
+     */
+    @Operation(summary = "提交批量抓取任务")
+    @PostMapping("/upload/batch/job")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<String> submitPictureFetchJob(@RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest,
+                                                      HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userApplicationService.getLoginUser(request);
+        String jobId = pictureApplicationService.submitPictureFetchJob(pictureUploadByBatchRequest, loginUser);
+        return ResultUtils.success(jobId);
+    }
+
+    /**
+     * 查询批量抓取任务进度
+     */
+    @Operation(summary = "查询批量抓取任务进度")
+    @GetMapping("/upload/batch/job")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureFetchJobVO> getPictureFetchJob(String jobId) {
+        ThrowUtils.throwIf(jobId == null, ErrorCode.PARAMS_ERROR, "任务 id 不能为空");
+        PictureFetchJobVO pictureFetchJobVO = pictureApplicationService.getPictureFetchJob(jobId);
+        return ResultUtils.success(pictureFetchJobVO);
+    }
+
     /**
      * 删除图片
      */
@@ -252,6 +360,28 @@ public class PictureController {
         return ResultUtils.success(pictureApplicationService.getPictureVOPage(picturePage, request));
     }
 
+    /**
+     * 游标分页获取图片列表（封装类，不统计总数，适用于无限滚动）
+     */
+    @Operation(summary = "游标分页获取图片列表VO")
+    @PostMapping("/list/cursor/vo")
+    public BaseResponse<PictureCursorPageVO> listPictureVOByCursor(@RequestBody PictureCursorQueryRequest pictureCursorQueryRequest,
+                                                                   HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureCursorQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        // 空间权限校验
+        Long spaceId = pictureCursorQueryRequest.getSpaceId();
+        // 公开图库
+        if (spaceId == null) {
+            // 普通用户默认只能查看已过审的公开数据
+            pictureCursorQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+            pictureCursorQueryRequest.setNullSpaceId(true);
+        } else {
+            boolean hasPermission = StpKit.SPACE.hasPermission(spaceId, SpaceUserPermissionConstant.PICTURE_VIEW);
+            ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR, "没有空间权限");
+        }
+        return ResultUtils.success(pictureApplicationService.listPictureVOByCursor(pictureCursorQueryRequest, request));
+    }
+
     /**
      * 分页获取图片列表（封装类 + 缓存）
      */
@@ -314,6 +444,34 @@ public class PictureController {
         return ResultUtils.success(imageSearchResults);
     }
 
+    /**
+     * 相似图片查找（本地感知哈希）
+     *
+     * @param searchRequest 搜索请求
+     */
+    @Operation(summary = "相似图片查找")
+    @PostMapping("/search/similar")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
+    public BaseResponse<List<PictureVO>> searchSimilarPicture(@RequestBody SearchSimilarPictureRequest searchRequest,
+                                                              HttpServletRequest request) {
+        ThrowUtils.throwIf(searchRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(searchRequest.getPictureId() == null, ErrorCode.PARAMS_ERROR);
+        // 按源图片实际所属的空间校验查看权限
+        Picture picture = pictureApplicationService.getById(searchRequest.getPictureId());
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+        if (picture.getSpaceId() != null) {
+            boolean hasPermission = StpKit.SPACE.hasPermission(picture.getSpaceId(), SpaceUserPermissionConstant.PICTURE_VIEW);
+            ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR, "没有空间权限");
+        } else if (!Integer.valueOf(PictureReviewStatusEnum.PASS.getValue()).equals(picture.getReviewStatus())) {
+            // 公共图库未过审的图片，仅本人或管理员可查看
+            User loginUser = userApplicationService.getLoginUser(request);
+            ThrowUtils.throwIf(!picture.getUserId().equals(loginUser.getId()) && !loginUser.isAdmin(),
+                    ErrorCode.NO_AUTH_ERROR);
+        }
+        List<PictureVO> pictureVOS = pictureApplicationService.searchSimilarPicture(searchRequest);
+        return ResultUtils.success(pictureVOS);
+    }
+
     /**
      * 颜色搜图
      */
@@ -327,6 +485,29 @@ public class PictureController {
         return ResultUtils.success(pictureVOS);
     }
 
+    /**
+     * 重建全文检索索引（仅管理员可用，异步执行）
+     */
+    @Operation(summary = "重建全文检索索引")
+    @PostMapping("/search/index/rebuild")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> rebuildSearchIndex() {
+        boolean started = pictureApplicationService.rebuildSearchIndex();
+        ThrowUtils.throwIf(!started, ErrorCode.OPERATION_ERROR, "索引正在重建中");
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 回填标签关联表（仅管理员可用，异步执行）
+     */
+    @Operation(summary = "回填标签关联表")
+    @PostMapping("/tag/backfill")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> backfillPictureTags() {
+        pictureApplicationService.backfillPictureTags();
+        return ResultUtils.success(true);
+    }
+
     /**
      * 批量编辑图片
      */
@@ -17,6 +17,7 @@ import com.demo.copicloud.infrastructure.manager.auth.SpaceUserAuthManager;
 import com.demo.copicloud.infrastructure.utils.ThrowUtils;
 import com.demo.copicloud.interfaces.assembler.SpaceAssembler;
 import com.demo.copicloud.interfaces.dto.space.space.*;
+import com.demo.copicloud.interfaces.vo.space.PictureMigrationVO;
 import com.demo.copicloud.interfaces.vo.space.SpaceVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -164,6 +165,17 @@ public class SpaceController {
         return ResultUtils.success(true);
     }
 
+    /**
+     * 获取空间图片迁移进度（仅管理员可用）
+     */
+    @Operation(summary = "获取空间图片迁移进度")
+    @GetMapping("/migration/get")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<PictureMigrationVO> getPictureMigration(long spaceId) {
+        ThrowUtils.throwIf(spaceId <= 0, ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(spaceApplicationService.getPictureMigration(spaceId));
+    }
+
     /**
      * 获取空间等级
      */
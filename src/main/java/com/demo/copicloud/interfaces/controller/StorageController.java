@@ -0,0 +1,79 @@
+package com.demo.copicloud.interfaces.controller;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.demo.copicloud.infrastructure.exception.ErrorCode;
+import com.demo.copicloud.infrastructure.manager.storage.ObjectStorage;
+import com.demo.copicloud.infrastructure.manager.upload.ChunkUploadManager;
+import com.demo.copicloud.infrastructure.utils.ThrowUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 对象存储文件访问接口
+ * 使用本地或内存存储时由应用直接提供图片下载，使用 COS 时图片地址指向 COS，不会请求到这里；
+ * 该接口不需要登录，分片上传的临时分片不对外提供
+ */
+@Slf4j
+@RestController
+@RequestMapping("/storage")
+@Tag(name = "文件访问接口")
+public class StorageController {
+
+    /**
+     * Tomcat 的 sendfile 请求属性：设置后由容器在请求结束时直接把文件发送到套接字
+     */
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_FILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    @Resource
+    private ObjectStorage objectStorage;
+
+    /**
+     * 下载对象
+     */
+    @Operation(summary = "下载对象")
+    @GetMapping("/**")
+    public void getObject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = StrUtil.subAfter(request.getRequestURI(), "/storage/", false);
+        ThrowUtils.throwIf(StrUtil.isBlank(key), ErrorCode.PARAMS_ERROR, "对象键为空");
+        // 拒绝 . 和 .. 路径段，避免绕过下面的前缀校验
+        ThrowUtils.throwIf(StrUtil.split(key, '/').stream().anyMatch(segment -> StrUtil.isBlank(segment)
+                || ".".equals(segment) || "..".equals(segment)), ErrorCode.PARAMS_ERROR, "对象键不合法");
+        ThrowUtils.throwIf(ChunkUploadManager.isChunkKey(key), ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        long length = objectStorage.getObjectLength(key);
+        String mimeType = FileUtil.getMimeType(key);
+        response.setContentType(StrUtil.blankToDefault(mimeType, "application/octet-stream"));
+        response.setContentLengthLong(length);
+        // 对象键包含内容哈希或随机串，内容不会变化，允许浏览器长期缓存
+        response.setHeader("Cache-Control", "public, max-age=31536000");
+        // 本地文件且容器支持 sendfile 时交给容器发送，文件内容不经过用户态
+        Path path = objectStorage.getLocalPath(key);
+        if (path != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, path.toString());
+            request.setAttribute(SENDFILE_FILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_FILE_END_ATTR, length);
+            return;
+        }
+        try (InputStream inputStream = objectStorage.getObject(key)) {
+            StreamUtils.copy(inputStream, response.getOutputStream());
+        }
+    }
+}
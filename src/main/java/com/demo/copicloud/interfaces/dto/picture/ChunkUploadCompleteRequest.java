@@ -0,0 +1,36 @@
+package com.demo.copicloud.interfaces.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 完成分片上传请求
+ */
+@Data
+public class ChunkUploadCompleteRequest implements Serializable {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 图片id （用于判断是更新还是删除）
+     */
+    private Long id;
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
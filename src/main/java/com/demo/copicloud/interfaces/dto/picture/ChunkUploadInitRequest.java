@@ -0,0 +1,31 @@
+package com.demo.copicloud.interfaces.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 初始化分片上传请求
+ */
+@Data
+public class ChunkUploadInitRequest implements Serializable {
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小（字节），为空时使用默认值
+     */
+    private Long partSize;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
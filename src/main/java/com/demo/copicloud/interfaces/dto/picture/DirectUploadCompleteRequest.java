@@ -0,0 +1,31 @@
+package com.demo.copicloud.interfaces.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 完成直传请求
+ */
+@Data
+public class DirectUploadCompleteRequest implements Serializable {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 空间 id（需与申请直传时一致，用于空间权限校验）
+     */
+    private Long spaceId;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
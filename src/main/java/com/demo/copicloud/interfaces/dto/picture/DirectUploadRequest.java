@@ -0,0 +1,36 @@
+package com.demo.copicloud.interfaces.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 申请直传请求
+ */
+@Data
+public class DirectUploadRequest implements Serializable {
+
+    /**
+     * 图片id （用于判断是更新还是删除）
+     */
+    private Long id;
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,24 @@
+package com.demo.copicloud.interfaces.dto.picture;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 游标分页查询图片请求
+ * 查询条件与 PictureQueryRequest 相同，current 不生效；sortField 仅支持 editTime（默认）和 id
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class PictureCursorQueryRequest extends PictureQueryRequest implements Serializable {
+
+    /**
+     * 游标（上一次返回的 nextCursor，第一页不传）
+     */
+    private String cursor;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -113,6 +113,12 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private Date reviewTime;
 
+    /**
+     * 总数统计方式：exact-精确统计（默认）; none-不统计，total 为 0; approximate-使用缓存的近似计数，
+     * 仅按空间、审核状态、分类过滤时生效，其余条件下退化为精确统计
+     */
+    private String countMode;
+
     @Serial
     private static final long serialVersionUID = 1L;
 }
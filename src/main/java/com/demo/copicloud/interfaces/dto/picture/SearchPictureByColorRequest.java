@@ -18,6 +18,16 @@ public class SearchPictureByColorRequest implements Serializable {
      */
     private String color;
 
+    /**
+     * 返回最相似的图片数量（默认 2 张，最多 50 张）
+     */
+    private Integer topK;
+
+    /**
+     * 是否实时扫描（跳过内存索引，直接流式扫描数据库，结果不受索引刷新延迟影响）
+     */
+    private boolean realtime;
+
     @Serial
     private static final long serialVersionUID = 1L;
 }
@@ -0,0 +1,28 @@
+package com.demo.copicloud.interfaces.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+@Data
+public class SearchSimilarPictureRequest implements Serializable {
+
+    /**
+     * 图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 最大汉明距离（默认 10，越小越严格，0 表示完全重复）
+     */
+    private Integer maxDistance;
+
+    /**
+     * 最多返回数量（默认 10，最多 50）
+     */
+    private Integer topK;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -18,6 +18,16 @@ public class UploadPictureResult implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 图片感知哈希（64 位 dHash）
+     */
+    private Long picHash;
+
+    /**
+     * 原图内容 SHA-256（对应 picture_object 记录，未去重上传时为空）
+     */
+    private String contentHash;
+
     /**
      * 图片地址 缩略图
      */
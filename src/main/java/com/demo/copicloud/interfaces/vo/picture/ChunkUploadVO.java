@@ -0,0 +1,47 @@
+package com.demo.copicloud.interfaces.vo.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分片上传进度
+ */
+@Data
+public class ChunkUploadVO implements Serializable {
+
+    /**
+     * 上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小（字节），除最后一片外每片都必须是该大小
+     */
+    private Long partSize;
+
+    /**
+     * 分片数量，分片序号从 1 开始
+     */
+    private Integer partCount;
+
+    /**
+     * 已上传的分片序号，断点续传时只需上传其余分片
+     */
+    private List<Integer> uploadedParts;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
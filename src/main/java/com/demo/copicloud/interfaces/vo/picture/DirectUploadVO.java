@@ -0,0 +1,42 @@
+package com.demo.copicloud.interfaces.vo.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 直传凭证
+ */
+@Data
+public class DirectUploadVO implements Serializable {
+
+    /**
+     * 上传 id，上传完成后用于通知服务端
+     */
+    private String uploadId;
+
+    /**
+     * 对象键
+     */
+    private String key;
+
+    /**
+     * 预签名上传地址，使用 HTTP PUT 上传文件内容
+     */
+    private String uploadUrl;
+
+    /**
+     * 上传时必须携带的 Content-Type（与 Content-Length 一起参与签名）
+     */
+    private String contentType;
+
+    /**
+     * 上传地址过期时间
+     */
+    private Date expireTime;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
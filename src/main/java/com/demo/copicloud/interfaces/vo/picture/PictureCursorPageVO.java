@@ -0,0 +1,32 @@
+package com.demo.copicloud.interfaces.vo.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ */
+@Data
+public class PictureCursorPageVO implements Serializable {
+
+    /**
+     * 当前页图片
+     */
+    private List<PictureVO> records;
+
+    /**
+     * 下一页游标，没有更多数据时为空
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private boolean hasMore;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,51 @@
+package com.demo.copicloud.interfaces.vo.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 批量抓取图片任务进度
+ */
+@Data
+public class PictureFetchJobVO implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private String jobId;
+
+    /**
+     * 任务状态：running / succeed / failed
+     */
+    private String status;
+
+    /**
+     * 目标抓取数量
+     */
+    private Integer count;
+
+    /**
+     * 抓取到的候选图片数量
+     */
+    private Integer candidateCount;
+
+    /**
+     * 已入库的图片数量
+     */
+    private Integer successCount;
+
+    /**
+     * 上传失败的图片数量
+     */
+    private Integer failCount;
+
+    /**
+     * 任务失败原因
+     */
+    private String errorMessage;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,31 @@
+package com.demo.copicloud.interfaces.vo.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 图片多分辨率副本（用于前端 srcset）
+ */
+@Data
+public class PictureRenditionVO implements Serializable {
+
+    /**
+     * 宽度
+     */
+    private Integer width;
+
+    /**
+     * 高度
+     */
+    private Integer height;
+
+    /**
+     * 副本 url
+     */
+    private String url;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
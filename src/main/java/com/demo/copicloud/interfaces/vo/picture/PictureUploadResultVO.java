@@ -0,0 +1,36 @@
+package com.demo.copicloud.interfaces.vo.picture;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 多文件上传中单个文件的上传结果
+ */
+@Data
+public class PictureUploadResultVO implements Serializable {
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 是否上传成功
+     */
+    private boolean success;
+
+    /**
+     * 上传成功的图片信息
+     */
+    private PictureVO picture;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -114,7 +114,12 @@ public class PictureVO implements Serializable {
      * 权限列表
      */
     private List<String> permissionList = new ArrayList<>();
-    
+
+    /**
+     * 多分辨率副本（按宽度升序，可直接拼接为 srcset），尚未生成时为空
+     */
+    private List<PictureRenditionVO> renditions;
+
     @Serial
     private static final long serialVersionUID = 1L;
 
@@ -0,0 +1,62 @@
+package com.demo.copicloud.interfaces.vo.space;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 空间图片迁移到分表的进度
+ */
+@Data
+public class PictureMigrationVO implements Serializable {
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 迁移阶段：copying / catching_up / switching / purging / done
+     */
+    private String phase;
+
+    /**
+     * 开始迁移时的图片数量
+     */
+    private Long total;
+
+    /**
+     * 已复制的图片数量
+     */
+    private Long copied;
+
+    /**
+     * 补复制的图片数量（复制期间新增或修改的图片）
+     */
+    private Long caughtUp;
+
+    /**
+     * 已从原表清理的图片数量
+     */
+    private Long purged;
+
+    /**
+     * 开始时间
+     */
+    private Date startTime;
+
+    /**
+     * 最近一次更新进度的时间
+     */
+    private Date updateTime;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String errorMessage;
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,5 @@
+-- 游标分页索引：公共图库 / 空间内按编辑时间倒序滚动加载
+-- WHERE spaceId = ? (或 IS NULL) AND reviewStatus = ? AND isDelete = 0 AND (editTime, id) < (?, ?) ORDER BY editTime DESC, id DESC
+-- 已存在的分表 picture_{spaceId} 需同样执行
+CREATE INDEX idx_spaceId_reviewStatus_editTime
+    ON picture (spaceId, reviewStatus, isDelete, editTime, id);
@@ -0,0 +1,13 @@
+-- 对象存储文件删除队列表
+-- 图片文件不再在请求中逐个删除，而是先写入本表，由定时任务按批调用对象存储的批量删除接口；
+-- 删除失败时按指数退避重试，超过最大重试次数后保留记录等待人工处理；不参与分表
+CREATE TABLE IF NOT EXISTS picture_file_deletion
+(
+    id            BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,
+    objectKey     VARCHAR(512)                       NOT NULL COMMENT '对象键',
+    retryCount    INT      DEFAULT 0                 NOT NULL COMMENT '已重试次数',
+    nextRetryTime DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '下次执行时间',
+    lastError     VARCHAR(512)                       NULL COMMENT '最近一次失败原因',
+    createTime    DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',
+    INDEX idx_retryCount_nextRetryTime (retryCount, nextRetryTime)
+) COMMENT '对象存储文件删除队列' COLLATE = utf8mb4_unicode_ci;
@@ -0,0 +1,4 @@
+-- 图片感知哈希（近似重复检测）
+-- 已存在的分表 picture_{spaceId} 需同样执行，新建分表通过 CREATE TABLE ... LIKE picture 自动继承
+ALTER TABLE picture
+    ADD COLUMN picHash BIGINT NULL COMMENT '图片感知哈希（64 位 dHash）';
@@ -0,0 +1,24 @@
+-- 图片存储对象表（内容寻址）
+-- 以原图内容的 SHA-256 作为唯一键，相同内容只在对象存储中保存和处理一次，
+-- refCount 为引用该对象的图片记录数，降为 0 时删除记录和对象存储中的文件；不参与分表
+CREATE TABLE IF NOT EXISTS picture_object
+(
+    id           BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,
+    contentHash  CHAR(64)                           NOT NULL COMMENT '原图内容 SHA-256',
+    url          VARCHAR(512)                       NOT NULL COMMENT '图片 url',
+    thumbnailUrl VARCHAR(512)                       NULL COMMENT '缩略图 url',
+    picSize      BIGINT                             NULL COMMENT '图片体积',
+    picWidth     INT                                NULL COMMENT '图片宽度',
+    picHeight    INT                                NULL COMMENT '图片高度',
+    picScale     DOUBLE                             NULL COMMENT '图片宽高比例',
+    picFormat    VARCHAR(32)                        NULL COMMENT '图片格式',
+    picColor     VARCHAR(16)                        NULL COMMENT '图片主色调',
+    picHash      BIGINT                             NULL COMMENT '感知哈希',
+    refCount     INT      DEFAULT 0                 NOT NULL COMMENT '引用数',
+    createTime   DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',
+    updateTime   DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_contentHash (contentHash),
+    UNIQUE KEY uk_url (url),
+    INDEX idx_thumbnailUrl (thumbnailUrl),
+    INDEX idx_refCount_createTime (refCount, createTime)
+) COMMENT '图片存储对象' COLLATE = utf8mb4_unicode_ci;
@@ -0,0 +1,15 @@
+-- 图片多分辨率副本表
+-- 按原图 url 记录各宽度的副本（内容相同的图片共用一份），首次被请求时异步生成并保存到对象存储；不参与分表
+CREATE TABLE IF NOT EXISTS picture_rendition
+(
+    id         BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,
+    sourceUrl  VARCHAR(512)                       NOT NULL COMMENT '原图 url',
+    width      INT                                NOT NULL COMMENT '副本宽度',
+    height     INT                                NOT NULL COMMENT '副本高度',
+    url        VARCHAR(512)                       NOT NULL COMMENT '副本 url',
+    picSize    BIGINT                             NULL COMMENT '副本体积',
+    picFormat  VARCHAR(32)                        NULL COMMENT '副本格式',
+    createTime DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',
+    UNIQUE KEY uk_sourceUrl_width (sourceUrl, width),
+    INDEX idx_url (url)
+) COMMENT '图片多分辨率副本' COLLATE = utf8mb4_unicode_ci;
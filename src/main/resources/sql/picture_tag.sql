@@ -0,0 +1,14 @@
+-- 图片标签关联表（标签倒排索引）
+-- 不参与分表，按标签查询图片 id 后再回表；上线后调用 /picture/tag/backfill 回填历史数据，
+-- 回填完成后开启 picture.tag-relation.read-enabled 让标签筛选和标签统计改为查询此表
+CREATE TABLE IF NOT EXISTS picture_tag
+(
+    id         BIGINT AUTO_INCREMENT COMMENT 'id' PRIMARY KEY,
+    pictureId  BIGINT                             NOT NULL COMMENT '图片 id',
+    spaceId    BIGINT                             NULL COMMENT '空间 id（为空表示公共图库）',
+    tag        VARCHAR(128)                       NOT NULL COMMENT '标签',
+    createTime DATETIME DEFAULT CURRENT_TIMESTAMP NOT NULL COMMENT '创建时间',
+    UNIQUE KEY uk_pictureId_tag (pictureId, tag),
+    INDEX idx_tag_spaceId (tag, spaceId, pictureId),
+    INDEX idx_spaceId_tag (spaceId, tag)
+) COMMENT '图片标签关联' COLLATE = utf8mb4_unicode_ci;
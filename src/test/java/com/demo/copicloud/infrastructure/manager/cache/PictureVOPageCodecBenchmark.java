@@ -0,0 +1,97 @@
+package com.demo.copicloud.infrastructure.manager.cache;
+
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.demo.copicloud.interfaces.vo.picture.PictureVO;
+import com.demo.copicloud.interfaces.vo.user.UserVO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 图片分页缓存编码对比：Hutool JSON 与 PictureVOPageCodec
+ * 直接运行 main 方法，输出每条缓存的字节数以及缓存命中时的平均解码耗时
+ */
+public class PictureVOPageCodecBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+
+    private static final int MEASURE_ROUNDS = 50_000;
+
+    public static void main(String[] args) {
+        Page<PictureVO> page = mockPage(30);
+
+        String json = JSONUtil.toJsonStr(page);
+        byte[] binary = PictureVOPageCodec.encode(page);
+        System.out.printf("每条缓存字节数: json = %d, binary = %d%n",
+                json.getBytes(StandardCharsets.UTF_8).length, binary.length);
+
+        // 校验往返一致
+        Page<PictureVO> decoded = PictureVOPageCodec.decode(binary);
+        if (decoded == null || !page.getRecords().equals(decoded.getRecords())) {
+            throw new IllegalStateException("二进制编解码结果不一致");
+        }
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += JSONUtil.toBean(json, Page.class, true).getRecords().size();
+            sink += PictureVOPageCodec.decode(binary).getRecords().size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += JSONUtil.toBean(json, Page.class, true).getRecords().size();
+        }
+        long jsonNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += PictureVOPageCodec.decode(binary).getRecords().size();
+        }
+        long binaryNanos = System.nanoTime() - start;
+
+        System.out.printf("Redis 命中解码耗时: json = %.2f us, binary = %.2f us%n",
+                jsonNanos / 1000.0 / MEASURE_ROUNDS, binaryNanos / 1000.0 / MEASURE_ROUNDS);
+        System.out.println("本地缓存命中: 直接返回对象，无解码开销");
+        System.out.println("sink = " + sink);
+    }
+
+    private static Page<PictureVO> mockPage(int size) {
+        List<PictureVO> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            PictureVO vo = new PictureVO();
+            vo.setId(1870000000000000000L + i);
+            vo.setUrl("https://copicloud-1300000000.cos.ap-guangzhou.myqcloud.com/public/1870/2025-01-01_abcdefgh" + i + ".webp");
+            vo.setThumbnailUrl("https://copicloud-1300000000.cos.ap-guangzhou.myqcloud.com/public/1870/2025-01-01_abcdefgh" + i + "_thumbnail.png");
+            vo.setPicColor("0x5a4b3c");
+            vo.setName("风景图片" + i);
+            vo.setIntroduction("这是一张用于压测缓存编码的示例图片，简介长度接近真实数据。");
+            vo.setTags(Arrays.asList("风景", "高清", "壁纸"));
+            vo.setCategory("壁纸");
+            vo.setPicSize(123456L + i);
+            vo.setPicWidth(1920);
+            vo.setPicHeight(1080);
+            vo.setPicScale(1.78);
+            vo.setPicFormat("webp");
+            vo.setUserId(1860000000000000000L);
+            vo.setCreateTime(new Date());
+            vo.setEditTime(new Date());
+            vo.setUpdateTime(new Date());
+            UserVO user = new UserVO();
+            user.setId(1860000000000000000L);
+            user.setUserAccount("demo");
+            user.setUserName("示例用户");
+            user.setUserAvatar("https://copicloud-1300000000.cos.ap-guangzhou.myqcloud.com/avatar/demo.png");
+            user.setUserRole("user");
+            user.setCreateTime(new Date());
+            vo.setUser(user);
+            records.add(vo);
+        }
+        Page<PictureVO> page = new Page<>(1, size, 1000);
+        page.setRecords(records);
+        return page;
+    }
+}
@@ -0,0 +1,71 @@
+package com.demo.copicloud.infrastructure.manager.sharing;
+
+import com.google.common.collect.Range;
+import org.apache.shardingsphere.sharding.api.sharding.standard.PreciseShardingValue;
+import org.apache.shardingsphere.sharding.api.sharding.standard.RangeShardingValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 图片分表算法单元测试
+ */
+class PictureShardingAlgorithmTest {
+
+    private static final String LOGIC_TABLE_NAME = "picture";
+
+    private static final List<String> AVAILABLE_TABLES =
+            List.of("picture", "picture_2", "picture_4", "picture_6", "picture_tmp");
+
+    private final PictureShardingAlgorithm algorithm = new PictureShardingAlgorithm();
+
+    @Test
+    void preciseRoutesToShardTable() {
+        assertEquals("picture_4", algorithm.doSharding(AVAILABLE_TABLES, precise(4L)));
+    }
+
+    @Test
+    void preciseWithoutShardTableRoutesToLogicTable() {
+        assertEquals("picture", algorithm.doSharding(AVAILABLE_TABLES, precise(3L)));
+    }
+
+    @Test
+    void preciseNullRoutesToLogicTable() {
+        assertEquals("picture", algorithm.doSharding(AVAILABLE_TABLES, precise(null)));
+    }
+
+    @Test
+    void closedRangeRoutesToShardTablesInRange() {
+        Collection<String> tableNames = algorithm.doSharding(AVAILABLE_TABLES, range(Range.closed(3L, 5L)));
+        assertEquals(List.of("picture", "picture_4"), List.copyOf(tableNames));
+    }
+
+    @Test
+    void openRangeRoutesToShardTablesInRange() {
+        Collection<String> tableNames = algorithm.doSharding(AVAILABLE_TABLES, range(Range.greaterThan(4L)));
+        assertEquals(List.of("picture", "picture_6"), List.copyOf(tableNames));
+    }
+
+    @Test
+    void rangeWithoutShardTableRoutesToLogicTableOnly() {
+        Collection<String> tableNames = algorithm.doSharding(AVAILABLE_TABLES, range(Range.lessThan(2L)));
+        assertEquals(List.of("picture"), List.copyOf(tableNames));
+    }
+
+    @Test
+    void rangeIgnoresTablesWithoutNumericSuffix() {
+        Collection<String> tableNames = algorithm.doSharding(AVAILABLE_TABLES, range(Range.all()));
+        assertEquals(List.of("picture", "picture_2", "picture_4", "picture_6"), List.copyOf(tableNames));
+    }
+
+    private static PreciseShardingValue<Long> precise(Long spaceId) {
+        return new PreciseShardingValue<>(LOGIC_TABLE_NAME, "spaceId", null, spaceId);
+    }
+
+    private static RangeShardingValue<Long> range(Range<Long> valueRange) {
+        return new RangeShardingValue<>(LOGIC_TABLE_NAME, "spaceId", null, valueRange);
+    }
+}
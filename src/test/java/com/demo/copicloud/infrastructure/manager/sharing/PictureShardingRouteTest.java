@@ -0,0 +1,109 @@
+package com.demo.copicloud.infrastructure.manager.sharing;
+
+import org.apache.shardingsphere.driver.api.yaml.YamlShardingSphereDataSourceFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 图片分表路由测试（H2 内存库）
+ * 在不应被访问的分表中故意放入满足查询条件的“错位”数据，查询结果中出现这些数据即说明查询被广播到了全部表
+ */
+class PictureShardingRouteTest {
+
+    private static final String JDBC_URL =
+            "jdbc:h2:mem:picture_sharding_test;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false;MODE=MySQL";
+
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        try (Connection connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (String tableName : List.of("picture", "picture_2", "picture_4", "picture_6")) {
+                statement.execute("create table " + tableName + " (id bigint primary key, spaceId bigint null)");
+            }
+            // 正常数据
+            statement.execute("insert into picture values (1, null), (3, 3)");
+            statement.execute("insert into picture_2 values (20, 2)");
+            statement.execute("insert into picture_4 values (40, 4)");
+            statement.execute("insert into picture_6 values (60, 6)");
+            // 错位数据，只有查询访问了不该访问的表才会查到
+            statement.execute("insert into picture_2 values (21, 5), (22, null)");
+            statement.execute("insert into picture_6 values (61, 4)");
+        }
+        File configFile = new File(Objects.requireNonNull(
+                PictureShardingRouteTest.class.getResource("/sharding/picture-sharding.yaml")).toURI());
+        dataSource = YamlShardingSphereDataSourceFactory.createDataSource(configFile);
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        if (dataSource instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    void equalRoutesToShardTableOnly() throws Exception {
+        assertEquals(List.of(40L), queryIds("spaceId = ?", 4L));
+    }
+
+    @Test
+    void equalWithoutShardTableRoutesToLogicTableOnly() throws Exception {
+        assertEquals(List.of(3L), queryIds("spaceId = ?", 3L));
+    }
+
+    @Test
+    void inRoutesToListedTablesOnly() throws Exception {
+        assertEquals(List.of(20L, 40L), queryIds("spaceId in (?, ?)", 2L, 4L));
+    }
+
+    @Test
+    void betweenRoutesToTablesInRangeOnly() throws Exception {
+        assertEquals(List.of(3L, 40L), queryIds("spaceId between ? and ?", 3L, 4L));
+    }
+
+    @Test
+    void greaterThanRoutesToTablesInRangeOnly() throws Exception {
+        assertEquals(List.of(60L), queryIds("spaceId >= ?", 5L));
+    }
+
+    /**
+     * 公共图库查询仍会访问全部表（见 PictureShardingAlgorithm 的路由规则说明），用例固定这一行为
+     */
+    @Test
+    void publicGalleryQueryIsBroadcast() throws Exception {
+        assertEquals(List.of(1L, 22L), queryIds("spaceId is null"));
+    }
+
+    private static List<Long> queryIds(String condition, Object... params) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "select id from picture where " + condition + " order by id")) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+}